@@ -5,20 +5,26 @@ import java.util.Scanner;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
 
 /**
  * The AddProject class handles the addition of new projects to the PoisePMS database.
  */
 public class AddProject {
 
+    /** Used to warn when a new project would overbook its architect or contractor. */
+    private final WorkloadAnalysis workloadAnalysis = new WorkloadAnalysis();
+
 /**
  * Method to add a new project to the database.
  *
  * @param scanner Scanner object to read user input.
  */
     public void addNewProject(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
-
+        try {
+            // no connection is held while waiting for input; each check and the insert borrow their own
             System.out.println("Enter the details for the new project:");
 
             String projectName = getOptionalInput(scanner, "Enter project name: ");
@@ -26,17 +32,41 @@ public class AddProject {
             String projectAddress = getRequiredInput(scanner, "Enter project address: ");
             String erfNumber = getRequiredInput(scanner, "Enter ERF number (up to 10 digits): ");
             BigDecimal totalFee = getValidatedMonetaryInput(scanner, "Enter total fee (GBP): ");
-            BigDecimal paidToDate = getValidatedMonetaryInput(scanner, "Enter amount paid to date (GBP): ");
             Date deadlineDate = getValidatedDateInput(scanner, "Enter deadline date (YYYY-MM-DD): ");
             Date completionDate = getOptionalDateInput(scanner, "Enter completion date (YYYY-MM-DD), or leave blank: ");
+            Date startDate = getOptionalDateInput(scanner, "Enter start date (YYYY-MM-DD), or leave blank for today: ");
             Boolean finalised = getValidatedBooleanInput(scanner, "Is the project finalised (true/false): ");
-            int architectId = getValidatedId(scanner, conn, "architect", "Enter architect ID: ");
-            int contractorId = getValidatedId(scanner, conn, "contractor", "Enter contractor ID: ");
-            int customerId = getValidatedId(scanner, conn, "customer", "Enter customer ID: ");
 
-            insertProject(conn, projectName, buildingType, projectAddress, erfNumber, totalFee, paidToDate,
-                    deadlineDate, completionDate, finalised, architectId, contractorId, customerId);
-            System.out.println("New project added successfully.");
+            // the period the new project will occupy its architect and contractor
+            LocalDate start = startDate != null ? startDate.toLocalDate() : LocalDate.now();
+            LocalDate end = completionDate != null ? completionDate.toLocalDate() : deadlineDate.toLocalDate();
+            if (completionDate == null && end.isBefore(LocalDate.now())) {
+                end = LocalDate.now(); // overdue work is still running
+            }
+
+            int architectId = getValidatedId(scanner, "architect", "Enter architect ID: ");
+            if (!finalised) {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    workloadAnalysis.warnIfOverCapacity(conn, WorkloadAnalysis.ARCHITECT, architectId, start, end);
+                }
+            }
+            String postCode = getOptionalInput(scanner, "Enter the project's post code to list the nearest contractors (or leave blank): ");
+            if (!postCode.isEmpty()) {
+                ContractorLocator.getInstance().displayNearest(postCode, 5);
+            }
+            int contractorId = getValidatedId(scanner, "contractor", "Enter contractor ID: ");
+            if (!finalised) {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    workloadAnalysis.warnIfOverCapacity(conn, WorkloadAnalysis.CONTRACTOR, contractorId, start, end);
+                }
+            }
+            int customerId = getValidatedId(scanner, "customer", "Enter customer ID: ");
+
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                insertProject(conn, projectName, buildingType, projectAddress, erfNumber, totalFee,
+                        deadlineDate, completionDate, startDate, finalised, architectId, contractorId, customerId);
+            }
+            System.out.println("New project added successfully. Record any payments for it from the payments menu (option 12).");
         } catch (SQLException e) {
             System.out.println("Database connection error: " + e.getMessage());
         }
@@ -155,18 +185,17 @@ public class AddProject {
      * Method to validate and get an ID from the user.
      *
      * @param scanner   Scanner object to read user input.
-     * @param conn      Connection to the database.
      * @param tableName The name of the table to check the ID in.
      * @param prompt    The prompt to display to the user.
      * @return The validated ID.
      */
-    private int getValidatedId(Scanner scanner, Connection conn, String tableName, String prompt) {
+    private int getValidatedId(Scanner scanner, String tableName, String prompt) {
         while (true) {
             System.out.print(prompt);
             String idInput = scanner.nextLine();
             try {
                 int id = Integer.parseInt(idInput);
-                if (idExists(conn, id, tableName)) {
+                if (idExists(id, tableName)) {
                     return id;
                 } else {
                     System.out.println("ID does not exist in the " + tableName + " table. Please enter a valid ID.");
@@ -178,57 +207,101 @@ public class AddProject {
     }
 
     /**
-     * Method to insert a new project into the database.
+     * Method to insert a new project into the database, starting today.
+     *
+     * @see #insertProject(Connection, String, String, String, String, BigDecimal, Date, Date, Date, Boolean, int,
+     *      int, int)
+     */
+    public int insertProject(Connection conn, String projectName, String buildingType, String projectAddress,
+                             String erfNumber, BigDecimal totalFee, Date deadlineDate,
+                             Date completionDate, Boolean finalised, int architectId, int contractorId, int customerId) throws SQLException {
+        return insertProject(conn, projectName, buildingType, projectAddress, erfNumber, totalFee,
+                deadlineDate, completionDate, null, finalised, architectId, contractorId, customerId);
+    }
+
+    /**
+     * Method to insert a new project into the database. It starts with nothing paid; payments are recorded
+     * with {@link PaymentLedger#recordPayment}, which keeps the paid to date total.
      *
      * @param conn          Connection to the database.
-     * @param projectName   The name of the project.
+     * @param projectName   The name of the project (optional, named after the building type and customer if blank).
      * @param buildingType  The type of building.
      * @param projectAddress The address of the project.
      * @param erfNumber     The ERF number of the project.
      * @param totalFee      The total fee for the project.
-     * @param paidToDate    The amount paid to date.
      * @param deadlineDate  The deadline date for the project.
      * @param completionDate The completion date of the project (optional).
+     * @param startDate     The start date of the project (optional, defaults to today).
      * @param finalised     Whether the project is finalised.
      * @param architectId   The ID of the architect associated with the project.
      * @param contractorId  The ID of the contractor associated with the project.
      * @param customerId    The ID of the customer associated with the project.
+     * @return The project number given to the new project, or -1 if it could not be read back.
      * @throws SQLException If an SQL error occurs during the insertion.
      */
-    private void insertProject(Connection conn, String projectName, String buildingType, String projectAddress,
-                               String erfNumber, BigDecimal totalFee, BigDecimal paidToDate, Date deadlineDate,
-                               Date completionDate, Boolean finalised, int architectId, int contractorId, int customerId) throws SQLException {
+    public int insertProject(Connection conn, String projectName, String buildingType, String projectAddress,
+                             String erfNumber, BigDecimal totalFee, Date deadlineDate,
+                             Date completionDate, Date startDate, Boolean finalised, int architectId, int contractorId,
+                             int customerId) throws SQLException {
         String sql = "INSERT INTO projects (project_name, building_type, project_address, erf_number, total_fee_gbp, paid_to_date_gbp, " +
-                "deadline_date, completion_date, finalised, architect_id, contractor_id, customer_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                "deadline_date, completion_date, start_date, finalised, architect_id, contractor_id, customer_id) " +
+                "VALUES (COALESCE(NULLIF(?, ''), CONCAT(?, ' ', (SELECT last_name FROM customer WHERE id = ?))), " +
+                "?, ?, ?, ?, 0, ?, ?, COALESCE(?, CURDATE()), ?, ?, ?, ?);";
+        boolean autoCommit = conn.getAutoCommit();
+        int projectNumber;
+        Map<String, Object> after = null;
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            // lock the people, so that none of them can be deleted (see PersonStore.delete) until the project is added
+            PersonStore.lockPeople(conn, architectId, contractorId, customerId);
+
+            // names an unnamed project here as well as in the MySQL trigger, as the embedded database has no trigger
             pstmt.setString(1, projectName);
             pstmt.setString(2, buildingType);
-            pstmt.setString(3, projectAddress);
-            pstmt.setString(4, erfNumber);
-            pstmt.setBigDecimal(5, totalFee);
-            pstmt.setBigDecimal(6, paidToDate);
-            pstmt.setDate(7, deadlineDate);
-            pstmt.setDate(8, completionDate);
-            pstmt.setBoolean(9, finalised);
-            pstmt.setInt(10, architectId);
-            pstmt.setInt(11, contractorId);
-            pstmt.setInt(12, customerId);
+            pstmt.setInt(3, customerId);
+            pstmt.setString(4, buildingType);
+            pstmt.setString(5, projectAddress);
+            pstmt.setString(6, erfNumber);
+            pstmt.setBigDecimal(7, totalFee);
+            pstmt.setDate(8, deadlineDate);
+            pstmt.setDate(9, completionDate);
+            pstmt.setDate(10, startDate);
+            pstmt.setBoolean(11, finalised);
+            pstmt.setInt(12, architectId);
+            pstmt.setInt(13, contractorId);
+            pstmt.setInt(14, customerId);
 
             pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                projectNumber = keys.next() ? keys.getInt(1) : -1;
+            }
+            if (projectNumber > 0 && DataChanges.hasListeners()) {
+                after = ProjectSearch.findProjectRow(conn, projectNumber);
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        if (after != null) {
+            DataChanges.publish(conn, DataChanges.PROJECTS, projectNumber, null, after);
         }
+        return projectNumber;
     }
 
     /**
-     * Method to check if an ID exists in a specified table.
+     * Method to check if an ID exists in a specified table, on a connection borrowed just for the check.
      *
-     * @param conn      Connection to the database.
      * @param id        The ID to check.
      * @param tableName The table to check the ID in.
      * @return true if the ID exists, false otherwise.
      */
-    private boolean idExists(Connection conn, int id, String tableName) {
-        String sql = "SELECT 1 FROM " + tableName + " WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private boolean idExists(int id, String tableName) {
+        String sql = "SELECT 1 FROM " + tableName + " WHERE id = ? AND deleted_at IS NULL";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 return rs.next();
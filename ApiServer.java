@@ -0,0 +1,760 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DataTruncation;
+import java.sql.Date;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * The ApiServer class exposes the PoisePMS operations over HTTP with JSON request and response bodies,
+ * so that other tools can query and update projects at the same time as staff use the console menus.
+ *
+ * <p>The server is built on the JDK's {@code com.sun.net.httpserver} package and runs every request on
+ * its own virtual thread, so thousands of clients can be connected at once. Database work is still
+ * limited by the shared connection pool in {@link DatabaseConnection}: requests beyond the pool size
+ * simply wait for a connection rather than opening new ones against MySQL.</p>
+ *
+ * <p>Before it touches the database every request is admitted by a {@link RequestScheduler}, which keeps
+ * expensive listings from starving quick lookups. Requests shed under overload get a {@code 503} response
+ * with a {@code Retry-After} header.</p>
+ *
+ * <p>Endpoints:</p>
+ * <pre>
+ * GET    /projects                  all projects (or ?name=text to search by name); add
+ *                                   &amp;archive=true to include archived projects
+ * GET    /projects/incomplete       projects that are not finalised
+ * GET    /projects/overdue          projects beyond their deadline
+ * GET    /projects/enriched         all projects with architect, contractor and customer names
+ * GET    /projects/filter?...       projects matching any of building_type, min_fee, max_fee,
+ *                                   min_outstanding, max_outstanding, deadline_from, deadline_to,
+ *                                   finalised, architect_id, contractor_id and customer_id
+ * GET    /projects/top/{ranking}?k=N  the top N (default 20, at most 1000) projects for the ranking overdue,
+ *                                   outstanding or fee-by-type
+ * GET    /projects/history?asOf=date[&customer_id=N]  all projects (or a customer's) as they were on a date
+ * GET    /projects/{number}/history[?asOf=date]      every version of a project, or the one on a date
+ * GET    /projects/{number}         one project
+ * POST   /projects                  add a project, with nothing paid to date
+ * PATCH  /projects/{number}         update the given fields of a project
+ * DELETE /projects/{number}         delete a project
+ * POST   /projects/{number}/finalise finalise a project
+ * GET    /projects/{number}/payments the payments made against a project, with its balance
+ * POST   /projects/{number}/payments record a payment (amount_gbp, optional paid_on and reference)
+ * GET    /architects, /contractors, /customers           list all people of that type
+ * GET    /architects/{id} (and the same for the others)  one person
+ * POST   /architects                                     add a person
+ * PUT    /architects/{id}                                update a person
+ * DELETE /architects/{id}                                delete a person
+ * GET    /reports/{name}            a financial report: outstanding-balance, revenue-by-building-type,
+ *                                   revenue-by-month, architect-totals or contractor-totals
+ * GET    /contractors/nearest?postcode=M5+6AH&amp;k=5  the contractors nearest to a post code
+ * GET    /customers/{id}/portfolio  a customer's projects with fee, payment, balance and overdue totals
+ * GET    /customers/{id}/balance    a customer's fee, paid to date and outstanding totals
+ * GET    /workload/{role}           architect or contractor load timelines and peak overlaps
+ * GET    /dashboard                 open, overdue and total project counts and outstanding fees
+ * GET    /metrics                   scheduler queue depth, wait times, connection pool usage, deadline
+ *                                   alert run times and purge throughput and lag
+ * </pre>
+ *
+ * <p>Run with {@code java ApiServer [port]}; the port defaults to 8080.</p>
+ */
+public class ApiServer {
+
+    private final ProjectSearch projectSearch = new ProjectSearch();
+    private final Project project = new Project();
+    private final AddProject addProject = new AddProject();
+    private final Map<String, PersonStore> personStores = new HashMap<>();
+    private final RequestScheduler scheduler = RequestScheduler.fromSystemProperties();
+    private final CustomerPortfolio customerPortfolio = new CustomerPortfolio();
+    private final FinancialReports financialReports = new FinancialReports();
+    private final WorkloadAnalysis workloadAnalysis = new WorkloadAnalysis();
+    private final ProjectHistory projectHistory = ProjectHistory.getInstance();
+    private final PaymentLedger paymentLedger = new PaymentLedger();
+
+    /**
+     * Creates the API server with a store for each of the person tables.
+     */
+    public ApiServer() {
+        personStores.put("architects", new PersonStore("architect"));
+        personStores.put("contractors", new PersonStore("contractor"));
+        personStores.put("customers", new PersonStore("customer"));
+    }
+
+    /**
+     * Starts the API server from the command line.
+     *
+     * @param args Optional port number as the first argument.
+     * @throws IOException If the server cannot bind to the port.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("poise.api.port", 8080);
+        ProjectStatistics.getInstance().start();
+        ProjectReplica.getInstance().startIfEnabled();
+        AuditJournal.getInstance().start();
+        ProjectHistory.getInstance().start();
+        DeadlineAlerts.getInstance().startIfEnabled();
+        PurgeWorker.getInstance().start();
+        new ApiServer().start(port);
+        System.out.println("PoisePMS API listening on port " + port + ".");
+    }
+
+    /**
+     * Starts listening for HTTP requests.
+     *
+     * @param port The port to listen on.
+     * @return The running HttpServer, which can be stopped by the caller.
+     * @throws IOException If the server cannot bind to the port.
+     */
+    public HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/projects", exchange -> handle(exchange, this::handleProjects));
+        for (String resource : personStores.keySet()) {
+            server.createContext("/" + resource, exchange -> handle(exchange, this::handlePeople));
+        }
+        server.createContext("/reports", exchange -> handle(exchange, this::handleReports));
+        server.createContext("/workload", exchange -> handle(exchange, this::handleWorkload));
+        server.createContext("/dashboard", exchange -> handle(exchange,
+                (method, path, ex) -> ProjectStatistics.getInstance().snapshot()));
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor()); // one cheap thread per request
+        server.start();
+        return server;
+    }
+
+    /** The largest {@code k} accepted by {@code /projects/top/{ranking}}. */
+    static final int MAX_TOP_K = 1000;
+
+    /** Returned by a route that has already written its response, so {@link #handle} sends nothing more. */
+    private static final Object RESPONSE_SENT = new Object();
+
+    /**
+     * Handles an API call for one resource type and returns the response body.
+     */
+    @FunctionalInterface
+    interface Route {
+        Object handle(String method, String[] path, HttpExchange exchange) throws SQLException, IOException;
+    }
+
+    /**
+     * Runs a route once the scheduler admits it and writes its result, or a suitable error, back to the client.
+     *
+     * @param exchange The HTTP exchange.
+     * @param route    The route to run.
+     * @throws IOException If the response cannot be written.
+     */
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] path = splitPath(exchange.getRequestURI().getPath());
+            String actor = exchange.getRequestHeaders().getFirst("X-Actor");
+            AuditJournal.setActor(actor != null ? "api:" + actor : "api:" + exchange.getRemoteAddress().getAddress().getHostAddress());
+            Object result = scheduler.run(classify(method, path), () -> route.handle(method, path, exchange));
+            if (result != RESPONSE_SENT) {
+                sendJson(exchange, "POST".equals(method) && path.length == 1 ? 201 : 200, result);
+            }
+        } catch (RequestScheduler.OverloadedException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, e.getMessage());
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (SQLIntegrityConstraintViolationException e) {
+            sendError(exchange, 409, e.getMessage());
+        } catch (SQLDataException | DataTruncation e) {
+            sendError(exchange, 400, "Value out of range: " + e.getMessage()); // e.g. a total that no longer fits its DECIMAL column
+        } catch (SQLTransientConnectionException e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (SQLException e) {
+            sendError(exchange, 500, "Database error: " + e.getMessage());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            sendError(exchange, 500, e.getMessage());
+        } finally {
+            AuditJournal.setActor(null);
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sorts a request into a scheduler cost class. Listings of a whole table, and the name search
+     * (a {@code LIKE '%text%'} that cannot use an index), are expensive, as is a customer's portfolio,
+     * which returns every one of their projects. The dashboard is an in-memory snapshot and is cheap, as
+     * is everything else, which touches a single row by primary key.
+     *
+     * @param method The HTTP method.
+     * @param path   The request path segments.
+     * @return The cost class of the request.
+     */
+    static RequestScheduler.Cost classify(String method, String[] path) {
+        if ("dashboard".equals(path[0])) {
+            return RequestScheduler.Cost.CHEAP;
+        }
+        if ("GET".equals(method) && path.length == 3 && "customers".equals(path[0]) && "portfolio".equals(path[2])) {
+            return RequestScheduler.Cost.EXPENSIVE;
+        }
+        if ("GET".equals(method) && (path.length == 1 || "reports".equals(path[0]) || "workload".equals(path[0]))) {
+            return RequestScheduler.Cost.EXPENSIVE;
+        }
+        if ("GET".equals(method) && path.length == 2 && "projects".equals(path[0])
+                && ("incomplete".equals(path[1]) || "overdue".equals(path[1]) || "enriched".equals(path[1])
+                    || "filter".equals(path[1]) || "history".equals(path[1]))) {
+            return RequestScheduler.Cost.EXPENSIVE;
+        }
+        if ("GET".equals(method) && path.length == 3 && "projects".equals(path[0]) && "top".equals(path[1])) {
+            return RequestScheduler.Cost.EXPENSIVE;
+        }
+        return RequestScheduler.Cost.CHEAP;
+    }
+
+    /**
+     * Handles the /metrics endpoint, which is never queued so that it still answers under overload.
+     *
+     * @param exchange The HTTP exchange.
+     * @throws IOException If the response cannot be written.
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            ConnectionPool pool = DatabaseConnection.getPool();
+            Map<String, Object> poolMetrics = new LinkedHashMap<>();
+            poolMetrics.put("size", pool.getMaxSize());
+            poolMetrics.put("active", pool.getActiveCount());
+            poolMetrics.put("waiting", pool.getWaitingCount());
+
+            Map<String, Object> metrics = new LinkedHashMap<>(scheduler.metrics());
+            metrics.put("connectionPool", poolMetrics);
+            metrics.put("deadlineAlerts", DeadlineAlerts.getInstance().metrics());
+            metrics.put("purge", PurgeWorker.getInstance().metrics());
+            sendJson(exchange, 200, metrics);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Handles the /projects endpoints.
+     */
+    private Object handleProjects(String method, String[] path, HttpExchange exchange) throws SQLException, IOException {
+        if (path.length == 1) {
+            if ("GET".equals(method)) {
+                Map<String, String> params = queryParams(exchange);
+                String name = params.get("name");
+                boolean archive = Boolean.parseBoolean(params.get("archive"));
+                return name == null ? projectSearch.findAllProjects(archive) : projectSearch.findProjectsByName(name, archive);
+            }
+            if ("POST".equals(method)) {
+                return createProject(Json.parseObject(readBody(exchange)));
+            }
+            throw new ApiException(405, "Method not allowed.");
+        }
+
+        if (path.length == 2 && "GET".equals(method) && "incomplete".equals(path[1])) {
+            return projectSearch.findIncompleteProjects();
+        }
+        if (path.length == 2 && "GET".equals(method) && "overdue".equals(path[1])) {
+            return projectSearch.findBeyondDeadlineProjects();
+        }
+        if (path.length == 2 && "GET".equals(method) && "filter".equals(path[1])) {
+            return projectSearch.findProjects(ProjectFilter.fromValues(queryParams(exchange)));
+        }
+        if (path.length == 3 && "GET".equals(method) && "top".equals(path[1])) {
+            String k = queryParams(exchange).get("k");
+            int limit = k == null ? 20 : Integer.parseInt(k);
+            if (limit > MAX_TOP_K) {
+                throw new IllegalArgumentException("k must be at most " + MAX_TOP_K);
+            }
+            switch (path[2]) {
+                case "overdue":
+                    return projectSearch.findMostOverdue(limit);
+                case "outstanding":
+                    return projectSearch.findLargestOutstanding(limit);
+                case "fee-by-type":
+                    return projectSearch.findBiggestFeesByBuildingType(limit);
+                default:
+                    throw new ApiException(404, "Unknown ranking: " + path[2]);
+            }
+        }
+        if (path.length == 2 && "GET".equals(method) && "history".equals(path[1])) {
+            Map<String, String> params = queryParams(exchange);
+            if (params.get("asOf") == null) {
+                throw new ApiException(400, "asOf (YYYY-MM-DD) is required.");
+            }
+            String customerId = params.get("customer_id");
+            return projectHistory.findAllAsOf(parseDate(params.get("asOf")),
+                    customerId == null ? null : Integer.valueOf(customerId));
+        }
+        if (path.length == 2 && "GET".equals(method) && "enriched".equals(path[1])) {
+            streamJsonArray(exchange, projectSearch::streamProjectsWithNames);
+            return RESPONSE_SENT;
+        }
+
+        int projectNumber = parseId(path[1]);
+        if (path.length == 3 && "finalise".equals(path[2]) && "POST".equals(method)) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                requireFound(project.finaliseProject(conn, projectNumber));
+                return ProjectSearch.findProjectRow(conn, projectNumber);
+            }
+        }
+        if (path.length == 3 && "payments".equals(path[2])) {
+            return handlePayments(method, projectNumber, exchange);
+        }
+        if (path.length == 3 && "history".equals(path[2]) && "GET".equals(method)) {
+            String asOf = queryParams(exchange).get("asOf");
+            if (asOf == null) {
+                return projectHistory.findVersions(projectNumber);
+            }
+            Map<String, Object> version = projectHistory.findAsOf(projectNumber, parseDate(asOf));
+            if (version == null) {
+                throw new ApiException(404, "No version of that project on that date.");
+            }
+            return version;
+        }
+        if (path.length != 2) {
+            throw new ApiException(404, "Not found.");
+        }
+
+        switch (method) {
+            case "GET":
+                Map<String, Object> row = projectSearch.findProjectByNumber(projectNumber);
+                if (row == null) {
+                    throw new ApiException(404, "Project number not found.");
+                }
+                return row;
+            case "PATCH":
+            case "PUT":
+                return updateProject(projectNumber, Json.parseObject(readBody(exchange)));
+            case "DELETE":
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    requireFound(project.deleteProject(conn, projectNumber));
+                    return Map.of("deleted", projectNumber);
+                }
+            default:
+                throw new ApiException(405, "Method not allowed.");
+        }
+    }
+
+    /**
+     * Handles the /projects/{number}/payments endpoint.
+     */
+    private Object handlePayments(String method, int projectNumber, HttpExchange exchange) throws SQLException, IOException {
+        if ("POST".equals(method)) {
+            Map<String, Object> body = Json.parseObject(readBody(exchange));
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                long paymentId = paymentLedger.recordPayment(conn, projectNumber, requiredDecimal(body, "amount_gbp"),
+                        optionalDate(body, "paid_on"), optionalString(body, "reference"));
+                if (paymentId < 0) {
+                    throw new ApiException(404, "Project number not found.");
+                }
+            }
+        } else if (!"GET".equals(method)) {
+            throw new ApiException(405, "Method not allowed.");
+        }
+        Map<String, Object> balance = paymentLedger.getProjectBalance(projectNumber);
+        if (balance == null) {
+            throw new ApiException(404, "Project number not found.");
+        }
+        balance.put("payments", paymentLedger.findPayments(projectNumber));
+        return balance;
+    }
+
+    /**
+     * Adds a project from a JSON body keyed by column name.
+     */
+    private Object createProject(Map<String, Object> body) throws SQLException {
+        if (body.containsKey("paid_to_date_gbp")) {
+            throw new ApiException(400, "paid_to_date_gbp is the total of the project's payments; add the project, "
+                    + "then record a payment with POST /projects/{number}/payments.");
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int projectNumber = addProject.insertProject(conn,
+                    optionalString(body, "project_name"),
+                    requiredString(body, "building_type"),
+                    requiredString(body, "project_address"),
+                    requiredString(body, "erf_number"),
+                    requiredDecimal(body, "total_fee_gbp"),
+                    Date.valueOf(requiredString(body, "deadline_date")),
+                    optionalDate(body, "completion_date"),
+                    optionalDate(body, "start_date"),
+                    Boolean.parseBoolean(requiredString(body, "finalised")),
+                    requiredInt(body, "architect_id"),
+                    requiredInt(body, "contractor_id"),
+                    requiredInt(body, "customer_id"));
+            return ProjectSearch.findProjectRow(conn, projectNumber);
+        }
+    }
+
+    /**
+     * Updates the fields of a project that are present in a JSON body keyed by column name.
+     */
+    private Object updateProject(int projectNumber, Map<String, Object> body) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (ProjectSearch.findProjectRow(conn, projectNumber) == null) {
+                throw new ApiException(404, "Project number not found.");
+            }
+            if (body.containsKey("paid_to_date_gbp")) {
+                throw new ApiException(400, "paid_to_date_gbp is the total of the project's payments; record a payment "
+                        + "with POST /projects/" + projectNumber + "/payments instead.");
+            }
+            Object finalised = body.get("finalised");
+            project.updateProjectDetails(conn, projectNumber,
+                    optionalString(body, "project_name"),
+                    optionalString(body, "building_type"),
+                    optionalString(body, "project_address"),
+                    optionalString(body, "erf_number"),
+                    optionalDecimal(body, "total_fee_gbp"),
+                    optionalDate(body, "deadline_date"),
+                    optionalDate(body, "completion_date"),
+                    finalised == null ? null : finalised.toString(),
+                    optionalInt(body, "architect_id"),
+                    optionalInt(body, "contractor_id"),
+                    optionalInt(body, "customer_id"));
+            return ProjectSearch.findProjectRow(conn, projectNumber);
+        }
+    }
+
+    /**
+     * Handles the /workload endpoints.
+     */
+    private Object handleWorkload(String method, String[] path, HttpExchange exchange) throws SQLException {
+        if (!"GET".equals(method) || path.length != 2
+                || !(WorkloadAnalysis.ARCHITECT + "s").equals(path[1]) && !(WorkloadAnalysis.CONTRACTOR + "s").equals(path[1])) {
+            throw new ApiException(404, "Use /workload/architects or /workload/contractors.");
+        }
+        String role = path[1].substring(0, path[1].length() - 1);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            List<Map<String, Object>> people = new ArrayList<>();
+            for (Map.Entry<Integer, WorkloadAnalysis.Timeline> entry : workloadAnalysis.loadTimelines(conn, role).entrySet()) {
+                Map<String, Object> person = new LinkedHashMap<>();
+                person.put("id", entry.getKey());
+                person.put("open_projects", entry.getValue().getProjects());
+                person.put("peak", entry.getValue().getPeak());
+                person.put("peak_date", entry.getValue().getPeakDate());
+                person.put("timeline", entry.getValue().changePoints());
+                people.add(person);
+            }
+            return people;
+        }
+    }
+
+    /**
+     * Handles the /reports endpoints.
+     */
+    private Object handleReports(String method, String[] path, HttpExchange exchange) throws SQLException {
+        if (!"GET".equals(method)) {
+            throw new ApiException(405, "Method not allowed.");
+        }
+        if (path.length != 2) {
+            throw new ApiException(404, "Not found.");
+        }
+        FinancialReports.Report report = FinancialReports.Report.fromKey(path[1]);
+        if (report == null) {
+            throw new ApiException(404, "Unknown report.");
+        }
+        return financialReports.getReport(report).toMap();
+    }
+
+    /**
+     * Handles the /architects, /contractors and /customers endpoints.
+     */
+    private Object handlePeople(String method, String[] path, HttpExchange exchange) throws SQLException, IOException {
+        PersonStore store = personStores.get(path[0]);
+        if (path.length == 3 && "customers".equals(path[0]) && "portfolio".equals(path[2]) && "GET".equals(method)) {
+            Map<String, Object> portfolio = customerPortfolio.getPortfolio(parseId(path[1]));
+            if (portfolio == null) {
+                throw new ApiException(404, "Customer ID not found.");
+            }
+            return portfolio;
+        }
+        if (path.length == 3 && "customers".equals(path[0]) && "balance".equals(path[2]) && "GET".equals(method)) {
+            Map<String, Object> balance = paymentLedger.getCustomerBalance(parseId(path[1]));
+            if (balance == null) {
+                throw new ApiException(404, "That customer has no projects.");
+            }
+            return balance;
+        }
+        if (path.length == 2 && "contractors".equals(path[0]) && "nearest".equals(path[1]) && "GET".equals(method)) {
+            Map<String, String> params = queryParams(exchange);
+            int k = params.containsKey("k") ? Integer.parseInt(params.get("k")) : 5;
+            List<Map<String, Object>> nearest = ContractorLocator.getInstance().findNearest(params.get("postcode"), k);
+            if (nearest == null) {
+                throw new ApiException(404, "Post code area not recognised.");
+            }
+            return nearest;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (path.length == 1) {
+                if ("GET".equals(method)) {
+                    return store.findAll(conn);
+                }
+                if ("POST".equals(method)) {
+                    int id = store.insert(conn, personDetails(Json.parseObject(readBody(exchange))));
+                    if (id < 0) {
+                        throw new ApiException(500, "The person could not be added.");
+                    }
+                    return store.findById(conn, id);
+                }
+                throw new ApiException(405, "Method not allowed.");
+            }
+            if (path.length != 2) {
+                throw new ApiException(404, "Not found.");
+            }
+
+            int id = parseId(path[1]);
+            switch (method) {
+                case "GET":
+                    Map<String, Object> row = store.findById(conn, id);
+                    if (row == null) {
+                        throw new ApiException(404, "ID not found.");
+                    }
+                    return row;
+                case "PUT":
+                    requireFound(store.update(conn, id, personDetails(Json.parseObject(readBody(exchange)))));
+                    return store.findById(conn, id);
+                case "DELETE":
+                    requireFound(store.delete(conn, id));
+                    return Map.of("deleted", id);
+                default:
+                    throw new ApiException(405, "Method not allowed.");
+            }
+        }
+    }
+
+    // ---- request helpers ----
+
+    private static String[] splitPath(String path) {
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return trimmed.split("/+");
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "Not found.");
+        }
+    }
+
+    private static void requireFound(int rowsAffected) {
+        if (rowsAffected == 0) {
+            throw new ApiException(404, "Not found.");
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Parses a date parameter.
+     *
+     * @param text The date as YYYY-MM-DD.
+     * @return The date.
+     * @throws IllegalArgumentException If the text is not a valid date (reported as 400).
+     */
+    static LocalDate parseDate(String text) {
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date, expected YYYY-MM-DD: " + text);
+        }
+    }
+
+    /**
+     * Parses the query string of a request into a map of decoded names and values.
+     *
+     * @param exchange The HTTP exchange.
+     * @return The query parameters.
+     */
+    static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String optionalString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        return value == null ? null : value.toString();
+    }
+
+    private static String requiredString(Map<String, Object> body, String field) {
+        String value = optionalString(body, field);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Field '" + field + "' is required.");
+        }
+        return value;
+    }
+
+    /**
+     * Converts a JSON person body into a details map, checking that the columns the person tables
+     * require are present.
+     *
+     * @throws IllegalArgumentException If a required column is missing or empty (reported as 400).
+     */
+    private static Map<String, String> personDetails(Map<String, Object> body) {
+        for (String field : PersonStore.REQUIRED_COLUMNS) {
+            requiredString(body, field);
+        }
+        return PersonStore.detailsFromColumns(body);
+    }
+
+    private static BigDecimal optionalDecimal(Map<String, Object> body, String field) {
+        String value = optionalString(body, field);
+        return value == null ? null : new BigDecimal(value);
+    }
+
+    private static BigDecimal requiredDecimal(Map<String, Object> body, String field) {
+        return new BigDecimal(requiredString(body, field));
+    }
+
+    private static Date optionalDate(Map<String, Object> body, String field) {
+        String value = optionalString(body, field);
+        return value == null || value.isEmpty() ? null : Date.valueOf(value);
+    }
+
+    private static int optionalInt(Map<String, Object> body, String field) {
+        String value = optionalString(body, field);
+        return value == null ? -1 : new BigDecimal(value).intValueExact(); // -1 leaves the ID unchanged
+    }
+
+    private static int requiredInt(Map<String, Object> body, String field) {
+        return new BigDecimal(requiredString(body, field)).intValueExact();
+    }
+
+    // ---- response helpers ----
+
+    /**
+     * Writes rows to the response as a JSON array while they are read, without collecting them first, so
+     * memory use does not grow with the number of rows. The 200 status is only sent with the first row, so
+     * an error before then still reaches the client as an error response.
+     *
+     * @param exchange The exchange to respond to.
+     * @param source   Reads the rows, passing each one to the consumer it is given.
+     * @throws SQLException If the rows cannot be read.
+     * @throws IOException  If the response cannot be written.
+     */
+    static void streamJsonArray(HttpExchange exchange, RowSource source) throws SQLException, IOException {
+        OutputStream[] out = new OutputStream[1];
+        StringBuilder json = new StringBuilder();
+        try {
+            source.read(row -> {
+                try {
+                    if (out[0] == null) {
+                        out[0] = startJsonArray(exchange);
+                    } else {
+                        out[0].write(',');
+                    }
+                    json.setLength(0);
+                    Json.write(json, row);
+                    out[0].write(json.toString().getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (out[0] == null) {
+                out[0] = startJsonArray(exchange);
+            }
+            out[0].write(']');
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (out[0] != null) {
+                out[0].close();
+            }
+        }
+    }
+
+    private static OutputStream startJsonArray(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+        out.write('[');
+        return out;
+    }
+
+    /**
+     * Reads rows for {@link #streamJsonArray}, such as {@link ProjectSearch#streamProjectsWithNames}.
+     */
+    @FunctionalInterface
+    interface RowSource {
+        void read(Consumer<Map<String, Object>> consumer) throws SQLException;
+    }
+
+    /**
+     * Writes a JSON response.
+     *
+     * @param exchange The HTTP exchange.
+     * @param status   The HTTP status code.
+     * @param body     The value to send as JSON.
+     * @throws IOException If the response cannot be written.
+     */
+    static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes a JSON error response of the form {@code {"error": "..."}}.
+     *
+     * @param exchange The HTTP exchange.
+     * @param status   The HTTP status code.
+     * @param message  The error message.
+     * @throws IOException If the response cannot be written.
+     */
+    static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return; // a streamed response has already started; the client sees it cut short
+        }
+        sendJson(exchange, status, Map.of("error", message == null ? "Unknown error." : message));
+    }
+
+    /**
+     * Signals that a request should be answered with a particular HTTP error status.
+     */
+    static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
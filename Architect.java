@@ -13,6 +13,9 @@ import java.util.Scanner;
  */
 public class Architect {
 
+    /** Performs the database operations for the architect table. */
+    private final PersonStore store = new PersonStore("architect");
+
     /**
      * Gathers architect details from user input.
      *
@@ -39,36 +42,15 @@ public class Architect {
     }
 
     /**
-     * Sets architect parameters in a PreparedStatement.
-     *
-     * @param pstmt   The PreparedStatement to set the parameters in.
-     * @param details A map containing the architect details.
-     * @throws SQLException If an SQL error occurs.
-     */
-    private void setArchitectParameters(PreparedStatement pstmt, Map<String, String> details) throws SQLException {
-        pstmt.setString(1, details.get("firstName"));
-        pstmt.setString(2, details.get("lastName"));
-        pstmt.setString(3, details.get("phoneNumber"));
-        pstmt.setString(4, details.get("email"));
-        pstmt.setString(5, details.get("address"));
-        pstmt.setString(6, details.get("postCode"));
-    }
-
-    /**
-     * Checks if an architect ID exists in the database.
+     * Checks if an architect ID exists in the database, on a connection borrowed just for the check.
      *
-     * @param conn        Connection to the database.
      * @param architectId The architect ID to check.
      * @return true if the architect ID exists, false otherwise.
      * @throws SQLException If an SQL error occurs.
      */
-    private boolean doesArchitectIdExist(Connection conn, int architectId) throws SQLException {
-        String checkSql = "SELECT 1 FROM architect WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(checkSql)) {
-            pstmt.setInt(1, architectId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
+    private boolean doesArchitectIdExist(int architectId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return store.exists(conn, architectId);
         }
     }
 
@@ -80,15 +62,9 @@ public class Architect {
     public void addNewArchitect(Scanner scanner) {
         Map<String, String> details = gatherArchitectDetails(scanner, false);
 
-        String sql = "INSERT INTO architect (first_name, last_name, phone_number, email, address, post_code) VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            setArchitectParameters(pstmt, details);
-
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
+        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+            int newId = store.insert(conn, details);
+            if (newId > 0) {
                 System.out.println("A new architect has been added successfully.");
                 System.out.println();
             } else {
@@ -107,7 +83,8 @@ public class Architect {
      * @param scanner Scanner object to read user input.
      */
     public void updateArchitect(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+        try {
+            // no connection is held while waiting for input; the check and the update borrow their own
             while (true) {
                 System.out.print("Enter Architect ID to update (or 0 to return to the architect menu): ");
                 int architectId = scanner.nextInt();
@@ -119,7 +96,7 @@ public class Architect {
                     return;
                 }
 
-                if (!doesArchitectIdExist(conn, architectId)) {
+                if (!doesArchitectIdExist(architectId)) {
                     System.out.println("ID not found. Try again.");
                     System.out.println();
                     continue;
@@ -127,13 +104,11 @@ public class Architect {
 
                 Map<String, String> details = gatherArchitectDetails(scanner, true);
 
-                String sql = "UPDATE architect SET first_name = ?, last_name = ?, phone_number = ?, email = ?, address = ?, post_code = ? WHERE id = ?";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    setArchitectParameters(pstmt, details);
-                    pstmt.setInt(7, architectId);
-
-                    int rowsAffected = pstmt.executeUpdate();
+                try {
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = store.update(conn, architectId, details);
+                    }
                     if (rowsAffected > 0) {
                         System.out.println("Architect has been updated successfully.");
                         System.out.println();
@@ -159,7 +134,8 @@ public class Architect {
      * @param scanner Scanner object to read user input.
      */
     public void deleteArchitect(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+        try {
+            // no connection is held while waiting for input; the check and the delete borrow their own
             while (true) {
                 System.out.print("Enter Architect ID to delete (or 0 to return to the architect menu): ");
                 int architectId = scanner.nextInt();
@@ -172,19 +148,18 @@ public class Architect {
                 }
 
                 // Check if the Architect ID exists
-                if (!doesArchitectIdExist(conn, architectId)) {
+                if (!doesArchitectIdExist(architectId)) {
                     System.out.println("ID not found. Try again or enter 0 to return to the architect menu.");
                     System.out.println();
                     continue; // Continue the loop to prompt the user again
                 }
 
                 // Delete the Architect
-                String sql = "DELETE FROM architect WHERE id = ?";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setInt(1, architectId);
-
-                    int rowsAffected = pstmt.executeUpdate();
+                try {
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = store.delete(conn, architectId);
+                    }
                     if (rowsAffected > 0) {
                         System.out.println("Architect has been deleted successfully.");
                         System.out.println();
@@ -211,7 +186,7 @@ public class Architect {
      * @param id The ID of the architect to search for.
      */
     public void searchArchitectById(String id) {
-        String query = "SELECT * FROM architect WHERE id = ?";
+        String query = "SELECT * FROM architect WHERE id = ? AND deleted_at IS NULL";
         try (Connection connection = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
              PreparedStatement statement = connection.prepareStatement(query)) {
 
@@ -235,7 +210,7 @@ public class Architect {
      * Lists all architects in the database.
      */
     public void listAllArchitects() {
-        String query = "SELECT * FROM architect";
+        String query = "SELECT * FROM architect WHERE deleted_at IS NULL";
         try (Connection connection = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
              PreparedStatement statement = connection.prepareStatement(query);
              ResultSet resultSet = statement.executeQuery()) {
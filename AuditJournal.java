@@ -0,0 +1,332 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The AuditJournal class records every change made to projects, architects, contractors and customers,
+ * with who made it and the row before and after, in an append-only log file.
+ *
+ * <p>Each change published through {@link DataChanges} becomes one JSON line in the journal
+ * ({@code audit.log}, set with {@code poise.audit.file}). Writing to the journal costs the changing thread
+ * only the time to encode the line and queue it: a single writer thread appends everything queued, then
+ * makes the whole batch durable with one {@code fsync}, so many changes share the cost of each sync (group
+ * commit). With {@code -Dpoise.audit.durable=true} each change instead waits until its batch has been
+ * synced, which is slower but means no acknowledged change can be missing from the journal after a crash.
+ * If the journal cannot be written the writer stops; after that a durable change fails with the error, and
+ * otherwise changes are no longer recorded.</p>
+ *
+ * <p>The actor recorded with each change is set per thread with {@link #setActor(String)} (for example by
+ * the HTTP API from the {@code X-Actor} header) and defaults to the operating system user.</p>
+ *
+ * <p>Run {@code java AuditJournal [--project N | --table name --key N] [--from time] [--to time]} to list
+ * journal entries, where times are ISO local date-times such as {@code 2024-05-01T09:00}.</p>
+ */
+public class AuditJournal implements DataChangeListener {
+
+    private static final AuditJournal INSTANCE = new AuditJournal(
+            Paths.get(System.getProperty("poise.audit.file", "audit.log")),
+            Boolean.getBoolean("poise.audit.durable"));
+
+    private static final ThreadLocal<String> ACTOR = new ThreadLocal<>();
+
+    private final Path file;
+    private final boolean durable;
+
+    /** Entries waiting for the writer; guarded by {@code this}. */
+    private List<String> pending = new ArrayList<>();
+    private long lastQueued;
+    private long lastSynced;
+    private boolean started;
+    private IOException failure;
+
+    AuditJournal(Path file, boolean durable) {
+        this.file = file;
+        this.durable = durable;
+    }
+
+    /**
+     * Returns the single journal.
+     *
+     * @return The journal.
+     */
+    public static AuditJournal getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets who is making changes on the current thread.
+     *
+     * @param actor A user name, or null to go back to the default.
+     */
+    public static void setActor(String actor) {
+        if (actor == null) {
+            ACTOR.remove();
+        } else {
+            ACTOR.set(actor);
+        }
+    }
+
+    /**
+     * Returns who is making changes on the current thread.
+     *
+     * @return The actor.
+     */
+    public static String getActor() {
+        String actor = ACTOR.get();
+        return actor != null ? actor : System.getProperty("user.name", "unknown");
+    }
+
+    /**
+     * Starts listening for changes and starts the writer thread. Calling this more than once has no further
+     * effect.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        Thread writer = new Thread(this::writeLoop, "audit-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::awaitWritten, "audit-journal-flush"));
+        DataChanges.register(this);
+    }
+
+    /**
+     * Queues a change for the writer and, in durable mode, waits until it has been synced. Once the writer
+     * has failed nothing more is queued: in durable mode the change fails with the writer's error, otherwise
+     * the entry is dropped, as the writer has already reported that the journal stopped.
+     *
+     * @throws SQLException In durable mode, if the journal has stopped and the change could not be recorded.
+     */
+    @Override
+    public void onChange(Connection conn, String table, int key, Map<String, Object> before, Map<String, Object> after)
+            throws SQLException {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("time", Instant.now().toString());
+        entry.put("actor", getActor());
+        entry.put("table", table);
+        entry.put("key", key);
+        entry.put("op", before == null ? "insert" : after == null ? "delete" : "update");
+        entry.put("before", before);
+        entry.put("after", after);
+        String line = Json.write(entry) + "\n";
+
+        long sequence;
+        synchronized (this) {
+            if (failure != null) {
+                if (durable) {
+                    throw stopped();
+                }
+                return;
+            }
+            pending.add(line);
+            sequence = ++lastQueued;
+            notifyAll(); // wakes the writer
+        }
+        if (durable && !awaitSynced(sequence)) {
+            throw stopped();
+        }
+    }
+
+    private synchronized SQLException stopped() {
+        return new SQLException("The change was made but the audit journal has stopped: " + failure.getMessage(), failure);
+    }
+
+    /**
+     * Waits until every entry queued so far has been written and synced.
+     */
+    public void awaitWritten() {
+        long sequence;
+        synchronized (this) {
+            sequence = lastQueued;
+        }
+        awaitSynced(sequence);
+    }
+
+    /**
+     * Waits until the entries up to a sequence number have been synced, or the writer has failed.
+     *
+     * @return true if they were synced, false if the writer failed first.
+     */
+    private synchronized boolean awaitSynced(long sequence) {
+        boolean interrupted = false;
+        while (lastSynced < sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return lastSynced >= sequence;
+    }
+
+    /**
+     * Runs on the writer thread: takes everything queued, appends it, syncs once and repeats.
+     */
+    private void writeLoop() {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (true) {
+                List<String> batch;
+                long batchEnd;
+                synchronized (this) {
+                    while (pending.isEmpty()) {
+                        wait();
+                    }
+                    batch = pending;
+                    batchEnd = lastQueued;
+                    pending = new ArrayList<>();
+                }
+
+                StringBuilder text = new StringBuilder();
+                for (String line : batch) {
+                    text.append(line);
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false); // one sync for the whole batch
+
+                synchronized (this) {
+                    lastSynced = batchEnd;
+                    notifyAll(); // releases durable writers and awaitWritten
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Audit journal stopped: " + e.getMessage());
+            synchronized (this) {
+                failure = e;
+                pending = new ArrayList<>(); // nothing more will be written
+                notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the journal entries that match the given criteria.
+     *
+     * @param file  The journal file.
+     * @param table The table, or null for any.
+     * @param key   The primary key, or null for any.
+     * @param from  The earliest time, or null.
+     * @param to    The latest time, or null.
+     * @return The matching entries, oldest first.
+     * @throws IOException If the journal cannot be read.
+     */
+    public static List<Map<String, Object>> query(Path file, String table, Integer key, Instant from, Instant to)
+            throws IOException {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> entry;
+                try {
+                    entry = Json.parseObject(line);
+                } catch (IllegalArgumentException e) {
+                    continue; // a line cut short by a crash
+                }
+                Instant time = Instant.parse((String) entry.get("time"));
+                if ((table != null && !table.equalsIgnoreCase((String) entry.get("table")))
+                        || (key != null && ((Number) entry.get("key")).intValue() != key)
+                        || (from != null && time.isBefore(from))
+                        || (to != null && time.isAfter(to))) {
+                    continue;
+                }
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Lists journal entries.
+     *
+     * @param args Optionally {@code --project N}, {@code --table name}, {@code --key N}, {@code --from time}
+     *             and {@code --to time}, plus {@code --file path}.
+     * @throws IOException If the journal cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = INSTANCE.file;
+        String table = null;
+        Integer key = null;
+        Instant from = null;
+        Instant to = null;
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--project":
+                        table = DataChanges.PROJECTS;
+                        key = Integer.valueOf(args[i + 1]);
+                        break;
+                    case "--table":
+                        table = args[i + 1];
+                        break;
+                    case "--key":
+                        key = Integer.valueOf(args[i + 1]);
+                        break;
+                    case "--from":
+                        from = localTime(args[i + 1]);
+                        break;
+                    case "--to":
+                        to = localTime(args[i + 1]);
+                        break;
+                    case "--file":
+                        file = Paths.get(args[i + 1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException("Missing value for " + args[args.length - 1]);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: java AuditJournal [--project N | --table name --key N] [--from time] [--to time] [--file path]");
+            return;
+        }
+
+        List<Map<String, Object>> entries = query(file, table, key, from, to);
+        for (Map<String, Object> entry : entries) {
+            System.out.printf("%s | %s | %s %s %s%n", entry.get("time"), entry.get("actor"), entry.get("op"),
+                    entry.get("table"), entry.get("key"));
+            if (entry.get("before") != null) {
+                System.out.println("    before: " + Json.write(entry.get("before")));
+            }
+            if (entry.get("after") != null) {
+                System.out.println("    after:  " + Json.write(entry.get("after")));
+            }
+        }
+        System.out.println(entries.size() + " entries.");
+    }
+
+    private static Instant localTime(String text) {
+        return LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,435 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ColumnarSnapshot class copies the Projects table into a compact column-oriented file, so analytical
+ * questions (fees by month, overdue rates by building type) can be answered offline without loading the
+ * production database.
+ *
+ * <p>Run {@code java ColumnarSnapshot write [file]} to take a snapshot (default {@code projects.pmsc}) and
+ * {@code java ColumnarSnapshot analyse [file]} to run the reports on it; analysing never connects to MySQL.</p>
+ *
+ * <p>The file holds each column as a fixed-width array of primitives: money in pence as longs, dates as
+ * days since 1970-01-01 as ints (with {@link #NULL_DAY} for a missing date), IDs as ints and the finalised
+ * flag as a byte. Building types are dictionary-encoded: the distinct names are stored once and the column
+ * holds a short code per row. {@link #open(Path)} memory-maps the file and reads values straight from the
+ * mapped columns, so scans do no parsing and create no objects per row.</p>
+ *
+ * <pre>
+ * header     int magic, int version, int rows, int columns, long created (epoch millis)
+ * directory  long offset of each column, in the order of {@link #COLUMNS}
+ * dictionary int count, then each building type as a short length and UTF-8 bytes
+ * columns    each column's values, starting on an 8 byte boundary
+ * </pre>
+ */
+public class ColumnarSnapshot {
+
+    /** The columns stored, in file order. */
+    static final String[] COLUMNS = {
+            "project_number", "total_fee_pence", "paid_to_date_pence", "deadline_day", "completion_day",
+            "start_day", "finalised", "architect_id", "contractor_id", "customer_id", "building_type"
+    };
+    private static final int[] WIDTHS = {4, 8, 8, 4, 4, 4, 1, 4, 4, 4, 2};
+
+    static final int PROJECT_NUMBER = 0;
+    static final int TOTAL_FEE = 1;
+    static final int PAID_TO_DATE = 2;
+    static final int DEADLINE = 3;
+    static final int COMPLETION = 4;
+    static final int START = 5;
+    static final int FINALISED = 6;
+    static final int ARCHITECT_ID = 7;
+    static final int CONTRACTOR_ID = 8;
+    static final int CUSTOMER_ID = 9;
+    static final int BUILDING_TYPE = 10;
+
+    /** Stored in a date column when the date is missing. */
+    public static final int NULL_DAY = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x504D5343; // "PMSC"
+    private static final int VERSION = 1;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Writes a snapshot or analyses one.
+     *
+     * @param args {@code write [file]} or {@code analyse [file]}.
+     * @throws Exception If the snapshot cannot be written or read.
+     */
+    public static void main(String[] args) throws Exception {
+        Path file = Paths.get(args.length > 1 ? args[1] : "projects.pmsc");
+        if (args.length >= 1 && "write".equals(args[0])) {
+            long start = System.nanoTime();
+            int rows = write(file);
+            System.out.printf("Wrote %,d projects to %s (%,d bytes) in %d ms%n",
+                    rows, file, Files.size(file), (System.nanoTime() - start) / 1_000_000);
+        } else if (args.length >= 1 && "analyse".equals(args[0])) {
+            open(file).printReports(LocalDate.now());
+        } else {
+            System.out.println("Usage: java ColumnarSnapshot write|analyse [file]");
+        }
+    }
+
+    // ------------------------------------------------------------------ writing
+
+    /**
+     * Copies the Projects table into a snapshot file, replacing the file only once it is complete.
+     *
+     * @param file The snapshot file.
+     * @return The number of projects written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If the file cannot be written.
+     */
+    public static int write(Path file) throws SQLException, IOException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement statement = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(DatabaseConnection.getStorage().getStreamingFetchSize());
+            try (ResultSet rs = statement.executeQuery("SELECT project_number, total_fee_gbp, paid_to_date_gbp, "
+                    + "deadline_date, completion_date, start_date, finalised, architect_id, contractor_id, customer_id, "
+                    + "building_type FROM Projects WHERE deleted_at IS NULL ORDER BY project_number")) {
+                return write(rs, file);
+            }
+        }
+    }
+
+    /**
+     * Writes the project rows of a result set to a snapshot file.
+     *
+     * @param rs   The project rows.
+     * @param file The snapshot file.
+     * @return The number of projects written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If the file cannot be written.
+     */
+    static int write(ResultSet rs, Path file) throws SQLException, IOException {
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS.length];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = ByteBuffer.allocate(WIDTHS[c] * 1024).order(ORDER);
+        }
+        Map<String, Short> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int rows = 0;
+
+        while (rs.next()) {
+            ensureSpace(columns);
+            columns[PROJECT_NUMBER].putInt(rs.getInt("project_number"));
+            columns[TOTAL_FEE].putLong(pence(rs.getBigDecimal("total_fee_gbp")));
+            columns[PAID_TO_DATE].putLong(pence(rs.getBigDecimal("paid_to_date_gbp")));
+            columns[DEADLINE].putInt(epochDay(rs.getDate("deadline_date")));
+            columns[COMPLETION].putInt(epochDay(rs.getDate("completion_date")));
+            columns[START].putInt(epochDay(rs.getDate("start_date")));
+            columns[FINALISED].put((byte) (rs.getBoolean("finalised") ? 1 : 0));
+            columns[ARCHITECT_ID].putInt(rs.getInt("architect_id"));
+            columns[CONTRACTOR_ID].putInt(rs.getInt("contractor_id"));
+            columns[CUSTOMER_ID].putInt(rs.getInt("customer_id"));
+
+            String buildingType = rs.getString("building_type");
+            Short code = codes.get(buildingType);
+            if (code == null) {
+                if (dictionary.size() == Short.MAX_VALUE) {
+                    throw new IOException("Too many distinct building types for a snapshot");
+                }
+                code = (short) dictionary.size();
+                codes.put(buildingType, code);
+                dictionary.add(buildingType);
+            }
+            columns[BUILDING_TYPE].putShort(code);
+            rows++;
+        }
+
+        ByteBuffer dictionaryBytes = encodeDictionary(dictionary);
+        ByteBuffer header = ByteBuffer.allocate(24 + 8 * COLUMNS.length).order(ORDER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(COLUMNS.length).putLong(System.currentTimeMillis());
+        long offset = align(header.capacity() + dictionaryBytes.remaining());
+        for (ByteBuffer column : columns) {
+            header.putLong(offset);
+            offset = align(offset + column.position());
+        }
+        header.flip();
+
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            writeFully(channel, dictionaryBytes);
+            for (ByteBuffer column : columns) {
+                channel.position(align(channel.position()));
+                column.flip();
+                writeFully(channel, column);
+            }
+            channel.force(true);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    /** Doubles any column buffer that has no room for another value. */
+    private static void ensureSpace(ByteBuffer[] columns) {
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c].remaining() < WIDTHS[c]) {
+                ByteBuffer larger = ByteBuffer.allocate(columns[c].capacity() * 2).order(ORDER);
+                columns[c].flip();
+                columns[c] = larger.put(columns[c]);
+            }
+        }
+    }
+
+    private static ByteBuffer encodeDictionary(List<String> dictionary) {
+        List<byte[]> encoded = new ArrayList<>();
+        int size = 4;
+        for (String value : dictionary) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 2 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ORDER);
+        buffer.putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static long pence(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static int epochDay(Date date) {
+        return date == null ? NULL_DAY : (int) date.toLocalDate().toEpochDay();
+    }
+
+    // ------------------------------------------------------------------ reading
+
+    /**
+     * Memory-maps a snapshot file.
+     *
+     * @param file The snapshot file.
+     * @return A view over the snapshot.
+     * @throws IOException If the file cannot be read or is not a snapshot.
+     */
+    public static View open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ORDER);
+            return new View(mapped); // the mapping stays valid after the channel is closed
+        }
+    }
+
+    /**
+     * A memory-mapped snapshot. Values are read by row index (0 to {@link #getRowCount()} - 1) directly from
+     * the mapped file.
+     */
+    public static final class View {
+        private final int rows;
+        private final long createdMillis;
+        private final ByteBuffer[] columns = new ByteBuffer[COLUMNS.length];
+        private final String[] buildingTypes;
+
+        View(ByteBuffer file) throws IOException {
+            if (file.capacity() < 24 || file.getInt(0) != MAGIC || file.getInt(4) != VERSION
+                    || file.getInt(12) != COLUMNS.length) {
+                throw new IOException("Not a PoisePMS columnar snapshot (or from another version)");
+            }
+            rows = file.getInt(8);
+            createdMillis = file.getLong(16);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                int offset = (int) file.getLong(24 + 8 * c);
+                columns[c] = file.slice(offset, rows * WIDTHS[c]).order(ORDER);
+            }
+            int position = 24 + 8 * COLUMNS.length;
+            buildingTypes = new String[file.getInt(position)];
+            position += 4;
+            for (int i = 0; i < buildingTypes.length; i++) {
+                byte[] bytes = new byte[file.getShort(position)];
+                file.get(position + 2, bytes);
+                buildingTypes[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += 2 + bytes.length;
+            }
+        }
+
+        public int getRowCount() {
+            return rows;
+        }
+
+        public long getCreatedMillis() {
+            return createdMillis;
+        }
+
+        public int projectNumber(int row) {
+            return columns[PROJECT_NUMBER].getInt(row * 4);
+        }
+
+        public long totalFeePence(int row) {
+            return columns[TOTAL_FEE].getLong(row * 8);
+        }
+
+        public long paidToDatePence(int row) {
+            return columns[PAID_TO_DATE].getLong(row * 8);
+        }
+
+        public int deadlineDay(int row) {
+            return columns[DEADLINE].getInt(row * 4);
+        }
+
+        public int completionDay(int row) {
+            return columns[COMPLETION].getInt(row * 4);
+        }
+
+        public int startDay(int row) {
+            return columns[START].getInt(row * 4);
+        }
+
+        public boolean isFinalised(int row) {
+            return columns[FINALISED].get(row) != 0;
+        }
+
+        public int architectId(int row) {
+            return columns[ARCHITECT_ID].getInt(row * 4);
+        }
+
+        public int contractorId(int row) {
+            return columns[CONTRACTOR_ID].getInt(row * 4);
+        }
+
+        public int customerId(int row) {
+            return columns[CUSTOMER_ID].getInt(row * 4);
+        }
+
+        /** Returns the dictionary code of a row's building type; see {@link #buildingTypeName(int)}. */
+        public int buildingTypeCode(int row) {
+            return columns[BUILDING_TYPE].getShort(row * 2);
+        }
+
+        public String buildingTypeName(int code) {
+            return buildingTypes[code];
+        }
+
+        public int getBuildingTypeCount() {
+            return buildingTypes.length;
+        }
+
+        /**
+         * Sums the fees of the projects due in each month.
+         *
+         * @return For each month with projects, keyed by {@code year * 12 + month - 1}: the project count,
+         *         total fees in pence and paid to date in pence.
+         */
+        public Map<Integer, long[]> feesByDeadlineMonth() {
+            Map<Integer, long[]> months = new HashMap<>();
+            long[] current = null;
+            int currentMonth = Integer.MIN_VALUE;
+            for (int row = 0; row < rows; row++) {
+                int month = monthIndex(deadlineDay(row));
+                if (month != currentMonth) { // rows are in project number order, so months tend to repeat
+                    currentMonth = month;
+                    current = months.computeIfAbsent(month, key -> new long[3]);
+                }
+                current[0]++;
+                current[1] += totalFeePence(row);
+                current[2] += paidToDatePence(row);
+            }
+            return months;
+        }
+
+        /**
+         * Counts projects and overdue projects (not completed and past their deadline) for each building type.
+         *
+         * @param today The date to judge deadlines against.
+         * @return Indexed by building type code: the project count and overdue count.
+         */
+        public long[][] overdueByBuildingType(LocalDate today) {
+            int todayDay = (int) today.toEpochDay();
+            long[][] counts = new long[buildingTypes.length][2];
+            for (int row = 0; row < rows; row++) {
+                long[] count = counts[buildingTypeCode(row)];
+                count[0]++;
+                if (completionDay(row) == NULL_DAY && deadlineDay(row) < todayDay) {
+                    count[1]++;
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * Prints the fees by month and overdue rate by building type reports.
+         *
+         * @param today The date to judge deadlines against.
+         */
+        public void printReports(LocalDate today) {
+            long start = System.nanoTime();
+            Map<Integer, long[]> months = feesByDeadlineMonth();
+            long[][] overdue = overdueByBuildingType(today);
+            long scanMicros = (System.nanoTime() - start) / 1000;
+
+            System.out.printf("Snapshot of %,d projects taken %s%n", rows,
+                    Instant.ofEpochMilli(createdMillis));
+            System.out.println();
+            System.out.println("Fees by deadline month:");
+            System.out.printf("%-8s %10s %16s %16s %16s%n", "Month", "Projects", "Total Fees", "Paid", "Outstanding");
+            months.keySet().stream().sorted().forEach(month -> {
+                long[] totals = months.get(month);
+                System.out.printf("%04d-%02d  %,10d %,16.2f %,16.2f %,16.2f%n", Math.floorDiv(month, 12),
+                        Math.floorMod(month, 12) + 1, totals[0], totals[1] / 100.0, totals[2] / 100.0,
+                        (totals[1] - totals[2]) / 100.0);
+            });
+            System.out.println();
+            System.out.println("Overdue rate by building type:");
+            System.out.printf("%-20s %10s %10s %8s%n", "Building Type", "Projects", "Overdue", "Rate");
+            for (int code = 0; code < overdue.length; code++) {
+                System.out.printf("%-20s %,10d %,10d %7.1f%%%n", buildingTypes[code], overdue[code][0],
+                        overdue[code][1], overdue[code][0] == 0 ? 0 : 100.0 * overdue[code][1] / overdue[code][0]);
+            }
+            System.out.println();
+            System.out.printf("Scanned in %,d microseconds%n", scanMicros);
+        }
+    }
+
+    /**
+     * Converts days since 1970-01-01 to {@code year * 12 + month - 1} without creating a date object, using
+     * the civil-from-days algorithm from the proleptic Gregorian calendar.
+     *
+     * @param epochDay Days since 1970-01-01.
+     * @return The month index.
+     */
+    static int monthIndex(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153; // 0 is March
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+}
@@ -0,0 +1,232 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ConnectionPool class keeps a bounded set of reusable database connections for the PoisePMS system.
+ *
+ * <p>At most {@code maxSize} connections can be borrowed at once. Any further callers wait (up to the
+ * configured timeout) for a connection to be returned, which caps the load placed on MySQL no matter how
+ * many threads are running. Borrowed connections are returned to the pool when {@code close()} is called
+ * on them, so callers can keep using try-with-resources exactly as before.</p>
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long timeoutMillis;
+
+    /** Limits the number of connections that can be borrowed at the same time. */
+    private final Semaphore permits;
+
+    /** Physical connections that are open but not currently borrowed. */
+    private final Deque<Connection> idle = new ArrayDeque<>();
+
+    /**
+     * Creates a new pool. No connections are opened until they are first needed.
+     *
+     * @param url           The JDBC URL of the database.
+     * @param user          The database username.
+     * @param password      The database password.
+     * @param maxSize       The maximum number of connections that may be borrowed at once.
+     * @param timeoutMillis How long a caller waits for a free connection before giving up.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, long timeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available.
+     *
+     * @return A connection that is handed back to the pool when closed.
+     * @throws SQLException If no connection becomes free in time or a new connection cannot be opened.
+     */
+    public Connection borrow() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection ("
+                        + maxSize + " in use).");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            Connection physical = takeIdle();
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, user, password);
+            }
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release(); // the borrow failed, so hand the permit straight back
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of connections currently borrowed.
+     *
+     * @return The number of connections in use.
+     */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of callers currently waiting for a connection.
+     *
+     * @return The number of waiting callers.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Returns the maximum number of connections the pool will hand out at once.
+     *
+     * @return The pool size.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Closes all idle connections. Connections that are still borrowed are closed when they are returned.
+     */
+    public void shutdown() {
+        synchronized (idle) {
+            for (Connection conn : idle) {
+                closeQuietly(conn);
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * Takes a usable idle connection, discarding any that have been closed by the server in the meantime.
+     *
+     * @return An idle connection, or null if there are none.
+     */
+    private Connection takeIdle() {
+        while (true) {
+            Connection conn;
+            synchronized (idle) {
+                conn = idle.pollFirst();
+            }
+            if (conn == null) {
+                return null;
+            }
+            try {
+                if (conn.isValid(2)) {
+                    return conn;
+                }
+            } catch (SQLException e) {
+                // fall through and discard the broken connection
+            }
+            closeQuietly(conn);
+        }
+    }
+
+    /**
+     * Hands a physical connection back to the pool once the caller has finished with it.
+     *
+     * @param conn The physical connection being returned.
+     */
+    private void giveBack(Connection conn) {
+        try {
+            if (conn.isClosed()) {
+                return;
+            }
+            // reset any state the caller may have changed so the next borrower starts clean
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (conn.isReadOnly()) {
+                conn.setReadOnly(false);
+            }
+            synchronized (idle) {
+                idle.addFirst(conn);
+            }
+        } catch (SQLException e) {
+            closeQuietly(conn);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Wraps a physical connection so that {@code close()} returns it to the pool instead of closing it.
+     *
+     * @param physical The physical connection.
+     * @return The wrapped connection.
+     */
+    private Connection wrap(Connection physical) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("close".equals(name)) {
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            giveBack(physical);
+                        }
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(name)) {
+                    synchronized (this) {
+                        if (returned) {
+                            return true;
+                        }
+                    }
+                }
+                synchronized (this) {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                }
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Closes a connection, ignoring any error.
+     *
+     * @param conn The connection to close.
+     */
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // nothing more can be done with a connection that will not close
+        }
+    }
+}
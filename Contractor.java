@@ -13,6 +13,9 @@ import java.util.Scanner;
  */
 public class Contractor {
 
+    /** Performs the database operations for the contractor table. */
+    private final PersonStore store = new PersonStore("contractor");
+
     /**
      * Gathers contractor details from user input.
      *
@@ -39,36 +42,15 @@ public class Contractor {
     }
 
     /**
-     * Sets contractor parameters in a PreparedStatement.
-     *
-     * @param pstmt   The PreparedStatement to set the parameters in.
-     * @param details A map containing the contractor details.
-     * @throws SQLException If an SQL error occurs.
-     */
-    private void setContractorParameters(PreparedStatement pstmt, Map<String, String> details) throws SQLException {
-        pstmt.setString(1, details.get("firstName"));
-        pstmt.setString(2, details.get("lastName"));
-        pstmt.setString(3, details.get("phoneNumber"));
-        pstmt.setString(4, details.get("email"));
-        pstmt.setString(5, details.get("address"));
-        pstmt.setString(6, details.get("postCode"));
-    }
-
-    /**
-     * Checks if a contractor ID exists in the database.
+     * Checks if a contractor ID exists in the database, on a connection borrowed just for the check.
      *
-     * @param conn         Connection to the database.
      * @param contractorId The contractor ID to check.
      * @return true if the contractor ID exists, false otherwise.
      * @throws SQLException If an SQL error occurs.
      */
-    private boolean doesContractorIdExist(Connection conn, int contractorId) throws SQLException {
-        String checkSql = "SELECT 1 FROM contractor WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(checkSql)) {
-            pstmt.setInt(1, contractorId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
+    private boolean doesContractorIdExist(int contractorId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return store.exists(conn, contractorId);
         }
     }
 
@@ -80,15 +62,9 @@ public class Contractor {
     public void addNewContractor(Scanner scanner) {
         Map<String, String> details = gatherContractorDetails(scanner, false);
 
-        String sql = "INSERT INTO contractor (first_name, last_name, phone_number, email, address, post_code) VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            setContractorParameters(pstmt, details);
-
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
+        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+            int newId = store.insert(conn, details);
+            if (newId > 0) {
                 System.out.println("A new contractor has been added successfully.");
                 System.out.println();
             } else {
@@ -107,7 +83,8 @@ public class Contractor {
      * @param scanner Scanner object to read user input.
      */
     public void updateContractor(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+        try {
+            // no connection is held while waiting for input; the check and the update borrow their own
             while (true) {
                 System.out.print("Enter Contractor ID to update (or 0 to return to the contractor menu): ");
                 int contractorId = scanner.nextInt();
@@ -119,7 +96,7 @@ public class Contractor {
                     return;
                 }
 
-                if (!doesContractorIdExist(conn, contractorId)) {
+                if (!doesContractorIdExist(contractorId)) {
                     System.out.println("ID not found. Try again.");
                     System.out.println();
                     continue;
@@ -127,13 +104,11 @@ public class Contractor {
 
                 Map<String, String> details = gatherContractorDetails(scanner, true);
 
-                String sql = "UPDATE contractor SET first_name = ?, last_name = ?, phone_number = ?, email = ?, address = ?, post_code = ? WHERE id = ?";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    setContractorParameters(pstmt, details);
-                    pstmt.setInt(7, contractorId); // The 7th parameter is the contractor ID
-
-                    int rowsAffected = pstmt.executeUpdate();
+                try {
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = store.update(conn, contractorId, details);
+                    }
                     if (rowsAffected > 0) {
                         System.out.println("Contractor has been updated successfully.");
                         System.out.println();
@@ -159,7 +134,8 @@ public class Contractor {
      * @param scanner Scanner object to read user input.
      */
     public void deleteContractor(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+        try {
+            // no connection is held while waiting for input; the check and the delete borrow their own
             while (true) {
                 System.out.print("Enter Contractor ID to delete (or 0 to return to the contractor menu): ");
                 int contractorId = scanner.nextInt();
@@ -172,19 +148,18 @@ public class Contractor {
                 }
 
                 // Check if the Contractor ID exists
-                if (!doesContractorIdExist(conn, contractorId)) {
+                if (!doesContractorIdExist(contractorId)) {
                     System.out.println("ID not found. Try again or enter 0 to return to the contractor menu.");
                     System.out.println();
                     continue; // Continue the loop to prompt the user again
                 }
 
                 // Delete the Contractor
-                String sql = "DELETE FROM contractor WHERE id = ?";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setInt(1, contractorId);
-
-                    int rowsAffected = pstmt.executeUpdate();
+                try {
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = store.delete(conn, contractorId);
+                    }
                     if (rowsAffected > 0) {
                         System.out.println("Contractor has been deleted successfully.");
                         System.out.println();
@@ -211,7 +186,7 @@ public class Contractor {
      * @param id The contractor ID to search for.
      */
     public void searchContractorById(String id) {
-        String query = "SELECT * FROM contractor WHERE id = ?";
+        String query = "SELECT * FROM contractor WHERE id = ? AND deleted_at IS NULL";
         try (Connection connection = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
              PreparedStatement statement = connection.prepareStatement(query)) {
 
@@ -234,7 +209,7 @@ public class Contractor {
      * Lists all contractors in the database.
      */
     public void listAllContractors() {
-        String query = "SELECT * FROM contractor";
+        String query = "SELECT * FROM contractor WHERE deleted_at IS NULL";
         try (Connection connection = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
              PreparedStatement statement = connection.prepareStatement(query);
              ResultSet resultSet = statement.executeQuery()) {
@@ -0,0 +1,332 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The ContractorLocator class finds the contractors nearest to a post code.
+ *
+ * <p>Post codes are turned into map coordinates with a local centroid file ({@code postcodeCentroids.csv}
+ * by default, set with {@code poise.postcodes.file}) that lists the approximate centre of each postcode
+ * area or outward code. Every contractor with a known location is placed in a k-d tree, so the nearest K
+ * contractors are found by visiting only the nearby branches of the tree rather than measuring the
+ * distance to every contractor.</p>
+ *
+ * <p>The index is built the first time it is needed and rebuilt after any contractor is added, updated
+ * or deleted.</p>
+ */
+public class ContractorLocator implements DataChangeListener {
+
+    /** Kilometres per degree of latitude. */
+    private static final double KM_PER_DEGREE = 111.2;
+
+    /** The latitude used to scale longitudes to kilometres; the middle of Great Britain. */
+    private static final double REFERENCE_LATITUDE = 54.0;
+
+    private static final ContractorLocator INSTANCE = new ContractorLocator();
+
+    private Map<String, double[]> centroids;
+    private volatile KdTree index;
+
+    /**
+     * Returns the shared locator.
+     *
+     * @return The locator.
+     */
+    public static ContractorLocator getInstance() {
+        return INSTANCE;
+    }
+
+    private ContractorLocator() {
+        DataChanges.register(this);
+    }
+
+    /**
+     * Drops the index when a contractor changes so that the next search rebuilds it.
+     */
+    @Override
+    public void onChange(Connection conn, String table, int key, Map<String, Object> before, Map<String, Object> after) {
+        if ("contractor".equals(table)) {
+            index = null;
+        }
+    }
+
+    /**
+     * Displays the contractors nearest to a post code.
+     *
+     * @param postCode The post code to search from.
+     * @param k        The number of contractors to show.
+     */
+    public void displayNearest(String postCode, int k) {
+        try {
+            List<Map<String, Object>> nearest = findNearest(postCode, k);
+            if (nearest == null) {
+                System.out.println("Post code area not recognised.");
+            } else if (nearest.isEmpty()) {
+                System.out.println("No contractors with a known location were found.");
+            } else {
+                for (Map<String, Object> contractor : nearest) {
+                    System.out.printf("ID: %d | Name: %s | Post Code: %s | Distance: %.1f km%n",
+                            contractor.get("id"), contractor.get("name"), contractor.get("post_code"),
+                            contractor.get("distance_km"));
+                }
+            }
+            System.out.println();
+        } catch (SQLException | IOException e) {
+            System.out.println("Error searching for nearby contractors: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Finds the contractors nearest to a post code.
+     *
+     * @param postCode The post code to search from.
+     * @param k        The maximum number of contractors to return.
+     * @return The nearest contractors, closest first, each with {@code id}, {@code name},
+     *         {@code post_code} and {@code distance_km}; or null if the post code is not recognised.
+     * @throws SQLException If the contractors cannot be loaded.
+     * @throws IOException  If the centroid file cannot be read.
+     */
+    public List<Map<String, Object>> findNearest(String postCode, int k) throws SQLException, IOException {
+        double[] origin = locate(postCode);
+        if (origin == null) {
+            return null;
+        }
+        KdTree tree = index;
+        if (tree == null) {
+            tree = buildIndex();
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i : tree.nearest(project(origin), k)) {
+            Map<String, Object> contractor = new LinkedHashMap<>();
+            contractor.put("id", tree.ids[i]);
+            contractor.put("name", tree.names[i]);
+            contractor.put("post_code", tree.postCodes[i]);
+            contractor.put("distance_km", Math.round(haversineKm(origin, tree.latLon[i]) * 10) / 10.0);
+            results.add(contractor);
+        }
+        return results;
+    }
+
+    /**
+     * Looks up the approximate latitude and longitude of a post code.
+     *
+     * @param postCode The post code, with or without a space.
+     * @return {latitude, longitude}, or null if neither its outward code nor its area is in the file.
+     * @throws IOException If the centroid file cannot be read.
+     */
+    public double[] locate(String postCode) throws IOException {
+        if (postCode == null) {
+            return null;
+        }
+        String code = postCode.toUpperCase(Locale.ROOT).replaceAll("\\s+", "");
+        if (code.isEmpty()) {
+            return null;
+        }
+        Map<String, double[]> table = centroids();
+        String outward = code.length() >= 5 ? code.substring(0, code.length() - 3) : code;
+        double[] point = table.get(outward);
+        if (point == null) {
+            int letters = 0;
+            while (letters < outward.length() && Character.isLetter(outward.charAt(letters))) {
+                letters++;
+            }
+            point = table.get(outward.substring(0, letters));
+        }
+        return point;
+    }
+
+    /**
+     * Loads the contractors and builds the k-d tree over their locations.
+     *
+     * @return The new index.
+     * @throws SQLException If the contractors cannot be loaded.
+     * @throws IOException  If the centroid file cannot be read.
+     */
+    private synchronized KdTree buildIndex() throws SQLException, IOException {
+        if (index != null) {
+            return index;
+        }
+        List<Object[]> located = new ArrayList<>();
+        String sql = "SELECT id, CONCAT_WS(' ', first_name, last_name) AS name, post_code FROM contractor "
+                + "WHERE deleted_at IS NULL";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                double[] point = locate(rs.getString("post_code"));
+                if (point != null) {
+                    located.add(new Object[]{rs.getInt("id"), rs.getString("name"), rs.getString("post_code"), point});
+                }
+            }
+        }
+        KdTree tree = new KdTree(located);
+        index = tree;
+        return tree;
+    }
+
+    /**
+     * Reads the centroid file the first time it is needed.
+     *
+     * @return Coordinates keyed by postcode area or outward code.
+     * @throws IOException If the file cannot be read.
+     */
+    private synchronized Map<String, double[]> centroids() throws IOException {
+        if (centroids == null) {
+            Path file = Paths.get(System.getProperty("poise.postcodes.file", "postcodeCentroids.csv"));
+            Map<String, double[]> table = new HashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (line.startsWith("#") || parts.length != 3 || "code".equals(parts[0])) {
+                        continue; // comment or header
+                    }
+                    table.put(parts[0].trim().toUpperCase(Locale.ROOT),
+                            new double[]{Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim())});
+                }
+            }
+            centroids = table;
+        }
+        return centroids;
+    }
+
+    /**
+     * Converts latitude and longitude to flat x/y kilometres, which is accurate enough over Great Britain
+     * to compare distances.
+     */
+    private static double[] project(double[] latLon) {
+        return new double[]{
+                latLon[1] * KM_PER_DEGREE * Math.cos(Math.toRadians(REFERENCE_LATITUDE)),
+                latLon[0] * KM_PER_DEGREE};
+    }
+
+    /**
+     * Returns the great-circle distance between two points in kilometres.
+     */
+    private static double haversineKm(double[] a, double[] b) {
+        double dLat = Math.toRadians(b[0] - a[0]);
+        double dLon = Math.toRadians(b[1] - a[1]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a[0])) * Math.cos(Math.toRadians(b[0])) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6371.0 * Math.asin(Math.sqrt(h));
+    }
+
+    /**
+     * A static two-dimensional k-d tree stored in arrays. The points are reordered so that each subrange
+     * {@code [lo, hi)} holds a subtree whose root is its middle element, split on x at even depths and on
+     * y at odd depths.
+     */
+    private static final class KdTree {
+        final int[] ids;
+        final String[] names;
+        final String[] postCodes;
+        final double[][] latLon;
+        final double[] xs;
+        final double[] ys;
+
+        KdTree(List<Object[]> located) {
+            int n = located.size();
+            Integer[] order = new Integer[n];
+            double[][] points = new double[n][];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+                points[i] = project((double[]) located.get(i)[3]);
+            }
+            build(order, points, 0, n, 0);
+
+            ids = new int[n];
+            names = new String[n];
+            postCodes = new String[n];
+            latLon = new double[n][];
+            xs = new double[n];
+            ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                Object[] row = located.get(order[i]);
+                ids[i] = (Integer) row[0];
+                names[i] = (String) row[1];
+                postCodes[i] = (String) row[2];
+                latLon[i] = (double[]) row[3];
+                xs[i] = points[order[i]][0];
+                ys[i] = points[order[i]][1];
+            }
+        }
+
+        private static void build(Integer[] order, double[][] points, int lo, int hi, int depth) {
+            if (hi - lo <= 1) {
+                return;
+            }
+            int axis = depth % 2;
+            Arrays.sort(order, lo, hi, (a, b) -> Double.compare(points[a][axis], points[b][axis]));
+            int mid = (lo + hi) >>> 1;
+            build(order, points, lo, mid, depth + 1);
+            build(order, points, mid + 1, hi, depth + 1);
+        }
+
+        /**
+         * Finds the k points nearest to a target.
+         *
+         * @param target The target {x, y}.
+         * @param k      The number of points wanted.
+         * @return The indexes of the nearest points, closest first.
+         */
+        int[] nearest(double[] target, int k) {
+            // max-heap on distance, so the furthest of the current best k is at the head
+            PriorityQueue<double[]> best = new PriorityQueue<>((a, b) -> Double.compare(b[1], a[1]));
+            search(target, k, 0, xs.length, 0, best);
+            int[] result = new int[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = (int) best.poll()[0];
+            }
+            return result;
+        }
+
+        private void search(double[] target, int k, int lo, int hi, int depth, PriorityQueue<double[]> best) {
+            if (lo >= hi || k <= 0) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double dx = xs[mid] - target[0];
+            double dy = ys[mid] - target[1];
+            double distSq = dx * dx + dy * dy;
+            if (best.size() < k) {
+                best.add(new double[]{mid, distSq});
+            } else if (distSq < best.peek()[1]) {
+                best.poll();
+                best.add(new double[]{mid, distSq});
+            }
+
+            double diff = depth % 2 == 0 ? target[0] - xs[mid] : target[1] - ys[mid];
+            boolean leftFirst = diff < 0;
+            if (leftFirst) {
+                search(target, k, lo, mid, depth + 1, best);
+            } else {
+                search(target, k, mid + 1, hi, depth + 1, best);
+            }
+            // only visit the other side if it could hold something closer than the current kth best
+            if (best.size() < k || diff * diff < best.peek()[1]) {
+                if (leftFirst) {
+                    search(target, k, mid + 1, hi, depth + 1, best);
+                } else {
+                    search(target, k, lo, mid, depth + 1, best);
+                }
+            }
+        }
+    }
+}
@@ -13,6 +13,9 @@ import java.util.Scanner;
  */
 public class Customer {
 
+    /** Performs the database operations for the customer table. */
+    private final PersonStore store = new PersonStore("customer");
+
     /**
      * Gathers customer details from user input.
      *
@@ -39,36 +42,15 @@ public class Customer {
     }
 
     /**
-     * Sets customer parameters in a PreparedStatement.
-     *
-     * @param pstmt   The PreparedStatement to set the parameters in.
-     * @param details A map containing the customer details.
-     * @throws SQLException If an SQL error occurs.
-     */
-    private void setCustomerParameters(PreparedStatement pstmt, Map<String, String> details) throws SQLException {
-        pstmt.setString(1, details.get("firstName"));
-        pstmt.setString(2, details.get("lastName"));
-        pstmt.setString(3, details.get("phoneNumber"));
-        pstmt.setString(4, details.get("email"));
-        pstmt.setString(5, details.get("address"));
-        pstmt.setString(6, details.get("postCode"));
-    }
-
-    /**
-     * Checks if a customer ID exists in the database.
+     * Checks if a customer ID exists in the database, on a connection borrowed just for the check.
      *
-     * @param conn       Connection to the database.
      * @param customerId The customer ID to check.
      * @return true if the customer ID exists, false otherwise.
      * @throws SQLException If an SQL error occurs.
      */
-    private boolean doesCustomerIdExist(Connection conn, int customerId) throws SQLException {
-        String checkSql = "SELECT 1 FROM customer WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(checkSql)) {
-            pstmt.setInt(1, customerId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
+    private boolean doesCustomerIdExist(int customerId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return store.exists(conn, customerId);
         }
     }
 
@@ -80,15 +62,9 @@ public class Customer {
     public void addNewCustomer(Scanner scanner) {
         Map<String, String> details = gatherCustomerDetails(scanner, false);
 
-        String sql = "INSERT INTO customer (first_name, last_name, phone_number, email, address, post_code) VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn =  DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            setCustomerParameters(pstmt, details);
-
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
+        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+            int newId = store.insert(conn, details);
+            if (newId > 0) {
                 System.out.println("A new customer has been added successfully.");
                 System.out.println();
             } else {
@@ -107,7 +83,8 @@ public class Customer {
      * @param scanner Scanner object to read user input.
      */
     public void updateCustomer(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+        try {
+            // no connection is held while waiting for input; the check and the update borrow their own
             while (true) {
                 System.out.print("Enter Customer ID to update (or 0 to return to the customer menu): ");
                 int customerId = scanner.nextInt();
@@ -119,7 +96,7 @@ public class Customer {
                     return;
                 }
 
-                if (!doesCustomerIdExist(conn, customerId)) {
+                if (!doesCustomerIdExist(customerId)) {
                     System.out.println("ID not found. Try again.");
                     System.out.println();
                     continue;
@@ -127,13 +104,11 @@ public class Customer {
 
                 Map<String, String> details = gatherCustomerDetails(scanner, true);
 
-                String sql = "UPDATE customer SET first_name = ?, last_name = ?, phone_number = ?, email = ?, address = ?, post_code = ? WHERE id = ?";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    setCustomerParameters(pstmt, details);
-                    pstmt.setInt(7, customerId); // The 7th parameter is the customer ID
-
-                    int rowsAffected = pstmt.executeUpdate();
+                try {
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = store.update(conn, customerId, details);
+                    }
                     if (rowsAffected > 0) {
                         System.out.println("Customer has been updated successfully.");
                         System.out.println();
@@ -159,7 +134,8 @@ public class Customer {
      * @param scanner Scanner object to read user input.
      */
     public void deleteCustomer(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // calls to the DatabaseConnection class
+        try {
+            // no connection is held while waiting for input; the check and the delete borrow their own
             while (true) {
                 System.out.print("Enter Customer ID to delete (or 0 to return to the customer menu): ");
                 int customerId = scanner.nextInt();
@@ -172,19 +148,18 @@ public class Customer {
                 }
 
                 // Check if the Customer ID exists
-                if (!doesCustomerIdExist(conn, customerId)) {
+                if (!doesCustomerIdExist(customerId)) {
                     System.out.println("ID not found. Try again or enter 0 to return to the customer menu.");
                     System.out.println();
                     continue; // Continue the loop to prompt the user again
                 }
 
                 // Delete the Customer
-                String sql = "DELETE FROM customer WHERE id = ?";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setInt(1, customerId);
-
-                    int rowsAffected = pstmt.executeUpdate();
+                try {
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = store.delete(conn, customerId);
+                    }
                     if (rowsAffected > 0) {
                         System.out.println("Customer has been deleted successfully.");
                         System.out.println();
@@ -211,7 +186,7 @@ public class Customer {
      * @param id The customer ID to search for.
      */
     public void searchCustomerById(String id) {
-        String query = "SELECT * FROM customer WHERE id = ?";
+        String query = "SELECT * FROM customer WHERE id = ? AND deleted_at IS NULL";
         try (Connection connection = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
              PreparedStatement statement = connection.prepareStatement(query)) {
 
@@ -235,7 +210,7 @@ public class Customer {
      * Lists all customers in the database.
      */
     public void listAllCustomers() {
-        String query = "SELECT * FROM customer";
+        String query = "SELECT * FROM customer WHERE deleted_at IS NULL";
         try (Connection connection = DatabaseConnection.getConnection(); // calls to the DatabaseConnection class
              PreparedStatement statement = connection.prepareStatement(query);
              ResultSet resultSet = statement.executeQuery()) {
@@ -0,0 +1,123 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CustomerPortfolio class shows every project belonging to one customer, together with the
+ * customer's financial totals: total fees, amount paid to date, outstanding balance and the number of
+ * overdue projects.
+ *
+ * <p>The totals come from a single aggregate query, answered from the {@code idx_projects_customer_portfolio}
+ * index alone. The project list is found and ordered by deadline through the same index and then reads
+ * each full row, so it costs one row lookup per project but never scans or sorts the table.</p>
+ */
+public class CustomerPortfolio {
+
+    private static final String TOTALS_QUERY =
+            "SELECT COUNT(*) AS project_count, "
+            + "COALESCE(SUM(total_fee_gbp), 0) AS total_fees, "
+            + "COALESCE(SUM(paid_to_date_gbp), 0) AS paid_to_date, "
+            + "COALESCE(SUM(total_fee_gbp - paid_to_date_gbp), 0) AS outstanding, "
+            + "COALESCE(SUM(deadline_date < CURDATE() AND completion_date IS NULL), 0) AS overdue_count "
+            + "FROM Projects WHERE customer_id = ? AND deleted_at IS NULL";
+
+    private static final String PROJECTS_QUERY =
+            "SELECT * FROM Projects WHERE customer_id = ? AND deleted_at IS NULL ORDER BY deadline_date";
+
+    private final PersonStore customers = new PersonStore("customer");
+
+    /**
+     * Displays the portfolio of a customer.
+     *
+     * @param id The customer ID entered by the user.
+     */
+    public void displayPortfolio(String id) {
+        int customerId;
+        try {
+            customerId = Integer.parseInt(id.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid entry. Customer IDs are numeric values only.");
+            System.out.println();
+            return;
+        }
+
+        try {
+            Map<String, Object> portfolio = getPortfolio(customerId);
+            if (portfolio == null) {
+                System.out.println("Customer ID not found.");
+                System.out.println();
+                return;
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> customer = (Map<String, Object>) portfolio.get("customer");
+            System.out.printf("Portfolio for customer %d: %s %s%n", customerId,
+                    customer.get("first_name") == null ? "" : customer.get("first_name"), customer.get("last_name"));
+            System.out.println();
+
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> projects = (List<Map<String, Object>>) portfolio.get("projects");
+            for (Map<String, Object> row : projects) {
+                ProjectSearch.printProjectRow(row);
+            }
+            System.out.println();
+            System.out.printf("Projects: %d | Total Fees: %.2f | Paid To Date: %.2f | Outstanding: %.2f | Overdue: %d%n",
+                    portfolio.get("project_count"), portfolio.get("total_fees"), portfolio.get("paid_to_date"),
+                    portfolio.get("outstanding"), portfolio.get("overdue_count"));
+            System.out.println();
+        } catch (SQLException e) {
+            System.out.println("Error loading customer portfolio: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Loads a customer's portfolio.
+     *
+     * @param customerId The customer ID.
+     * @return A map with the {@code customer} row, its {@code projects}, and the totals
+     *         {@code project_count}, {@code total_fees}, {@code paid_to_date}, {@code outstanding} and
+     *         {@code overdue_count}; or null if the customer does not exist.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Map<String, Object> getPortfolio(int customerId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Map<String, Object> customer = customers.findById(conn, customerId);
+            if (customer == null) {
+                return null;
+            }
+
+            Map<String, Object> portfolio = new LinkedHashMap<>();
+            portfolio.put("customer", customer);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(TOTALS_QUERY)) {
+                pstmt.setInt(1, customerId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    portfolio.put("project_count", rs.getInt("project_count"));
+                    portfolio.put("total_fees", rs.getBigDecimal("total_fees"));
+                    portfolio.put("paid_to_date", rs.getBigDecimal("paid_to_date"));
+                    portfolio.put("outstanding", rs.getBigDecimal("outstanding"));
+                    portfolio.put("overdue_count", rs.getInt("overdue_count"));
+                }
+            }
+
+            List<Map<String, Object>> projects = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(PROJECTS_QUERY)) {
+                pstmt.setInt(1, customerId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        projects.add(ProjectSearch.readProjectRow(rs));
+                    }
+                }
+            }
+            portfolio.put("projects", projects);
+            return portfolio;
+        }
+    }
+}
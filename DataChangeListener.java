@@ -0,0 +1,26 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * A DataChangeListener is told about every row that the PoisePMS system inserts, updates or deletes.
+ *
+ * <p>Listeners are registered with {@link DataChanges}. They are called on the thread that made the
+ * change, straight after the change, with the connection it was made on.</p>
+ */
+@FunctionalInterface
+public interface DataChangeListener {
+
+    /**
+     * Called after a row has changed.
+     *
+     * @param conn   The connection the change was made on.
+     * @param table  The table that changed, e.g. {@code projects} or {@code customer}.
+     * @param key    The primary key of the row (project number or person ID).
+     * @param before The row before the change, or null if it was inserted.
+     * @param after  The row after the change, or null if it was deleted.
+     * @throws SQLException If the listener needs the database and it fails.
+     */
+    void onChange(Connection conn, String table, int key, Map<String, Object> before, Map<String, Object> after)
+            throws SQLException;
+}
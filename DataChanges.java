@@ -0,0 +1,88 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The DataChanges class keeps the list of {@link DataChangeListener}s and passes each change on to them.
+ *
+ * <p>The classes that write to the database call {@link #publish} after every successful insert, update
+ * or delete. Reading the before and after images of a row costs an extra query, so writers check
+ * {@link #hasListeners()} first and skip that work when nobody is listening.</p>
+ *
+ * <p>By the time a change is published it has usually been committed, so a failing listener cannot undo
+ * it. Every listener is therefore told about the change even if an earlier one fails; the failure is then
+ * passed back to the writer, whose change stands.</p>
+ */
+public final class DataChanges {
+
+    /** Table name used when publishing changes to projects. */
+    public static final String PROJECTS = "projects";
+
+    private static final List<DataChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private DataChanges() {
+        // utility class, not to be instantiated
+    }
+
+    /**
+     * Adds a listener.
+     *
+     * @param listener The listener to add.
+     */
+    public static void register(DataChangeListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public static void unregister(DataChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Checks whether any listeners are registered.
+     *
+     * @return true if changes need to be published.
+     */
+    public static boolean hasListeners() {
+        return !LISTENERS.isEmpty();
+    }
+
+    /**
+     * Passes a change on to every registered listener.
+     *
+     * @param conn   The connection the change was made on.
+     * @param table  The table that changed.
+     * @param key    The primary key of the row.
+     * @param before The row before the change, or null if it was inserted.
+     * @param after  The row after the change, or null if it was deleted.
+     * @throws SQLException If a listener fails; the other listeners have still been called, and any further
+     *                      failures are attached as suppressed exceptions.
+     */
+    public static void publish(Connection conn, String table, int key, Map<String, Object> before,
+                               Map<String, Object> after) throws SQLException {
+        SQLException failure = null;
+        for (DataChangeListener listener : LISTENERS) {
+            try {
+                listener.onChange(conn, table, key, before, after);
+            } catch (SQLException | RuntimeException e) {
+                System.out.println("A change to " + table + " " + key + " was saved, but "
+                        + listener.getClass().getSimpleName() + " could not record it: " + e.getMessage());
+                if (failure == null) {
+                    failure = e instanceof SQLException ? (SQLException) e
+                            : new SQLException("The change was saved, but a listener failed: " + e.getMessage(), e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
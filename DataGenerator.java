@@ -0,0 +1,346 @@
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The DataGenerator class fills the database with synthetic architects, contractors, customers and
+ * projects at production-like volumes, for testing performance at scale.
+ *
+ * <p>Run with {@code java DataGenerator [--people N] [--projects N] [--threads N] [--batch N] [--seed N]}
+ * (defaults 10000 people, 100000 projects, 8 threads, batches of 500 rows and seed 42). The people are
+ * split one architect to two contractors to seven customers. The data is shaped like a real practice:</p>
+ *
+ * <ul>
+ *     <li>houses are the most common building type and hospitals the rarest, and fees follow a log-normal
+ *     spread around a typical fee for each type;</li>
+ *     <li>projects start over the last five years, and bigger building types take longer;</li>
+ *     <li>most projects past their deadline are complete and most of those are finalised, but some are
+ *     overdue; payments track how far through a project is;</li>
+ *     <li>a few customers, contractors and architects have many projects and most have a few.</li>
+ * </ul>
+ *
+ * <p>Projects are generated in chunks of {@value #CHUNK_ROWS} rows, each from its own random seed, so the
+ * same seed gives the same data whatever the thread count. Each thread borrows a pooled connection and
+ * inserts its chunks with multi-row {@code INSERT}s, committing once per batch; load throughput is printed
+ * every few seconds and at the end. The pool size ({@code poise.db.poolSize}, default 10) caps the useful
+ * thread count.</p>
+ */
+public class DataGenerator {
+
+    /** The rows generated from one random seed, and the unit of work handed to a thread. */
+    static final int CHUNK_ROWS = 10_000;
+
+    private static final String[] PERSON_COLUMNS = {"first_name", "last_name", "phone_number", "email", "address", "post_code"};
+    private static final String[] PROJECT_COLUMNS = {"project_name", "building_type", "project_address", "erf_number",
+            "total_fee_gbp", "paid_to_date_gbp", "deadline_date", "completion_date", "start_date", "finalised",
+            "architect_id", "contractor_id", "customer_id"};
+
+    /** Building types with their share of projects, typical fee in GBP and typical duration in days. */
+    private static final Object[][] BUILDING_TYPES = {
+            {"House", 45, 25_000, 150},
+            {"Apartment", 20, 120_000, 300},
+            {"Office", 12, 250_000, 400},
+            {"Shop", 8, 40_000, 120},
+            {"Warehouse", 7, 150_000, 250},
+            {"School", 4, 900_000, 540},
+            {"Hotel", 2, 1_500_000, 600},
+            {"Hospital", 2, 4_000_000, 900}
+    };
+
+    private static final String[] FIRST_NAMES = {"Amelia", "Oliver", "Isla", "George", "Ava", "Noah", "Mia", "Arthur",
+            "Grace", "Leo", "Freya", "Oscar", "Lily", "Harry", "Ella", "Jack", "Sophia", "Charlie", "Ivy", "Thomas"};
+    private static final String[] LAST_NAMES = {"Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Johnson",
+            "Davies", "Patel", "Robinson", "Wright", "Thompson", "Evans", "Walker", "White", "Roberts", "Green", "Hall",
+            "Khan", "Clarke"};
+    private static final String[] STREETS = {"High Street", "Station Road", "Church Lane", "Park Avenue", "Mill Road",
+            "Victoria Street", "Green Lane", "Manor Road", "King Street", "Queens Road"};
+    private static final String[] AREAS = {"M", "B", "E", "G", "L", "LS", "S", "N", "SW", "BS"};
+
+    private final int threads;
+    private final int batchRows;
+    private final long seed;
+    private final LocalDate today = LocalDate.now();
+    private final int totalWeight;
+
+    DataGenerator(int threads, int batchRows, long seed) {
+        this.threads = threads;
+        this.batchRows = Math.min(batchRows, 65_535 / PROJECT_COLUMNS.length); // MySQL's placeholder limit
+        this.seed = seed;
+        int weight = 0;
+        for (Object[] type : BUILDING_TYPES) {
+            weight += (Integer) type[1];
+        }
+        this.totalWeight = weight;
+    }
+
+    /**
+     * Generates the people, then the projects.
+     *
+     * @param people   The number of people to add across the three person tables.
+     * @param projects The number of projects to add.
+     * @throws SQLException If a database access error occurs.
+     * @throws InterruptedException If interrupted while waiting for the loader threads.
+     */
+    public void generate(int people, long projects) throws SQLException, InterruptedException {
+        int architects = Math.max(1, people / 10);
+        int contractors = Math.max(1, people / 5);
+        int customers = Math.max(1, people - architects - contractors);
+
+        long start = System.nanoTime();
+        int[] architectIds = insertPeople("Architect", architects, 1);
+        int[] contractorIds = insertPeople("Contractor", contractors, 2);
+        int[] customerIds = insertPeople("Customer", customers, 3);
+        report("people", architects + contractors + customers, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        long inserted = insertProjects(projects, architectIds, contractorIds, customerIds);
+        report("projects", inserted, System.nanoTime() - start);
+    }
+
+    /**
+     * Adds people to one table and returns the IDs they were given.
+     */
+    private int[] insertPeople(String table, int count, int tableSeed) throws SQLException {
+        Random random = new Random(seed * 31 + tableSeed);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            rows.add(new Object[]{first, last, String.format("07%03d %06d", random.nextInt(1000), random.nextInt(1_000_000)),
+                    (first.charAt(0) + last + (i % 1000) + "@mail.uk").toLowerCase(), address(random), postCode(random)});
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int firstNewId = 0;
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                rs.next();
+                firstNewId = rs.getInt(1) + 1;
+            }
+            insertRows(conn, table, PERSON_COLUMNS, rows);
+
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM " + table + " WHERE id >= ? ORDER BY id")) {
+                pstmt.setInt(1, firstNewId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            return ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Generates and inserts the projects in chunks spread over the loader threads.
+     */
+    private long insertProjects(long count, int[] architectIds, int[] contractorIds, int[] customerIds)
+            throws SQLException, InterruptedException {
+        AtomicLong inserted = new AtomicLong();
+        long chunks = (count + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (long chunk = 0; chunk < chunks; chunk++) {
+            long chunkIndex = chunk;
+            int rows = (int) Math.min(CHUNK_ROWS, count - chunk * CHUNK_ROWS);
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed * 1_000_003 + chunkIndex);
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    List<Object[]> batch = new ArrayList<>(batchRows);
+                    for (int i = 0; i < rows; i++) {
+                        batch.add(project(random, architectIds, contractorIds, customerIds));
+                        if (batch.size() == batchRows || i == rows - 1) {
+                            insertRows(conn, "Projects", PROJECT_COLUMNS, batch);
+                            inserted.addAndGet(batch.size());
+                            batch.clear();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+
+        long start = System.nanoTime();
+        long lastReport = start;
+        try {
+            for (Future<Void> future : futures) {
+                while (!future.isDone()) {
+                    Thread.sleep(200);
+                    long now = System.nanoTime();
+                    if (now - lastReport >= 5_000_000_000L) {
+                        lastReport = now;
+                        long rows = inserted.get();
+                        System.out.printf("  %,d of %,d projects, %,.0f rows/s%n", rows, count, rows / ((now - start) / 1e9));
+                    }
+                }
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return inserted.get();
+    }
+
+    /**
+     * Generates one project row in the order of {@link #PROJECT_COLUMNS}.
+     */
+    private Object[] project(Random random, int[] architectIds, int[] contractorIds, int[] customerIds) {
+        Object[] type = pickBuildingType(random);
+        String buildingType = (String) type[0];
+
+        // log-normal fee around the type's typical fee, kept within DECIMAL(10, 2)
+        double fee = (Integer) type[2] * Math.exp(0.6 * random.nextGaussian());
+        BigDecimal totalFee = BigDecimal.valueOf(Math.min(99_999_999, Math.max(500, Math.round(fee))));
+
+        LocalDate startDate = today.minusDays(random.nextInt(5 * 365)).plusDays(random.nextInt(180));
+        long duration = Math.max(14, Math.round((Integer) type[3] * Math.exp(0.4 * random.nextGaussian())));
+        LocalDate deadline = startDate.plusDays(duration);
+
+        LocalDate completion = null;
+        boolean finalised = false;
+        double paidShare;
+        if (deadline.isBefore(today) && random.nextDouble() < 0.85) {
+            // finished, usually within a few weeks either side of the deadline
+            completion = deadline.plusDays(Math.round(random.nextGaussian() * 30 - 5));
+            if (completion.isAfter(today)) {
+                completion = today;
+            }
+            if (completion.isBefore(startDate)) {
+                completion = startDate;
+            }
+            finalised = random.nextDouble() < 0.9;
+            paidShare = finalised ? 1.0 : 0.7 + 0.3 * random.nextDouble();
+        } else {
+            // still running (or overdue): paid roughly in step with progress
+            double progress = Math.min(1.0, Math.max(0.0,
+                    (double) (today.toEpochDay() - startDate.toEpochDay()) / duration));
+            paidShare = Math.min(1.0, progress * (0.6 + 0.5 * random.nextDouble()));
+        }
+        BigDecimal paid = BigDecimal.valueOf(Math.round(totalFee.doubleValue() * paidShare));
+
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        return new Object[]{buildingType + " " + lastName, buildingType, address(random),
+                String.valueOf(10_000 + random.nextInt(90_000)), totalFee, paid, Date.valueOf(deadline),
+                completion == null ? null : Date.valueOf(completion), Date.valueOf(startDate), finalised,
+                skewed(random, architectIds, 1.5), skewed(random, contractorIds, 2.0), skewed(random, customerIds, 3.0)};
+    }
+
+    private Object[] pickBuildingType(Random random) {
+        int pick = random.nextInt(totalWeight);
+        for (Object[] type : BUILDING_TYPES) {
+            pick -= (Integer) type[1];
+            if (pick < 0) {
+                return type;
+            }
+        }
+        return BUILDING_TYPES[0];
+    }
+
+    /**
+     * Picks an ID so that low positions are chosen much more often than high ones; the higher the skew,
+     * the more projects the busiest people have.
+     */
+    private static int skewed(Random random, int[] ids, double skew) {
+        return ids[(int) (ids.length * Math.pow(random.nextDouble(), skew))];
+    }
+
+    private static String address(Random random) {
+        return (1 + random.nextInt(199)) + " " + STREETS[random.nextInt(STREETS.length)];
+    }
+
+    private static String postCode(Random random) {
+        return AREAS[random.nextInt(AREAS.length)] + (1 + random.nextInt(20)) + " " + random.nextInt(10)
+                + (char) ('A' + random.nextInt(26)) + (char) ('A' + random.nextInt(26));
+    }
+
+    /**
+     * Inserts rows with multi-row {@code INSERT}s of up to the batch size, committing after each one.
+     */
+    private void insertRows(Connection conn, String table, String[] columns, List<Object[]> rows) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            for (int from = 0; from < rows.size(); from += batchRows) {
+                List<Object[]> batch = rows.subList(from, Math.min(rows.size(), from + batchRows));
+                try (PreparedStatement pstmt = conn.prepareStatement(DatabaseBackup.insertSql(table, columns, batch.size()))) {
+                    int index = 1;
+                    for (Object[] row : batch) {
+                        for (Object value : row) {
+                            pstmt.setObject(index++, value);
+                        }
+                    }
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private static void report(String what, long rows, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("Inserted %,d %s in %.1f s (%,.0f rows/s)%n", rows, what, seconds, rows / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * Generates data from the command line.
+     *
+     * @param args Optionally {@code --people N}, {@code --projects N}, {@code --threads N}, {@code --batch N}
+     *             and {@code --seed N}.
+     * @throws Exception If the generation fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int people = 10_000;
+        long projects = 100_000;
+        int threads = 8;
+        int batch = 500;
+        long seed = 42;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--people":
+                    people = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--projects":
+                    projects = Long.parseLong(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.out.println("Usage: java DataGenerator [--people N] [--projects N] [--threads N] [--batch N] [--seed N]");
+                    return;
+            }
+        }
+        if (people < 3 || projects < 0 || threads < 1 || batch < 1) {
+            System.out.println("Use at least 3 people, and at least 1 thread and 1 row per batch.");
+            return;
+        }
+        new DataGenerator(threads, batch, seed).generate(people, projects);
+    }
+}
@@ -0,0 +1,642 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The DatabaseBackup class backs up the Architect, Contractor, Customer and Projects tables, the archived
+ * projects, the project history and the payment ledger to a directory and restores them from it, so the database can be rebuilt without re-running the SQL scripts by hand.
+ *
+ * <p>Run with {@code java DatabaseBackup backup <dir>} or {@code java DatabaseBackup restore <dir>}.</p>
+ *
+ * <p><b>Backup.</b> Every table is split into chunks by key range (its primary key, or the project number
+ * for the history) and the chunks are dumped in parallel by several workers, each on its own connection.
+ * So that all workers see the same data, the tables are briefly locked with
+ * {@code FLUSH TABLES WITH READ LOCK} while each worker starts a
+ * {@code START TRANSACTION WITH CONSISTENT SNAPSHOT}, then unlocked again; the dump itself runs without
+ * blocking writers. If the database user lacks the RELOAD privilege needed for the lock, the backup falls
+ * back to a single snapshot connection, which is still consistent but not parallel. Each chunk is written
+ * to its own GZIP-compressed binary file and a {@code manifest.txt} listing the chunks is written last, so
+ * a directory without a manifest is an incomplete backup.</p>
+ *
+ * <p><b>Restore.</b> The tables (which must already exist, from {@code poisePMS.sql}) are emptied, then the
+ * chunks are loaded in parallel with foreign key and unique checks turned off, using multi-row INSERT
+ * statements and one transaction per chunk.</p>
+ *
+ * <p>Backup and restore need MySQL: they refuse to run against the embedded storage ({@link EmbeddedStorage}),
+ * whose database is backed up by copying its file while the application is stopped.</p>
+ *
+ * <p>Set {@code -Dpoise.backup.workers} (default 4, at most one less than the connection pool size) and
+ * {@code -Dpoise.backup.chunkKeys} (the primary key range per chunk, default 50000).</p>
+ */
+public class DatabaseBackup {
+
+    /** The tables backed up and the numeric key column each is split into chunks by. */
+    static final String[][] TABLES = {
+            {"Architect", "id"},
+            {"Contractor", "id"},
+            {"Customer", "id"},
+            {"Projects", "project_number"},
+            {ProjectArchiver.ARCHIVE_TABLE, "project_number"},
+            {"project_history", "project_number"},
+            {"payments", "payment_id"}
+    };
+
+    private static final String MANIFEST = "manifest.txt";
+    private static final int MAGIC = 0x504D5342; // "PMSB"
+    private static final int VERSION = 1;
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
+    // value tags in the chunk files
+    private static final int NULL = 0;
+    private static final int INT = 1;
+    private static final int LONG = 2;
+    private static final int DECIMAL = 3;
+    private static final int STRING = 4;
+    private static final int DATE = 5;
+    private static final int BOOLEAN = 6;
+    private static final int DOUBLE = 7;
+    private static final int TIMESTAMP = 8;
+    private static final int DATETIME = 9;
+    private static final int BYTES = 10;
+
+    private final int workers;
+    private final long chunkKeys;
+
+    /**
+     * Creates a backup tool with the worker count and chunk size from the system properties.
+     */
+    public DatabaseBackup() {
+        this(Math.max(1, Math.min(Integer.getInteger("poise.backup.workers", 4),
+                        DatabaseConnection.getPool().getMaxSize() - 1)),
+                Long.getLong("poise.backup.chunkKeys", 50_000L));
+    }
+
+    /**
+     * Creates a backup tool.
+     *
+     * @param workers   The number of parallel workers (each uses one pooled connection).
+     * @param chunkKeys The primary key range covered by each chunk.
+     */
+    public DatabaseBackup(int workers, long chunkKeys) {
+        this.workers = workers;
+        this.chunkKeys = chunkKeys;
+    }
+
+    /**
+     * Runs a backup or restore.
+     *
+     * @param args {@code backup <dir>} or {@code restore <dir>}.
+     * @throws Exception If the backup or restore fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 || !("backup".equals(args[0]) || "restore".equals(args[0]))) {
+            System.out.println("Usage: java DatabaseBackup backup|restore <directory>");
+            return;
+        }
+        if (!DatabaseConnection.getStorage().supportsBackup()) {
+            System.out.println(unsupportedMessage());
+            return;
+        }
+        DatabaseBackup tool = new DatabaseBackup();
+        long start = System.nanoTime();
+        long rows = "backup".equals(args[0]) ? tool.backup(Paths.get(args[1])) : tool.restore(Paths.get(args[1]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s of %,d rows finished in %.2f s (%,.0f rows/s)%n",
+                "backup".equals(args[0]) ? "Backup" : "Restore", rows, seconds, rows / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * A primary key range of one table, dumped to or loaded from one file.
+     */
+    private static final class Chunk {
+        final String table;
+        final String primaryKey;
+        final long from;
+        final long to;
+        final String file;
+        long rows;
+
+        Chunk(String table, String primaryKey, long from, long to, String file) {
+            this.table = table;
+            this.primaryKey = primaryKey;
+            this.from = from;
+            this.to = to;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Work done by each parallel worker on its own connection.
+     */
+    private interface Worker {
+        void run(Connection conn) throws Exception;
+    }
+
+    /**
+     * Refuses to run against a backend whose SQL the backup and restore cannot use.
+     */
+    private static void checkStorage() throws SQLFeatureNotSupportedException {
+        if (!DatabaseConnection.getStorage().supportsBackup()) {
+            throw new SQLFeatureNotSupportedException(unsupportedMessage());
+        }
+    }
+
+    private static String unsupportedMessage() {
+        return "DatabaseBackup only works with MySQL, not the " + DatabaseConnection.getStorage().getName()
+                + " storage. Stop the application and copy the database file instead.";
+    }
+
+    // ------------------------------------------------------------------ backup
+
+    /**
+     * Backs up all tables to a directory.
+     *
+     * @param directory The directory to write to; created if it does not exist.
+     * @return The number of rows backed up.
+     * @throws SQLException         If a database access error occurs.
+     * @throws IOException          If a file cannot be written.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public long backup(Path directory) throws SQLException, IOException, InterruptedException {
+        checkStorage();
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(MANIFEST));
+
+        List<Connection> snapshots = openSnapshots();
+        List<String> manifest = new ArrayList<>();
+        List<Chunk> chunks;
+        try {
+            manifest.add("# PoisePMS backup");
+            manifest.add("created " + Instant.now());
+            manifest.add("snapshot " + (snapshots.size() > 1 ? "parallel" : "single-connection"));
+            chunks = planChunks(snapshots.get(0), manifest);
+
+            Queue<Chunk> pending = new ConcurrentLinkedQueue<>(chunks);
+            runWorkers(snapshots, conn -> {
+                Chunk chunk;
+                while ((chunk = pending.poll()) != null) {
+                    dumpChunk(conn, chunk, directory.resolve(chunk.file));
+                }
+            });
+        } finally {
+            for (Connection conn : snapshots) {
+                endSnapshot(conn);
+            }
+        }
+
+        long rows = 0;
+        for (Chunk chunk : chunks) {
+            manifest.add("chunk " + chunk.table + " " + chunk.file + " " + chunk.rows);
+            rows += chunk.rows;
+        }
+        Path partial = directory.resolve(MANIFEST + ".partial");
+        Files.write(partial, manifest, StandardCharsets.UTF_8);
+        Files.move(partial, directory.resolve(MANIFEST)); // the backup is complete once the manifest exists
+        return rows;
+    }
+
+    /**
+     * Opens one connection per worker, all reading from the same consistent snapshot. The tables are locked
+     * only while the snapshots are started. Without the privilege to lock, a single snapshot is used.
+     */
+    private List<Connection> openSnapshots() throws SQLException {
+        Connection lock = DatabaseConnection.getConnection();
+        try (Statement statement = lock.createStatement()) {
+            statement.execute("FLUSH TABLES WITH READ LOCK");
+        } catch (SQLException e) {
+            System.out.println("Could not lock the tables (" + e.getMessage() + "); backing up on one connection.");
+            try {
+                startSnapshot(lock);
+            } catch (SQLException startFailed) {
+                lock.close();
+                throw startFailed;
+            }
+            return Collections.singletonList(lock);
+        }
+
+        List<Connection> snapshots = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                Connection conn = DatabaseConnection.getConnection();
+                snapshots.add(conn);
+                startSnapshot(conn);
+            }
+        } catch (SQLException e) {
+            for (Connection conn : snapshots) {
+                endSnapshot(conn);
+            }
+            throw e;
+        } finally {
+            try (Statement statement = lock.createStatement()) {
+                statement.execute("UNLOCK TABLES");
+            } finally {
+                lock.close();
+            }
+        }
+        return snapshots;
+    }
+
+    private static void startSnapshot(Connection conn) throws SQLException {
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        conn.setAutoCommit(false);
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+        }
+    }
+
+    /** Ends a snapshot transaction and returns the connection to the pool, ignoring errors. */
+    private static void endSnapshot(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            // the connection is being given back anyway
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // nothing more can be done
+        }
+    }
+
+    /**
+     * Splits each table into primary key ranges, reading the key bounds from the snapshot.
+     */
+    private List<Chunk> planChunks(Connection conn, List<String> manifest) throws SQLException {
+        List<Chunk> chunks = new ArrayList<>();
+        for (String[] table : TABLES) {
+            String sql = "SELECT MIN(" + table[1] + "), MAX(" + table[1] + "), COUNT(*) FROM " + table[0];
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery(sql)) {
+                rs.next();
+                long min = rs.getLong(1);
+                long max = rs.getLong(2);
+                manifest.add("table " + table[0] + " " + table[1] + " " + rs.getLong(3));
+                if (rs.getLong(3) == 0) {
+                    continue;
+                }
+                int sequence = 0;
+                for (long from = min; from <= max; from += chunkKeys) {
+                    long to = Math.min(max, from + chunkKeys - 1);
+                    chunks.add(new Chunk(table[0], table[1], from, to,
+                            String.format("%s-%05d.bin.gz", table[0], sequence++)));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Writes the rows of one chunk to a file.
+     */
+    private static void dumpChunk(Connection conn, Chunk chunk, Path file) throws SQLException, IOException {
+        String sql = "SELECT * FROM " + chunk.table + " WHERE " + chunk.primaryKey + " BETWEEN ? AND ? ORDER BY "
+                + chunk.primaryKey;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     new GZIPOutputStream(Files.newOutputStream(file), 1 << 16), 1 << 16))) {
+            pstmt.setFetchSize(DatabaseConnection.getStorage().getStreamingFetchSize());
+            pstmt.setLong(1, chunk.from);
+            pstmt.setLong(2, chunk.to);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeUTF(chunk.table);
+                out.writeShort(columns);
+                for (int i = 1; i <= columns; i++) {
+                    out.writeUTF(meta.getColumnLabel(i));
+                }
+                while (rs.next()) {
+                    out.writeBoolean(true);
+                    for (int i = 1; i <= columns; i++) {
+                        writeValue(out, rs.getObject(i));
+                    }
+                    chunk.rows++;
+                }
+                out.writeBoolean(false);
+            }
+        }
+    }
+
+    /**
+     * Writes a column value as a tag byte followed by its compact binary form.
+     */
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            byte[] unscaled = decimal.unscaledValue().toByteArray();
+            out.writeByte(DECIMAL);
+            out.writeByte(decimal.scale());
+            out.writeByte(unscaled.length);
+            out.write(unscaled);
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeInt((int) ((Date) value).toLocalDate().toEpochDay());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte(DATETIME);
+            out.writeLong(((LocalDateTime) value).toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(((LocalDateTime) value).getNano());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else {
+            throw new IOException("Cannot back up a value of type " + value.getClass().getName());
+        }
+    }
+
+    // ------------------------------------------------------------------ restore
+
+    /**
+     * Restores all tables from a backup directory, replacing their current contents.
+     *
+     * @param directory The backup directory.
+     * @return The number of rows restored.
+     * @throws SQLException         If a database access error occurs.
+     * @throws IOException          If the backup is missing, incomplete or unreadable.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public long restore(Path directory) throws SQLException, IOException, InterruptedException {
+        checkStorage();
+        Path manifestFile = directory.resolve(MANIFEST);
+        if (!Files.exists(manifestFile)) {
+            throw new IOException("No complete backup in " + directory + " (" + MANIFEST + " is missing)");
+        }
+        List<String> tables = new ArrayList<>();
+        List<Chunk> chunks = new ArrayList<>();
+        for (String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+            String[] parts = line.split(" ");
+            if ("table".equals(parts[0])) {
+                tables.add(parts[1]);
+            } else if ("chunk".equals(parts[0])) {
+                Chunk chunk = new Chunk(parts[1], null, 0, 0, parts[2]);
+                chunk.rows = Long.parseLong(parts[3]);
+                chunks.add(chunk);
+            }
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+            try {
+                for (String table : tables) {
+                    statement.execute("TRUNCATE TABLE " + table);
+                }
+            } finally {
+                statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+        }
+
+        AtomicLong rows = new AtomicLong();
+        Queue<Chunk> pending = new ConcurrentLinkedQueue<>(chunks);
+        List<Connection> loaders = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(workers, Math.max(1, chunks.size())); i++) {
+                loaders.add(DatabaseConnection.getConnection());
+            }
+            runWorkers(loaders, conn -> {
+                try (Statement statement = conn.createStatement()) {
+                    statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+                    statement.execute("SET UNIQUE_CHECKS = 0");
+                }
+                conn.setAutoCommit(false);
+                try {
+                    Chunk chunk;
+                    while ((chunk = pending.poll()) != null) {
+                        long loaded = loadChunk(conn, directory.resolve(chunk.file));
+                        if (loaded != chunk.rows) {
+                            throw new IOException(chunk.file + " holds " + loaded + " rows, expected " + chunk.rows);
+                        }
+                        conn.commit();
+                        rows.addAndGet(loaded);
+                    }
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    try (Statement statement = conn.createStatement()) {
+                        statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+                        statement.execute("SET UNIQUE_CHECKS = 1");
+                    }
+                }
+            });
+        } finally {
+            for (Connection conn : loaders) {
+                conn.close();
+            }
+        }
+        return rows.get();
+    }
+
+    /**
+     * Loads one chunk file with multi-row INSERT statements.
+     *
+     * @return The number of rows loaded.
+     */
+    private static long loadChunk(Connection conn, Path file) throws SQLException, IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 1 << 16), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException(file + " is not a PoisePMS backup chunk");
+            }
+            String table = in.readUTF();
+            String[] columns = new String[in.readShort()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = in.readUTF();
+            }
+            int batchRows = Math.min(MAX_ROWS_PER_INSERT, 65_535 / columns.length); // MySQL's placeholder limit
+
+            List<Object[]> batch = new ArrayList<>(batchRows);
+            PreparedStatement fullBatch = null;
+            long rows = 0;
+            try {
+                while (in.readBoolean()) {
+                    Object[] row = new Object[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        row[i] = readValue(in);
+                    }
+                    batch.add(row);
+                    rows++;
+                    if (batch.size() == batchRows) {
+                        if (fullBatch == null) {
+                            fullBatch = conn.prepareStatement(insertSql(table, columns, batchRows));
+                        }
+                        insert(fullBatch, batch);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    try (PreparedStatement lastBatch = conn.prepareStatement(insertSql(table, columns, batch.size()))) {
+                        insert(lastBatch, batch);
+                    }
+                }
+            } finally {
+                if (fullBatch != null) {
+                    fullBatch.close();
+                }
+            }
+            return rows;
+        }
+    }
+
+    static String insertSql(String table, String[] columns, int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(columns[i]);
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") VALUES ");
+        placeholders.append(')');
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    private static void insert(PreparedStatement pstmt, List<Object[]> batch) throws SQLException {
+        int index = 1;
+        for (Object[] row : batch) {
+            for (Object value : row) {
+                pstmt.setObject(index++, value);
+            }
+        }
+        pstmt.executeUpdate();
+        batch.clear();
+    }
+
+    /**
+     * Reads a column value written by {@link #writeValue(DataOutputStream, Object)}.
+     */
+    static Object readValue(DataInputStream in) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DECIMAL: {
+                int scale = in.readByte();
+                byte[] unscaled = new byte[in.readUnsignedByte()];
+                in.readFully(unscaled);
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            case STRING: {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case DATE:
+                return Date.valueOf(LocalDate.ofEpochDay(in.readInt()));
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case TIMESTAMP: {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            }
+            case DATETIME:
+                return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            case BYTES: {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    // ------------------------------------------------------------------ workers
+
+    /**
+     * Runs the same work on each connection in parallel, one thread per connection, and waits for all of
+     * them. The first failure is rethrown once every worker has stopped.
+     */
+    private static void runWorkers(List<Connection> connections, Worker worker)
+            throws SQLException, IOException, InterruptedException {
+        List<Future<Void>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(connections.size())) {
+            for (Connection conn : connections) {
+                futures.add(executor.submit(() -> {
+                    worker.run(conn);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    futures.forEach(other -> other.cancel(true));
+                    if (e.getCause() instanceof SQLException) {
+                        throw (SQLException) e.getCause();
+                    }
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+    }
+}
@@ -1,14 +1,23 @@
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * The {@code DatabaseConnection} class provides a utility method to establish a connection to the
- * MySQL database used by the PoisePMS system.
+ * database used by the PoisePMS system.
  *
  * <p>This class centralizes the logic for creating a database connection, allowing other classes
  * within the system to reuse it by calling {@link #getConnection()}.</p>
  *
+ * <p>Connections are handed out from a shared {@link ConnectionPool}, so the number of connections open
+ * against MySQL stays bounded however many users or threads are active. Closing a connection returns it
+ * to the pool. The connection details and pool size can be overridden with the {@code poise.db.url},
+ * {@code poise.db.user}, {@code poise.db.password}, {@code poise.db.poolSize} and
+ * {@code poise.db.poolTimeoutMs} system properties.</p>
+ *
+ * <p>The database is MySQL unless {@code -Dpoise.storage=embedded} selects the embedded engine; see
+ * {@link StorageBackend}. The backend is prepared (for example, the embedded tables are created) before
+ * the first connection is handed out.</p>
+ *
  * <p>Example usage:</p>
  * <pre>
  * {@code
@@ -27,33 +36,95 @@ import java.sql.SQLException;
 public class DatabaseConnection {
 
     /**
-     * The URL for connecting to the MySQL database. It specifies the database location and the database name.
+     * The database the data is kept in, chosen with the {@code poise.storage} system property.
+     */
+    private static final StorageBackend STORAGE = StorageBackend.fromSystemProperties();
+
+    /**
+     * The URL for connecting to the database. It specifies the database location and the database name.
      * Change or update this to suit your own database connection.
      */
-    private static final String URL = "jdbc:mysql://localhost:3306/PoisePMS";
+    private static final String URL = System.getProperty("poise.db.url", STORAGE.getDefaultUrl());
 
     /**
-     * The username for the MySQL database connection.
+     * The username for the database connection.
      * Change or update to suit your own user details.
      */
-    private static final String USER = "otheruser";
+    private static final String USER = System.getProperty("poise.db.user", STORAGE.getDefaultUser());
 
     /**
-     * The password for the MySQL database connection.
+     * The password for the database connection.
      * Change or update to suit your own database password.
      */
-    private static final String PASSWORD = "swordfish";
+    private static final String PASSWORD = System.getProperty("poise.db.password", STORAGE.getDefaultPassword());
+
+    /**
+     * The maximum number of connections that can be open against the database at the same time.
+     */
+    private static final int POOL_SIZE = Integer.getInteger("poise.db.poolSize", 10);
+
+    /**
+     * How long, in milliseconds, a caller waits for a free connection before an error is raised.
+     */
+    private static final long POOL_TIMEOUT_MS = Long.getLong("poise.db.poolTimeoutMs", 30000L);
+
+    /**
+     * The shared pool that every part of the system borrows connections from.
+     */
+    private static final ConnectionPool POOL = new ConnectionPool(URL, USER, PASSWORD, POOL_SIZE, POOL_TIMEOUT_MS);
+
+    /**
+     * Whether the storage backend has been prepared.
+     */
+    private static volatile boolean initialised;
 
     /**
-     * Establishes and returns a connection to the MySQL database using the defined URL, username, and password.
+     * Borrows a connection to the database from the shared pool, opening one with the defined URL,
+     * username, and password if needed.
      *
-     * <p>This method will create a new connection every time it is called. Ensure that the connection is properly
-     * closed after use to avoid potential resource leaks.</p>
+     * <p>If every pooled connection is in use this method waits for one to be returned. Ensure that the
+     * connection is properly closed after use so that it goes back to the pool.</p>
      *
      * @return A {@link Connection} object representing the established connection to the database.
      * @throws SQLException If a database access error occurs or the URL, username, or password is incorrect.
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        if (!initialised) {
+            initialise();
+        }
+        return POOL.borrow();
+    }
+
+    /**
+     * Prepares the storage backend once, before the first connection is handed out.
+     *
+     * @throws SQLException If the backend cannot be prepared; the next call tries again.
+     */
+    private static synchronized void initialise() throws SQLException {
+        if (initialised) {
+            return;
+        }
+        try (Connection conn = POOL.borrow()) {
+            STORAGE.initialise(conn);
+        }
+        initialised = true;
+    }
+
+    /**
+     * Returns the shared connection pool, for example to report how many connections are in use.
+     *
+     * @return The shared {@link ConnectionPool}.
+     */
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+
+    /**
+     * Returns the storage backend the connections point to.
+     *
+     * @return The configured {@link StorageBackend}.
+     */
+    public static StorageBackend getStorage() {
+        return STORAGE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DeadlineAlerts class tells customers and contractors when an open project is about to reach, or has
+ * passed, its deadline.
+ *
+ * <p>A project crosses a threshold of {@code T} days on the date {@code deadline_date - T}, so a threshold
+ * of 7 is crossed a week before the deadline, 0 on the deadline itself and -1 on the first day it is
+ * overdue. The thresholds are set with {@code poise.alerts.thresholds} (default {@code 14,7,0,-1}).</p>
+ *
+ * <p>Each run only looks at the dates since the previous run, which are kept in a watermark file, rather
+ * than rescanning every project: a threshold crossed between the day after the watermark and today can
+ * only belong to a project whose deadline falls in a window a few days wider than that, which is one range
+ * scan of the {@code (finalised, deadline_date)} index. If a project crosses several thresholds in one
+ * window (for example after the alerts have not run for a while) only the most urgent is reported.
+ * Deadlines moved into a window that has already been checked are not alerted until the next threshold.</p>
+ *
+ * <p>Alerts are appended to {@code alerts.jsonl}, with a plain text digest for each customer and
+ * contractor, in a folder per run date under {@code alerts} ({@code poise.alerts.dir}). The watermark is
+ * moved on only after everything has been written, so a run that fails part way is repeated in full.
+ * With {@code -Dpoise.alerts.enabled=true} the alerts run every hour ({@code poise.alerts.intervalMinutes});
+ * {@code java DeadlineAlerts} runs them once.</p>
+ */
+public class DeadlineAlerts {
+
+    private static final String CROSSING_QUERY =
+            "SELECT p.project_number, p.project_name, p.deadline_date, p.customer_id, p.contractor_id, "
+            + "CONCAT_WS(' ', c.first_name, c.last_name) AS contractor_name, "
+            + "CONCAT_WS(' ', cu.first_name, cu.last_name) AS customer_name "
+            + "FROM Projects p "
+            + "JOIN Contractor c ON c.id = p.contractor_id "
+            + "JOIN Customer cu ON cu.id = p.customer_id "
+            + "WHERE p.finalised = 0 AND p.completion_date IS NULL AND p.deleted_at IS NULL "
+            + "AND p.deadline_date > ? AND p.deadline_date <= ? "
+            + "ORDER BY p.deadline_date, p.project_number";
+
+    private static final DeadlineAlerts INSTANCE = new DeadlineAlerts(
+            Paths.get(System.getProperty("poise.alerts.dir", "alerts")),
+            parseThresholds(System.getProperty("poise.alerts.thresholds", "14,7,0,-1")));
+
+    private final Path directory;
+    private final int[] thresholds;
+
+    private ScheduledExecutorService scheduler;
+    private long runs;
+    private long lastRunMillis = -1;
+    private int lastAlertCount;
+    private LocalDate lastRunDate;
+
+    DeadlineAlerts(Path directory, int[] thresholds) {
+        this.directory = directory;
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Returns the shared alert service.
+     *
+     * @return The alert service.
+     */
+    public static DeadlineAlerts getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts running the alerts on a schedule if {@code poise.alerts.enabled} is set. Calling this more
+     * than once has no further effect.
+     */
+    public synchronized void startIfEnabled() {
+        if (scheduler != null || !Boolean.getBoolean("poise.alerts.enabled")) {
+            return;
+        }
+        long minutes = Long.getLong("poise.alerts.intervalMinutes", 60L);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deadline-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                run(LocalDate.now());
+            } catch (SQLException | IOException e) {
+                System.out.println("Deadline alerts failed, retrying next run: " + e.getMessage());
+            }
+        }, 0, minutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Finds the projects that have crossed a threshold since the last run, up to and including a date,
+     * writes their alerts and moves the watermark on to that date.
+     *
+     * @param today The last date to check, normally today.
+     * @return The number of alerts written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If the alerts or watermark cannot be written.
+     */
+    public int run(LocalDate today) throws SQLException, IOException {
+        long start = System.nanoTime();
+        LocalDate watermark = readWatermark(today);
+        List<Map<String, Object>> alerts = new ArrayList<>();
+        if (watermark.isBefore(today)) {
+            alerts = findCrossings(watermark, today);
+            writeAlerts(today, alerts);
+            writeWatermark(today);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        synchronized (this) {
+            runs++;
+            lastRunMillis = millis;
+            lastAlertCount = alerts.size();
+            lastRunDate = today;
+        }
+        if (watermark.isBefore(today)) {
+            // the hourly runs in between have nothing to check, so they stay quiet
+            System.out.printf("Deadline alerts: %d alerts for %s to %s in %d ms%n", alerts.size(),
+                    watermark.plusDays(1), today, millis);
+        }
+        return alerts.size();
+    }
+
+    /**
+     * Finds the open projects that crossed a threshold after one date, up to and including another.
+     */
+    private List<Map<String, Object>> findCrossings(LocalDate after, LocalDate upTo) throws SQLException {
+        List<Map<String, Object>> alerts = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(CROSSING_QUERY)) {
+            // threshold T is crossed in the window when after < deadline - T <= upTo
+            pstmt.setDate(1, Date.valueOf(after.plusDays(thresholds[0])));
+            pstmt.setDate(2, Date.valueOf(upTo.plusDays(thresholds[thresholds.length - 1])));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate deadline = rs.getDate("deadline_date").toLocalDate();
+                    Integer threshold = crossedThreshold(deadline, after, upTo, thresholds);
+                    if (threshold == null) {
+                        continue;
+                    }
+                    Map<String, Object> alert = new LinkedHashMap<>();
+                    alert.put("project_number", rs.getInt("project_number"));
+                    alert.put("project_name", rs.getString("project_name"));
+                    alert.put("deadline_date", deadline.toString());
+                    alert.put("threshold_days", threshold);
+                    alert.put("message", describe(threshold));
+                    alert.put("customer_id", rs.getInt("customer_id"));
+                    alert.put("customer_name", rs.getString("customer_name"));
+                    alert.put("contractor_id", rs.getInt("contractor_id"));
+                    alert.put("contractor_name", rs.getString("contractor_name"));
+                    alerts.add(alert);
+                }
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Returns the most urgent (smallest) threshold crossed by a deadline in a window.
+     *
+     * @param deadline   The deadline.
+     * @param after      The day before the window.
+     * @param upTo       The last day of the window.
+     * @param thresholds The thresholds, smallest first.
+     * @return The threshold in days, or null if none was crossed.
+     */
+    static Integer crossedThreshold(LocalDate deadline, LocalDate after, LocalDate upTo, int[] thresholds) {
+        for (int threshold : thresholds) {
+            LocalDate crossing = deadline.minusDays(threshold);
+            if (crossing.isAfter(after) && !crossing.isAfter(upTo)) {
+                return threshold;
+            }
+        }
+        return null;
+    }
+
+    private static String describe(int threshold) {
+        if (threshold > 0) {
+            return "Due in " + threshold + (threshold == 1 ? " day" : " days");
+        }
+        if (threshold == 0) {
+            return "Due today";
+        }
+        return "Overdue by " + -threshold + (threshold == -1 ? " day" : " days");
+    }
+
+    /**
+     * Appends the alerts to the run date's alert log and to each customer's and contractor's digest.
+     */
+    private void writeAlerts(LocalDate today, List<Map<String, Object>> alerts) throws IOException {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        Path folder = directory.resolve(today.toString());
+        Files.createDirectories(folder);
+
+        StringBuilder log = new StringBuilder();
+        Map<String, StringBuilder> digests = new TreeMap<>();
+        for (Map<String, Object> alert : alerts) {
+            log.append(Json.write(alert)).append('\n');
+            String line = String.format("%s: project %s (%s), deadline %s%n", alert.get("message"),
+                    alert.get("project_number"), alert.get("project_name") == null ? "unnamed" : alert.get("project_name"),
+                    alert.get("deadline_date"));
+            digest(digests, "customer-" + alert.get("customer_id"), alert.get("customer_name")).append(line);
+            digest(digests, "contractor-" + alert.get("contractor_id"), alert.get("contractor_name")).append(line);
+        }
+        append(folder.resolve("alerts.jsonl"), log.toString());
+        for (Map.Entry<String, StringBuilder> digest : digests.entrySet()) {
+            append(folder.resolve(digest.getKey() + ".txt"), digest.getValue().toString());
+        }
+    }
+
+    private static StringBuilder digest(Map<String, StringBuilder> digests, String name, Object person) {
+        return digests.computeIfAbsent(name, key -> new StringBuilder("Project deadlines for " + person + ":\n"));
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads the date of the last run, or yesterday if the alerts have never run.
+     */
+    private LocalDate readWatermark(LocalDate today) throws IOException {
+        Path file = directory.resolve("watermark");
+        if (!Files.exists(file)) {
+            return today.minusDays(1);
+        }
+        return LocalDate.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+    }
+
+    private void writeWatermark(LocalDate date) throws IOException {
+        Files.createDirectories(directory);
+        Path partial = directory.resolve("watermark.partial");
+        Files.write(partial, date.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(partial, directory.resolve("watermark"), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the number of runs so far and the duration, alert count and date of the last one.
+     *
+     * @return The alert run metrics.
+     */
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("runs", runs);
+        metrics.put("lastRunMillis", lastRunMillis);
+        metrics.put("lastAlertCount", lastAlertCount);
+        metrics.put("lastRunDate", lastRunDate == null ? null : lastRunDate.toString());
+        return metrics;
+    }
+
+    /**
+     * Parses a comma separated list of thresholds in days, returning them smallest first.
+     */
+    static int[] parseThresholds(String text) {
+        int[] thresholds = Arrays.stream(text.split(",")).map(String::trim).mapToInt(Integer::parseInt)
+                .sorted().distinct().toArray();
+        if (thresholds.length == 0) {
+            throw new IllegalArgumentException("At least one alert threshold is needed");
+        }
+        return thresholds;
+    }
+
+    /**
+     * Runs the alerts once.
+     *
+     * @param args Optionally the date to run up to (YYYY-MM-DD), defaulting to today.
+     * @throws Exception If the run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        LocalDate today = args.length > 0 ? LocalDate.parse(args[0]) : LocalDate.now();
+        DeadlineAlerts alerts = getInstance();
+        if (!alerts.readWatermark(today).isBefore(today)) {
+            System.out.println("Deadline alerts have already been checked up to " + today + ".");
+            return;
+        }
+        alerts.run(today);
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The EmbeddedStorage class keeps the PoisePMS data in an H2 database that runs inside the application,
+ * for laptops, demos and tests where no MySQL server is available. Select it with
+ * {@code -Dpoise.storage=embedded} and put the H2 jar on the classpath, e.g. {@code java -cp "out:lib/*"}.
+ *
+ * <p>The data is kept in {@code data/poise.mv.db} ({@code -Dpoise.embedded.file=data/poise}), which H2
+ * writes through its own log, so it survives restarts and crashes. H2 runs in its MySQL compatibility mode,
+ * which accepts most of the queries the rest of the system sends; the few that differ (streaming fetch size,
+ * month formatting, ordered deletes) come from this class. {@link DatabaseBackup} relies on MySQL-only
+ * statements and refuses to run here. When the file does not exist yet the tables
+ * are created from {@code poiseEmbedded.sql} ({@code -Dpoise.embedded.schema}) and, unless
+ * {@code -Dpoise.embedded.sampleData=false}, filled with the rows in {@code addTableData.sql}. Opening
+ * an existing database takes well under a second.</p>
+ */
+public class EmbeddedStorage implements StorageBackend {
+
+    private static final String[] ID_COLUMNS = {"Architect", "id", "Contractor", "id", "Customer", "id",
+            "Projects", "project_number"};
+
+    /** Projects are numbered from 1001, as in {@code poisePMS.sql}. */
+    private static final long FIRST_PROJECT_NUMBER = 1001;
+
+    @Override
+    public String getName() {
+        return "embedded";
+    }
+
+    @Override
+    public String getDefaultUrl() {
+        Path file = Paths.get(System.getProperty("poise.embedded.file", "data/poise")).toAbsolutePath();
+        return "jdbc:h2:file:" + file + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+    }
+
+    @Override
+    public String getDefaultUser() {
+        return "sa";
+    }
+
+    @Override
+    public String getDefaultPassword() {
+        return "";
+    }
+
+    /**
+     * Creates the tables, and adds the sample data, if the database is new.
+     */
+    @Override
+    public void initialise(Connection conn) throws SQLException {
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                     + "WHERE LOWER(TABLE_NAME) = 'projects'")) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                return;
+            }
+        }
+
+        long start = System.nanoTime();
+        Path schema = Paths.get(System.getProperty("poise.embedded.schema", "poiseEmbedded.sql"));
+        Path sampleData = Paths.get("addTableData.sql");
+        boolean addSampleData = Boolean.parseBoolean(System.getProperty("poise.embedded.sampleData", "true"))
+                && Files.exists(sampleData);
+        conn.setAutoCommit(false);
+        try {
+            runScript(conn, schema);
+            if (addSampleData) {
+                runScript(conn, sampleData);
+                restartIdentities(conn);
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        System.out.printf("Created the embedded database%s in %d ms%n", addSampleData ? " with sample data" : "",
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Runs each statement of an SQL file. Comment lines and the MySQL-only {@code CREATE DATABASE} and
+     * {@code USE} statements are skipped.
+     *
+     * @param conn   Connection to the database.
+     * @param script The SQL file, with statements ending in semicolons.
+     * @return The number of statements run.
+     * @throws SQLException If the file cannot be read or a statement fails.
+     */
+    static int runScript(Connection conn, Path script) throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        try {
+            for (String line : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+                String trimmed = line.trim();
+                if (!trimmed.startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot read " + script.toAbsolutePath(), e);
+        }
+
+        int statements = 0;
+        try (Statement statement = conn.createStatement()) {
+            for (String part : sql.toString().split(";")) {
+                String trimmed = part.trim();
+                String upper = trimmed.toUpperCase();
+                if (trimmed.isEmpty() || upper.startsWith("USE ") || upper.startsWith("CREATE DATABASE")) {
+                    continue;
+                }
+                statement.execute(trimmed);
+                statements++;
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Moves each table's generated IDs on past the rows the sample data added with explicit IDs, which
+     * H2, unlike MySQL, does not do by itself.
+     */
+    private static void restartIdentities(Connection conn) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            for (int i = 0; i < ID_COLUMNS.length; i += 2) {
+                long next;
+                try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(" + ID_COLUMNS[i + 1] + "), 0) + 1 FROM "
+                        + ID_COLUMNS[i])) {
+                    rs.next();
+                    next = rs.getLong(1);
+                }
+                if ("Projects".equals(ID_COLUMNS[i])) {
+                    next = Math.max(next, FIRST_PROJECT_NUMBER);
+                }
+                statement.execute("ALTER TABLE " + ID_COLUMNS[i] + " ALTER COLUMN " + ID_COLUMNS[i + 1]
+                        + " RESTART WITH " + next);
+            }
+        }
+    }
+
+    /**
+     * Returns 1, the caller's own statement: the embedded database only serves this application, whose
+     * other work the {@link PurgeWorker} already sees through the connection pool.
+     */
+    @Override
+    public long getRunningStatements(Connection conn) {
+        return 1;
+    }
+
+    /**
+     * H2 cannot order the rows of a {@code DELETE}, so the oldest rows are chosen by a subquery.
+     */
+    @Override
+    public String deleteOldest(String table, String primaryKey, String condition, String orderColumn) {
+        return "DELETE FROM " + table + " WHERE " + primaryKey + " IN (SELECT " + primaryKey + " FROM " + table
+                + " WHERE " + condition + " ORDER BY " + orderColumn + " FETCH FIRST ? ROWS ONLY)";
+    }
+
+    /**
+     * Returns a fetch size of 1000 rows; H2 does not accept the negative size MySQL uses to stream.
+     */
+    @Override
+    public int getStreamingFetchSize() {
+        return 1000;
+    }
+
+    @Override
+    public String monthOf(String date) {
+        return "FORMATDATETIME(" + date + ", 'yyyy-MM')";
+    }
+
+    /**
+     * Returns false: {@code DatabaseBackup} needs MySQL's snapshot and lock statements. Back up the embedded
+     * database by copying its file while the application is stopped.
+     */
+    @Override
+    public boolean supportsBackup() {
+        return false;
+    }
+}
@@ -0,0 +1,332 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The FinancialReports class produces the revenue and balance reports for the PoisePMS system.
+ *
+ * <p>Each report is a single {@code GROUP BY} query, so the summing is done by MySQL rather than by
+ * reading every project into Java. Money columns are {@code DECIMAL} in the database and are read back
+ * as {@link java.math.BigDecimal}, so totals are exact to the penny.</p>
+ *
+ * <p>Results are cached for a short time (60 seconds by default, set with {@code poise.reports.ttlMs})
+ * because the same report is often requested several times in a row. Every report records how long its
+ * query took, so the cost of each report can be seen as the number of projects grows.</p>
+ */
+public class FinancialReports {
+
+    /** Stands in a report query for the month of each project, which is written differently by each backend. */
+    private static final String MONTH = "{month}";
+
+    /**
+     * The reports that can be run, each with the query that produces it.
+     */
+    public enum Report {
+        OUTSTANDING_BALANCE("outstanding-balance", "Outstanding balance by customer",
+                "SELECT p.customer_id, CONCAT_WS(' ', cu.first_name, cu.last_name) AS customer_name, "
+                + "COUNT(*) AS projects, SUM(p.total_fee_gbp) AS total_fees, SUM(p.paid_to_date_gbp) AS paid_to_date, "
+                + "SUM(p.total_fee_gbp - p.paid_to_date_gbp) AS outstanding "
+                + "FROM Projects p JOIN Customer cu ON cu.id = p.customer_id WHERE p.deleted_at IS NULL "
+                + "GROUP BY p.customer_id, cu.first_name, cu.last_name "
+                + "HAVING outstanding > 0 ORDER BY outstanding DESC"),
+        REVENUE_BY_BUILDING_TYPE("revenue-by-building-type", "Revenue by building type",
+                "SELECT building_type, COUNT(*) AS projects, SUM(total_fee_gbp) AS total_fees, "
+                + "SUM(paid_to_date_gbp) AS paid_to_date, SUM(total_fee_gbp - paid_to_date_gbp) AS outstanding "
+                + "FROM Projects WHERE deleted_at IS NULL GROUP BY building_type ORDER BY total_fees DESC"),
+        REVENUE_BY_MONTH("revenue-by-month", "Revenue by month (completion month, or deadline month if not complete)",
+                "SELECT " + MONTH + " AS `month`, COUNT(*) AS projects, "
+                + "SUM(total_fee_gbp) AS total_fees, SUM(paid_to_date_gbp) AS paid_to_date, "
+                + "SUM(total_fee_gbp - paid_to_date_gbp) AS outstanding "
+                + "FROM Projects WHERE deleted_at IS NULL GROUP BY `month` ORDER BY `month`"),
+        ARCHITECT_TOTALS("architect-totals", "Totals by architect",
+                "SELECT p.architect_id, CONCAT_WS(' ', a.first_name, a.last_name) AS architect_name, "
+                + "COUNT(*) AS projects, SUM(p.total_fee_gbp) AS total_fees, SUM(p.paid_to_date_gbp) AS paid_to_date, "
+                + "SUM(p.total_fee_gbp - p.paid_to_date_gbp) AS outstanding "
+                + "FROM Projects p JOIN Architect a ON a.id = p.architect_id WHERE p.deleted_at IS NULL "
+                + "GROUP BY p.architect_id, a.first_name, a.last_name ORDER BY total_fees DESC"),
+        CONTRACTOR_TOTALS("contractor-totals", "Totals by contractor",
+                "SELECT p.contractor_id, CONCAT_WS(' ', c.first_name, c.last_name) AS contractor_name, "
+                + "COUNT(*) AS projects, SUM(p.total_fee_gbp) AS total_fees, SUM(p.paid_to_date_gbp) AS paid_to_date, "
+                + "SUM(p.total_fee_gbp - p.paid_to_date_gbp) AS outstanding "
+                + "FROM Projects p JOIN Contractor c ON c.id = p.contractor_id WHERE p.deleted_at IS NULL "
+                + "GROUP BY p.contractor_id, c.first_name, c.last_name ORDER BY total_fees DESC");
+
+        private final String key;
+        private final String title;
+        private final String query;
+
+        Report(String key, String title, String query) {
+            this.key = key;
+            this.title = title;
+            this.query = query;
+        }
+
+        /**
+         * Returns the short name used to request this report, e.g. {@code revenue-by-month}.
+         *
+         * @return The report key.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the query behind this report, in the SQL of the storage backend in use.
+         *
+         * @return The query text.
+         */
+        String getQuery() {
+            return query.replace(MONTH,
+                    DatabaseConnection.getStorage().monthOf("COALESCE(completion_date, deadline_date)"));
+        }
+
+        /**
+         * Returns the heading shown above this report.
+         *
+         * @return The report title.
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Finds a report by its key.
+         *
+         * @param key The report key.
+         * @return The report, or null if there is no report with that key.
+         */
+        public static Report fromKey(String key) {
+            for (Report report : values()) {
+                if (report.key.equals(key)) {
+                    return report;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The rows of a report along with when and how quickly they were produced.
+     */
+    public static final class Result {
+        private final Report report;
+        private final List<Map<String, Object>> rows;
+        private final long createdAtMillis;
+        private final long queryNanos;
+
+        Result(Report report, List<Map<String, Object>> rows, long createdAtMillis, long queryNanos) {
+            this.report = report;
+            this.rows = Collections.unmodifiableList(rows);
+            this.createdAtMillis = createdAtMillis;
+            this.queryNanos = queryNanos;
+        }
+
+        /**
+         * Returns which report this is a result of.
+         *
+         * @return The report.
+         */
+        public Report getReport() {
+            return report;
+        }
+
+        /**
+         * Returns the report rows, each keyed by column name.
+         *
+         * @return The rows.
+         */
+        public List<Map<String, Object>> getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns when this result was produced.
+         *
+         * @return The time in milliseconds since the epoch.
+         */
+        public long getCreatedAtMillis() {
+            return createdAtMillis;
+        }
+
+        /**
+         * Returns how long the query behind this result took to run, in milliseconds.
+         *
+         * @return The query time in milliseconds.
+         */
+        public double getQueryMillis() {
+            return queryNanos / 1e6;
+        }
+
+        /**
+         * Converts the result to a map suitable for returning as JSON.
+         *
+         * @return The result as a map.
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("report", report.getKey());
+            map.put("title", report.getTitle());
+            map.put("generated_at", new Timestamp(createdAtMillis).toString());
+            map.put("query_ms", getQueryMillis());
+            map.put("rows", rows);
+            return map;
+        }
+    }
+
+    private final long ttlMillis;
+    private final Map<Report, Result> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the reports module with the cache time from {@code poise.reports.ttlMs}.
+     */
+    public FinancialReports() {
+        this(Long.getLong("poise.reports.ttlMs", 60_000L));
+    }
+
+    /**
+     * Creates the reports module with a given cache time.
+     *
+     * @param ttlMillis How long a report result is reused before it is run again.
+     */
+    public FinancialReports(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Shows the financial reports menu and runs the chosen report.
+     *
+     * @param scanner Scanner object to read user input.
+     */
+    public void reportsMenu(Scanner scanner) {
+        Report[] reports = Report.values();
+        while (true) {
+            System.out.println("Financial Reports Menu:");
+            for (int i = 0; i < reports.length; i++) {
+                System.out.println((i + 1) + ": " + reports[i].getTitle());
+            }
+            System.out.println("0: Back to main menu");
+            System.out.println();
+            System.out.print("Please select an option: ");
+
+            String input = scanner.nextLine().trim();
+            int choice;
+            try {
+                choice = Integer.parseInt(input);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a number.");
+                continue;
+            }
+            if (choice == 0) {
+                return;
+            }
+            if (choice < 1 || choice > reports.length) {
+                System.out.println("Invalid choice. Please enter a number from the menu.");
+                continue;
+            }
+            System.out.println();
+            displayReport(reports[choice - 1]);
+        }
+    }
+
+    /**
+     * Runs a report (or reuses a recent result) and prints it.
+     *
+     * @param report The report to display.
+     */
+    public void displayReport(Report report) {
+        try {
+            Result result = getReport(report);
+            System.out.println(report.getTitle() + ":");
+            for (Map<String, Object> row : result.getRows()) {
+                StringBuilder line = new StringBuilder();
+                for (Map.Entry<String, Object> entry : row.entrySet()) {
+                    if (line.length() > 0) {
+                        line.append(" | ");
+                    }
+                    line.append(entry.getKey()).append(": ").append(entry.getValue());
+                }
+                System.out.println(line);
+            }
+            System.out.printf("%d rows. Query took %.1f ms (generated %s).%n", result.getRows().size(),
+                    result.getQueryMillis(), new Timestamp(result.getCreatedAtMillis()));
+            System.out.println();
+        } catch (SQLException e) {
+            System.out.println("Error running report: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Returns a report's result, running its query only if there is no cached result younger than the TTL.
+     *
+     * @param report The report to run.
+     * @return The report result.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Result getReport(Report report) throws SQLException {
+        Result cached = cache.get(report);
+        if (cached != null && System.currentTimeMillis() - cached.getCreatedAtMillis() < ttlMillis) {
+            return cached;
+        }
+        Result fresh = runReport(report);
+        cache.put(report, fresh);
+        return fresh;
+    }
+
+    /**
+     * Drops every cached result, so the next request for each report runs its query again.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    /**
+     * Runs a report's query and times it.
+     *
+     * @param report The report to run.
+     * @return The report result.
+     * @throws SQLException If a database access error occurs.
+     */
+    private Result runReport(Report report) throws SQLException {
+        long start = System.nanoTime();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(report.getQuery());
+             ResultSet rs = pstmt.executeQuery()) {
+            ResultSetMetaData meta = rs.getMetaData();
+            while (rs.next()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    row.put(meta.getColumnLabel(i), rs.getObject(i)); // DECIMAL sums come back as BigDecimal
+                }
+                rows.add(row);
+            }
+        }
+        return new Result(report, rows, System.currentTimeMillis(), System.nanoTime() - start);
+    }
+
+    /**
+     * Runs every report once without the cache and prints how long each took, for measuring report cost
+     * at different data volumes.
+     *
+     * @param args Command-line arguments (not used).
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void main(String[] args) throws SQLException {
+        FinancialReports reports = new FinancialReports(0);
+        for (Report report : Report.values()) {
+            Result result = reports.getReport(report);
+            System.out.printf("%-26s %8.1f ms  %,d rows%n", report.getKey(), result.getQueryMillis(), result.getRows().size());
+        }
+    }
+}
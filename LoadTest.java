@@ -0,0 +1,512 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LoadTest class simulates many members of staff using PoisePMS at once, to see how the application
+ * and database behave under concurrent use before a change is rolled out.
+ *
+ * <p>Run with {@code java LoadTest [--workers N] [--duration S] [--warmup S] [--think MS] [--mix OPS]
+ * [--csv FILE] [--label TEXT]}. Each worker is a virtual thread that repeatedly picks an operation from the
+ * mix, runs it through the same classes the console menus and API use, then pauses for a random think
+ * time averaging {@code --think} milliseconds. The defaults are 50 workers for 60 seconds after a
+ * 10 second warm-up, with 500 ms of think time. The mix is a list of operation weights such as
+ * {@code lookupProject=30,updateProject=10}; the operations are:</p>
+ *
+ * <ul>
+ *     <li>{@code lookupProject}: {@link ProjectSearch#findProjectByNumber(int)} for a random project;</li>
+ *     <li>{@code searchByName}: {@link ProjectSearch#findProjectsByName(String)} for a common surname;</li>
+ *     <li>{@code filterProjects}: {@link ProjectSearch#findProjects(ProjectFilter)} for one architect's
+ *     open projects;</li>
+ *     <li>{@code listIncomplete}: {@link ProjectSearch#findIncompleteProjects()};</li>
+ *     <li>{@code lookupPerson}: {@link PersonStore#findById(Connection, int)} for a random architect,
+ *     contractor or customer;</li>
+ *     <li>{@code updateProject}: reads a project then writes its total fee back with
+ *     {@link Project#updateProjectDetails};</li>
+ *     <li>{@code updatePerson}: reads a person then writes their details back with
+ *     {@link PersonStore#update(Connection, int, Map)};</li>
+ *     <li>{@code addProject}: {@link AddProject#insertProject} with random people.</li>
+ * </ul>
+ *
+ * <p>The updates write back the values they read, so the data is unchanged. Projects added during the
+ * run are deleted at the end (and later purged by the {@link PurgeWorker}).</p>
+ *
+ * <p>When the run ends, the throughput and latency percentiles (50th to 99.99th and the maximum) of each
+ * operation are printed. Latency includes waiting for a pooled connection, so raising the worker count
+ * past the pool size ({@code poise.db.poolSize}) shows how requests queue. With {@code --csv} the results
+ * are also appended to a CSV file, one line per operation tagged with {@code --label} and the time of the
+ * run, so runs before and after a change can be compared.</p>
+ */
+public class LoadTest {
+
+    private static final String[] SURNAMES = {"Smith", "Jones", "Taylor", "Brown", "Patel", "Wilson"};
+    private static final String[] BUILDING_TYPES = {"House", "Apartment", "Office", "Shop", "Warehouse"};
+    private static final String DEFAULT_MIX = "lookupProject=30,searchByName=10,filterProjects=15,listIncomplete=5,"
+            + "lookupPerson=15,updateProject=10,updatePerson=5,addProject=10";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    /**
+     * One kind of operation a member of staff performs.
+     */
+    @FunctionalInterface
+    private interface Operation {
+        void run(ThreadLocalRandom random) throws SQLException;
+    }
+
+    private final ProjectSearch projectSearch = new ProjectSearch();
+    private final Project project = new Project();
+    private final AddProject addProject = new AddProject();
+    private final Map<String, PersonStore> people = new LinkedHashMap<>();
+    private final Map<String, int[]> personIds = new LinkedHashMap<>();
+    private final Queue<Integer> addedProjects = new ConcurrentLinkedQueue<>();
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private int firstProject;
+    private int lastProject;
+
+    LoadTest() {
+        for (String table : new String[]{"architect", "contractor", "customer"}) {
+            people.put(table, new PersonStore(table));
+        }
+        operations.put("lookupProject", random -> projectSearch.findProjectByNumber(randomProject(random)));
+        operations.put("searchByName", random -> projectSearch.findProjectsByName(SURNAMES[random.nextInt(SURNAMES.length)]));
+        operations.put("filterProjects", random -> projectSearch.findProjects(new ProjectFilter()
+                .architectId(randomPerson(random, "architect"))
+                .finalised(false)));
+        operations.put("listIncomplete", random -> projectSearch.findIncompleteProjects());
+        operations.put("lookupPerson", random -> {
+            String table = randomTable(random);
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                people.get(table).findById(conn, randomPerson(random, table));
+            }
+        });
+        operations.put("updateProject", random -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                int projectNumber = randomProject(random);
+                Map<String, Object> row = ProjectSearch.findProjectRow(conn, projectNumber);
+                if (row != null) {
+                    project.updateProjectDetails(conn, projectNumber, null, null, null, null,
+                            (BigDecimal) row.get("total_fee_gbp"), null, null, null, -1, -1, -1);
+                }
+            }
+        });
+        operations.put("updatePerson", random -> {
+            String table = randomTable(random);
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                int id = randomPerson(random, table);
+                Map<String, Object> row = people.get(table).findById(conn, id);
+                if (row != null) {
+                    people.get(table).update(conn, id, PersonStore.detailsFromColumns(row));
+                }
+            }
+        });
+        operations.put("addProject", random -> {
+            String buildingType = BUILDING_TYPES[random.nextInt(BUILDING_TYPES.length)];
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                int projectNumber = addProject.insertProject(conn, buildingType + " Load Test", buildingType,
+                        "1 Load Test Road", "LT" + random.nextInt(100_000),
+                        BigDecimal.valueOf(10_000 + random.nextInt(490_000)),
+                        Date.valueOf(LocalDate.now().plusDays(30 + random.nextInt(335))), null, false,
+                        randomPerson(random, "architect"), randomPerson(random, "contractor"),
+                        randomPerson(random, "customer"));
+                if (projectNumber > 0) {
+                    addedProjects.add(projectNumber);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the range of project numbers and the IDs of the people the operations pick from.
+     *
+     * @throws SQLException If a database access error occurs.
+     */
+    void prepare() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                         "SELECT MIN(project_number), MAX(project_number) FROM Projects WHERE deleted_at IS NULL")) {
+                rs.next();
+                firstProject = rs.getInt(1);
+                lastProject = rs.getInt(2);
+            }
+            for (String table : people.keySet()) {
+                List<Integer> ids = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM " + table + " WHERE deleted_at IS NULL");
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    throw new SQLException("The " + table + " table is empty; add some data first, e.g. with DataGenerator");
+                }
+                personIds.put(table, ids.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        if (lastProject == 0) {
+            throw new SQLException("The Projects table is empty; add some data first, e.g. with DataGenerator");
+        }
+    }
+
+    private int randomProject(ThreadLocalRandom random) {
+        return random.nextInt(firstProject, lastProject + 1);
+    }
+
+    private int randomPerson(ThreadLocalRandom random, String table) {
+        int[] ids = personIds.get(table);
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private String randomTable(ThreadLocalRandom random) {
+        int pick = random.nextInt(10); // mostly customers, as in the tables themselves
+        return pick == 0 ? "architect" : pick < 3 ? "contractor" : "customer";
+    }
+
+    /**
+     * Runs the load and returns the results of each operation in the mix.
+     *
+     * @param workers       The number of concurrent workers.
+     * @param warmupSeconds How long to run before recording results.
+     * @param seconds       How long to record results for.
+     * @param thinkMillis   The mean pause between a worker's operations.
+     * @param mix           The weight of each operation.
+     * @return The results by operation name, in the order of the mix.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    Map<String, Result> run(int workers, int warmupSeconds, int seconds, long thinkMillis, Map<String, Integer> mix)
+            throws InterruptedException {
+        String[] names = mix.keySet().toArray(new String[0]);
+        int[] cumulativeWeights = new int[names.length];
+        int totalWeight = 0;
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (!operations.containsKey(names[i])) {
+                throw new IllegalArgumentException("Unknown operation " + names[i] + "; use one of " + operations.keySet());
+            }
+            totalWeight += mix.get(names[i]);
+            cumulativeWeights[i] = totalWeight;
+            results.put(names[i], new Result());
+        }
+        int weightSum = totalWeight;
+
+        long start = System.nanoTime();
+        long recordFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = recordFrom + seconds * 1_000_000_000L;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < workers; w++) {
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Thread.sleep(random.nextLong(Math.max(1, thinkMillis))); // stagger the start
+                    while (System.nanoTime() < end) {
+                        int pick = random.nextInt(weightSum);
+                        int index = 0;
+                        while (cumulativeWeights[index] <= pick) {
+                            index++;
+                        }
+                        long opStart = System.nanoTime();
+                        boolean failed = false;
+                        try {
+                            operations.get(names[index]).run(random);
+                        } catch (SQLException | RuntimeException e) {
+                            failed = true;
+                        }
+                        long opEnd = System.nanoTime();
+                        if (opStart >= recordFrom && opEnd <= end) {
+                            results.get(names[index]).record((opEnd - opStart) / 1000, failed);
+                        }
+                        if (thinkMillis > 0) {
+                            // exponentially distributed, like the gaps between a real user's actions
+                            Thread.sleep(Math.round(-thinkMillis * Math.log(1 - random.nextDouble())));
+                        }
+                    }
+                    return null;
+                });
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                long now = System.nanoTime();
+                if (now > recordFrom) {
+                    long count = results.values().stream().mapToLong(r -> r.latency.getCount()).sum();
+                    System.out.printf("  %,d s: %,.0f ops/s%n", (now - start) / 1_000_000_000L,
+                            count / ((Math.min(now, end) - recordFrom) / 1e9));
+                } else {
+                    System.out.println("  warming up");
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Deletes the projects added during the run.
+     *
+     * @return The number of projects deleted.
+     * @throws SQLException If a database access error occurs.
+     */
+    int removeAddedProjects() throws SQLException {
+        int removed = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (Integer projectNumber : addedProjects) {
+                removed += project.deleteProject(conn, projectNumber);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * The outcome of one operation over the run.
+     */
+    static final class Result {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        void record(long micros, boolean failed) {
+            latency.record(micros);
+            if (failed) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * A concurrent latency histogram in the style of HdrHistogram: values up to 255 µs are counted
+     * exactly, and larger values in 128 buckets per power of two, so every percentile is within 1% of the
+     * true value however long the tail is, in a fixed 35 KB.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_SHIFT = 32; // about 20 days in microseconds
+
+        private final AtomicLongArray counts = new AtomicLongArray(2 * SUB_BUCKETS + MAX_SHIFT * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            value = Math.max(0, value);
+            counts.incrementAndGet(index(value));
+            count.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        static int index(long value) {
+            if (value < 2 * SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = Math.min(MAX_SHIFT, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+            long subBucket = Math.min(2 * SUB_BUCKETS - 1, value >> shift);
+            return (int) (2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + (subBucket - SUB_BUCKETS));
+        }
+
+        /** The highest value counted in a bucket. */
+        static long highestValue(int index) {
+            if (index < 2 * SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+            long subBucket = (index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * Returns the value at a percentile, so that the given share of values are no higher.
+         *
+         * @param percentile The percentile, from 0 to 100.
+         * @return The value in microseconds, or 0 if nothing was recorded.
+         */
+        long getValueAtPercentile(double percentile) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(highestValue(i), getMax());
+                }
+            }
+            return getMax();
+        }
+    }
+
+    private static void printResults(Map<String, Result> results, int seconds) {
+        System.out.printf("%n%-15s %9s %7s %9s %9s", "operation", "count", "errors", "ops/s", "mean ms");
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %9s", "p" + formatPercentile(percentile));
+        }
+        System.out.printf(" %9s%n", "max ms");
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            System.out.printf("%-15s %,9d %,7d %,9.1f %,9.2f", entry.getKey(), latency.getCount(),
+                    entry.getValue().errors.sum(), latency.getCount() / (double) seconds, latency.getMean() / 1000);
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %,9.2f", latency.getValueAtPercentile(percentile) / 1000.0);
+            }
+            System.out.printf(" %,9.2f%n", latency.getMax() / 1000.0);
+        }
+    }
+
+    /**
+     * Appends the results to a CSV file, writing the header first if the file is new.
+     */
+    private static void appendCsv(Path file, String label, int workers, Map<String, Result> results, int seconds)
+            throws IOException {
+        boolean isNew = !Files.exists(file) || Files.size(file) == 0;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (isNew) {
+                StringBuilder header = new StringBuilder("run_at,label,workers,operation,count,errors,ops_per_sec,mean_ms");
+                for (double percentile : PERCENTILES) {
+                    header.append(",p").append(formatPercentile(percentile).replace('.', '_')).append("_ms");
+                }
+                out.println(header.append(",max_ms"));
+            }
+            String runAt = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            for (Map.Entry<String, Result> entry : results.entrySet()) {
+                LatencyHistogram latency = entry.getValue().latency;
+                StringBuilder line = new StringBuilder(runAt);
+                TableExporter.appendCsv(line, ",", label);
+                TableExporter.appendCsv(line, ",", workers);
+                TableExporter.appendCsv(line, ",", entry.getKey());
+                TableExporter.appendCsv(line, ",", latency.getCount());
+                TableExporter.appendCsv(line, ",", entry.getValue().errors.sum());
+                TableExporter.appendCsv(line, ",", String.format(Locale.ROOT, "%.1f", latency.getCount() / (double) seconds));
+                TableExporter.appendCsv(line, ",", String.format(Locale.ROOT, "%.3f", latency.getMean() / 1000));
+                for (double percentile : PERCENTILES) {
+                    TableExporter.appendCsv(line, ",", String.format(Locale.ROOT, "%.3f", latency.getValueAtPercentile(percentile) / 1000.0));
+                }
+                TableExporter.appendCsv(line, ",", String.format(Locale.ROOT, "%.3f", latency.getMax() / 1000.0));
+                out.println(line);
+            }
+        }
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split("=");
+            int weight = nameAndWeight.length == 2 ? Integer.parseInt(nameAndWeight[1].trim()) : 1;
+            if (weight > 0) {
+                weights.put(nameAndWeight[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations: " + mix);
+        }
+        return weights;
+    }
+
+    /**
+     * Runs a load test from the command line.
+     *
+     * @param args Optionally {@code --workers N}, {@code --duration S}, {@code --warmup S}, {@code --think MS},
+     *             {@code --mix OPS}, {@code --csv FILE} and {@code --label TEXT}.
+     * @throws Exception If the load test cannot run.
+     */
+    public static void main(String[] args) throws Exception {
+        int workers = 50;
+        int seconds = 60;
+        int warmupSeconds = 10;
+        long thinkMillis = 500;
+        String mix = DEFAULT_MIX;
+        String csv = null;
+        String label = "";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--workers":
+                    workers = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--duration":
+                    seconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--think":
+                    thinkMillis = Long.parseLong(args[i + 1]);
+                    break;
+                case "--mix":
+                    mix = args[i + 1];
+                    break;
+                case "--csv":
+                    csv = args[i + 1];
+                    break;
+                case "--label":
+                    label = args[i + 1];
+                    break;
+                default:
+                    System.out.println("Usage: java LoadTest [--workers N] [--duration S] [--warmup S] [--think MS] "
+                            + "[--mix OPS] [--csv FILE] [--label TEXT]");
+                    return;
+            }
+        }
+        if (workers < 1 || seconds < 1 || warmupSeconds < 0 || thinkMillis < 0) {
+            System.out.println("Use at least 1 worker and 1 second, and no negative warm-up or think time.");
+            return;
+        }
+
+        LoadTest loadTest = new LoadTest();
+        loadTest.prepare();
+        System.out.printf("Running %d workers for %d s after a %d s warm-up, %d ms think time, mix %s%n",
+                workers, seconds, warmupSeconds, thinkMillis, mix);
+        Map<String, Result> results = loadTest.run(workers, warmupSeconds, seconds, thinkMillis, parseMix(mix));
+        printResults(results, seconds);
+        int removed = loadTest.removeAddedProjects();
+        if (removed > 0) {
+            System.out.printf("Deleted the %,d projects added during the run.%n", removed);
+        }
+        if (csv != null) {
+            appendCsv(Paths.get(csv), label, workers, results, seconds);
+            System.out.println("Results appended to " + csv);
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Scanner;
 /**
  * Main class to run the application.
@@ -9,23 +11,42 @@ public class Main {
     private static Customer customer = new Customer();
     private static Project project = new Project();
     private static AddProject addProject = new AddProject();
+    private static CustomerPortfolio customerPortfolio = new CustomerPortfolio();
+    private static FinancialReports financialReports = new FinancialReports();
+    private static WorkloadAnalysis workloadAnalysis = new WorkloadAnalysis();
+    private static PaymentLedger paymentLedger = new PaymentLedger();
 
     /**
      * Main method, the entry point of the program.
      * The scanner object will read the user input.
-     * The loop will run until the user exits or chooses one of the other switch cases.
      *
      * @param args Command-line arguments (not used).
      */
     public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
+        ProjectStatistics.getInstance().start(); // seed the dashboard counters once at start-up
+        ProjectReplica.getInstance().startIfEnabled(); // only with -Dpoise.replica.enabled=true
+        AuditJournal.getInstance().start(); // record every change in the audit journal
+        ProjectHistory.getInstance().start(); // keep every version of each project
+        DeadlineAlerts.getInstance().startIfEnabled(); // only with -Dpoise.alerts.enabled=true
+        PurgeWorker.getInstance().start(); // removes deleted rows in quiet periods
+        run(new Scanner(System.in));
+    }
+
+    /**
+     * Runs the main menu until the user exits. The loop will run until the user exits or
+     * chooses one of the other switch cases. This is also used by {@link TerminalServer} to
+     * run a separate menu session for each connected terminal.
+     *
+     * @param scanner Scanner object to read user input.
+     */
+    public static void run(Scanner scanner) {
         while (true) {
             System.out.println();
             printMainMenu();
 
             System.out.print("Please select an option: ");
 
-            int choice = getValidChoice(scanner, 0, 8); // get and validate the user's choice
+            int choice = getValidChoice(scanner, 0, 12); // get and validate the user's choice
 
             System.out.println();
 
@@ -58,6 +79,18 @@ public class Main {
                     System.out.println("Finalise a project selected.");
                     project.finaliseProject(scanner);  // Correctly calling the public method in Project.java
                     break;
+                case 9:
+                    financialReports.reportsMenu(scanner); // revenue and balance reports
+                    break;
+                case 10:
+                    ProjectStatistics.getInstance().displayDashboard(); // counters kept in memory, no table scan
+                    break;
+                case 11:
+                    workloadAnalysis.displayWorkloadReport(); // overlapping open projects per architect/contractor
+                    break;
+                case 12:
+                    paymentLedger.paymentsMenu(scanner); // record payments and show balances
+                    break;
                 case 0:
                     System.out.println("Exiting program.");
                     scanner.close(); // close the scanner, exit the loop and the program
@@ -81,6 +114,10 @@ public class Main {
         System.out.println("6: Contractors menu");
         System.out.println("7: Customers menu");
         System.out.println("8: Finalise a project");
+        System.out.println("9: Financial reports");
+        System.out.println("10: Dashboard");
+        System.out.println("11: Architect and contractor workload");
+        System.out.println("12: Payments");
         System.out.println("0: Exit");
         System.out.println();
     }
@@ -94,7 +131,7 @@ public class Main {
             System.out.println(); // print line will appear in several places to help spacing between menus/options
 
             System.out.print("Please select an option: ");
-            int choice = getValidChoice(scanner, 0, 4); // Get a valid choice from 0 to 4
+            int choice = getValidChoice(scanner, 0, 8); // Get a valid choice from 0 to 8
 
             switch (choice) {
                 case 1:
@@ -103,7 +140,7 @@ public class Main {
                 case 2:
                     System.out.println("List all projects selected.");
                     System.out.println();
-                    projectSearch.listAllProjects(); // call method to list all projects
+                    projectSearch.listAllProjects(askIncludeArchive(scanner)); // call method to list all projects
                     break;
                 case 3:
                     System.out.println("List incomplete projects selected");
@@ -115,6 +152,25 @@ public class Main {
                     System.out.println();
                     projectSearch.listBeyondDeadlineProjects(); // to list projects beyond deadline date
                     break;
+                case 5:
+                    System.out.println("List projects with architect, contractor and customer names selected.");
+                    System.out.println();
+                    projectSearch.listAllProjectsWithNames(); // one joined query instead of an ID search per person
+                    break;
+                case 6:
+                    System.out.println("Filter projects selected.");
+                    filterProjects(scanner, projectSearch);
+                    break;
+                case 7:
+                    rankedProjectsMenu(scanner, projectSearch); // Go to the top K lists
+                    break;
+                case 8:
+                    System.out.println("Enter project number:");
+                    String historyNumber = scanner.nextLine();
+                    System.out.println("Enter a date to see the project as it was then (YYYY-MM-DD), or leave blank for all versions:");
+                    String historyDate = scanner.nextLine();
+                    ProjectHistory.getInstance().displayHistory(historyNumber, historyDate);
+                    break;
                 case 0:
                     return; // Return to main menu
                 default:
@@ -142,12 +198,12 @@ public class Main {
                 case 1:
                     System.out.println("Enter project name to search:");
                     String name = scanner.nextLine();
-                    projectSearch.searchProjectByName(name); // Call method to search by project name
+                    projectSearch.searchProjectByName(name, askIncludeArchive(scanner)); // Call method to search by project name
                     break;
                 case 2:
                     System.out.println("Enter project number to search:");
                     String number = scanner.nextLine();
-                    projectSearch.searchProjectByNumber(number); // to search by project number
+                    projectSearch.searchProjectByNumber(number, askIncludeArchive(scanner)); // to search by project number
                     break;
                 case 0:
                     return; // Return to the previous menu
@@ -157,6 +213,92 @@ public class Main {
         }
     }
 
+    /**
+     * Asks whether a search should include archived projects.
+     *
+     * @param scanner Scanner object to read user input.
+     * @return True if the user answered yes.
+     */
+    private static boolean askIncludeArchive(Scanner scanner) {
+        System.out.print("Include archived projects? (y/n): ");
+        return scanner.nextLine().trim().equalsIgnoreCase("y");
+    }
+
+    /**
+     * Asks for each filter criterion in turn (blank to skip) and lists the matching projects.
+     *
+     * @param scanner       Scanner object to read user input.
+     * @param projectSearch Used to run the filter.
+     */
+    private static void filterProjects(Scanner scanner, ProjectSearch projectSearch) {
+        String[][] prompts = {
+                {"building_type", "Building type"},
+                {"min_fee", "Minimum total fee (GBP)"},
+                {"max_fee", "Maximum total fee (GBP)"},
+                {"min_outstanding", "Minimum outstanding balance (GBP)"},
+                {"max_outstanding", "Maximum outstanding balance (GBP)"},
+                {"deadline_from", "Deadline on or after (YYYY-MM-DD)"},
+                {"deadline_to", "Deadline on or before (YYYY-MM-DD)"},
+                {"finalised", "Finalised (true/false)"},
+                {"architect_id", "Architect ID"},
+                {"contractor_id", "Contractor ID"},
+                {"customer_id", "Customer ID"}
+        };
+        System.out.println("Enter the filter criteria, leaving blank any that are not needed.");
+        Map<String, String> values = new HashMap<>();
+        for (String[] prompt : prompts) {
+            System.out.print(prompt[1] + ": ");
+            values.put(prompt[0], scanner.nextLine());
+        }
+        System.out.println();
+        try {
+            projectSearch.listFilteredProjects(ProjectFilter.fromValues(values));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid filter value: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Sub-menu for the ranked (top K) project lists within project search.
+     *
+     * @param scanner       Scanner object to read user input.
+     * @param projectSearch Used to run the ranked queries.
+     */
+    private static void rankedProjectsMenu(Scanner scanner, ProjectSearch projectSearch) {
+        while (true) {
+            System.out.println("Ranked Project Lists Menu:");
+            System.out.println("1: Most overdue projects");
+            System.out.println("2: Largest outstanding balances");
+            System.out.println("3: Biggest fees per building type");
+            System.out.println("0: Back to project search menu");
+            System.out.println();
+
+            System.out.print("Please select an option: ");
+            int choice = getValidChoice(scanner, 0, 3); // Get a valid choice from 0 to 3
+            if (choice == 0) {
+                return; // Return to the previous menu
+            }
+            System.out.print("How many projects (1-1000): ");
+            int k = getValidChoice(scanner, 1, 1000);
+            System.out.println();
+
+            switch (choice) {
+                case 1:
+                    projectSearch.listMostOverdue(k);
+                    break;
+                case 2:
+                    projectSearch.listLargestOutstanding(k);
+                    break;
+                case 3:
+                    projectSearch.listBiggestFeesByBuildingType(k);
+                    break;
+                default:
+                    System.out.println("Invalid option. Please try again.");
+            }
+        }
+    }
+
     /**
      * Prints the project search menu options.
      */
@@ -166,6 +308,10 @@ public class Main {
         System.out.println("2: List all projects");
         System.out.println("3: List incomplete projects");
         System.out.println("4: List projects beyond deadline");
+        System.out.println("5: List projects with contact names");
+        System.out.println("6: Filter projects");
+        System.out.println("7: Ranked project lists (top K)");
+        System.out.println("8: Project history (as of a date)");
         System.out.println("0: Back to main menu");
         System.out.println(); // Add a blank line after menu options
     }
@@ -253,6 +399,7 @@ public class Main {
         System.out.println("3: Delete a contractor");
         System.out.println("4: Search for a contractor");
         System.out.println("5: List all contractors");
+        System.out.println("6: Find contractors near a post code");
         System.out.println("0: Back to main menu");
         System.out.println();
     }
@@ -268,7 +415,7 @@ public class Main {
             System.out.println();
 
             System.out.print("Please select an option: ");
-            int choice = getValidChoice(scanner, 0, 5); // validate the user choice
+            int choice = getValidChoice(scanner, 0, 6); // validate the user choice
 
             switch (choice) {
                 case 1:
@@ -293,6 +440,12 @@ public class Main {
                     System.out.println("List all contractors selected.");
                     contractor.listAllContractors(); // to list all contractors
                     break;
+                case 6:
+                    System.out.println("Find contractors near a post code selected.");
+                    System.out.print("Enter post code: ");
+                    String postCode = scanner.nextLine();
+                    ContractorLocator.getInstance().displayNearest(postCode, 5); // the 5 nearest contractors
+                    break;
                 case 0:
                     return;
                 default:
@@ -311,6 +464,7 @@ public class Main {
         System.out.println("3: Delete a customer");
         System.out.println("4: Search for a customer");
         System.out.println("5: List all customers");
+        System.out.println("6: View a customer's portfolio");
         System.out.println("0: Back to main menu");
         System.out.println();
     }
@@ -326,7 +480,7 @@ public class Main {
             System.out.println();
 
             System.out.print("Please select an option: ");
-            int choice = getValidChoice(scanner, 0, 5); // validate choice
+            int choice = getValidChoice(scanner, 0, 6); // validate choice
 
             switch (choice) {
                 case 1:
@@ -351,6 +505,12 @@ public class Main {
                     System.out.println("List all customers selected.");
                     customer.listAllCustomers(); // to list all customers
                     break;
+                case 6:
+                    System.out.println("View a customer's portfolio selected.");
+                    System.out.print("Enter Customer ID: ");
+                    String portfolioId = scanner.nextLine();
+                    customerPortfolio.displayPortfolio(portfolioId); // projects and fee totals for the customer
+                    break;
                 case 0:
                     return;
                 default:
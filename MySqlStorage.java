@@ -0,0 +1,67 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The MySqlStorage class keeps the PoisePMS data in a MySQL server. The database and tables are created
+ * beforehand with {@code poisePMS.sql}, so nothing is prepared at startup.
+ */
+public class MySqlStorage implements StorageBackend {
+
+    @Override
+    public String getName() {
+        return "mysql";
+    }
+
+    @Override
+    public String getDefaultUrl() {
+        return "jdbc:mysql://localhost:3306/PoisePMS";
+    }
+
+    @Override
+    public String getDefaultUser() {
+        return "otheruser";
+    }
+
+    @Override
+    public String getDefaultPassword() {
+        return "swordfish";
+    }
+
+    @Override
+    public void initialise(Connection conn) {
+        // the schema is created by running poisePMS.sql
+    }
+
+    @Override
+    public long getRunningStatements(Connection conn) throws SQLException {
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW GLOBAL STATUS LIKE 'Threads_running'")) {
+            return rs.next() ? rs.getLong(2) : 0;
+        }
+    }
+
+    @Override
+    public String deleteOldest(String table, String primaryKey, String condition, String orderColumn) {
+        return "DELETE FROM " + table + " WHERE " + condition + " ORDER BY " + orderColumn + " LIMIT ?";
+    }
+
+    /**
+     * Returns {@link Integer#MIN_VALUE}, which tells MySQL Connector/J to stream rows one at a time.
+     */
+    @Override
+    public int getStreamingFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public String monthOf(String date) {
+        return "DATE_FORMAT(" + date + ", '%Y-%m')";
+    }
+
+    @Override
+    public boolean supportsBackup() {
+        return true;
+    }
+}
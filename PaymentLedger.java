@@ -0,0 +1,409 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * The PaymentLedger class records the payments made against projects in the append-only {@code payments}
+ * table, keeping each project's {@code paid_to_date_gbp} as the running total.
+ *
+ * <p>Recording a payment inserts the ledger row and adds the amount to the project's running total with a
+ * single {@code UPDATE ... SET paid_to_date_gbp = paid_to_date_gbp + ?}, both in one transaction, so the
+ * project row is never read and rewritten and concurrent payments cannot overwrite each other. Balances are
+ * then served from the maintained totals on the Projects table rather than by summing the ledger.</p>
+ *
+ * <p>Payments can also be imported in bulk from a CSV file with the columns
+ * {@code project_number,amount_gbp,paid_on,reference} (a header row is optional), with
+ * {@code java PaymentLedger import <file>}. Rows are inserted in batches of {@value #IMPORT_BATCH}, one
+ * transaction per batch, with one total update per project in the batch.</p>
+ */
+public class PaymentLedger {
+
+    /** The number of CSV rows imported per transaction. */
+    static final int IMPORT_BATCH = 1000;
+
+    /** The largest amount the {@code DECIMAL(10, 2)} money columns hold. */
+    private static final String MAX_AMOUNT_TEXT = "99999999.99";
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal(MAX_AMOUNT_TEXT);
+
+    private static final String INSERT_PAYMENT = "INSERT INTO payments (project_number, amount_gbp, paid_on, reference, "
+            + "recorded_by) VALUES (?, ?, ?, ?, ?)";
+    private static final String INCREMENT_PAID = "UPDATE projects SET paid_to_date_gbp = paid_to_date_gbp + ? "
+            + "WHERE project_number = ? AND deleted_at IS NULL";
+
+    /**
+     * Records a payment against a project.
+     *
+     * @param conn          Connection to the database.
+     * @param projectNumber The project paid for.
+     * @param amount        The amount paid, in GBP; must be positive.
+     * @param paidOn        The date of the payment, or null for today.
+     * @param reference     A reference such as an invoice number, or null.
+     * @return The ID of the new payment, or -1 if there is no such project.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the amount is not positive, has more than two decimal places or is
+     *                                  too large to store.
+     */
+    public long recordPayment(Connection conn, int projectNumber, BigDecimal amount, Date paidOn, String reference)
+            throws SQLException {
+        checkAmount(amount);
+        boolean autoCommit = conn.getAutoCommit();
+        Map<String, Object> before = null;
+        Map<String, Object> after = null;
+        long paymentId;
+        conn.setAutoCommit(false);
+        try {
+            if (DataChanges.hasListeners()) {
+                before = ProjectSearch.findProjectRow(conn, projectNumber);
+            }
+            try (PreparedStatement increment = conn.prepareStatement(INCREMENT_PAID)) {
+                increment.setBigDecimal(1, amount);
+                increment.setInt(2, projectNumber);
+                if (increment.executeUpdate() == 0) {
+                    conn.rollback();
+                    return -1;
+                }
+            }
+            try (PreparedStatement insert = conn.prepareStatement(INSERT_PAYMENT, Statement.RETURN_GENERATED_KEYS)) {
+                setPayment(insert, projectNumber, amount, paidOn, reference);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    paymentId = keys.next() ? keys.getLong(1) : -1;
+                }
+            }
+            if (before != null) {
+                after = ProjectSearch.findProjectRow(conn, projectNumber);
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        if (before != null) {
+            // only once the payment is committed, so listeners never see a change that was rolled back
+            DataChanges.publish(conn, DataChanges.PROJECTS, projectNumber, before, after);
+        }
+        return paymentId;
+    }
+
+    /**
+     * Checks that a payment amount is positive and fits the {@code DECIMAL(10, 2)} money columns, so a bad
+     * amount is reported as such rather than failing, or being rounded, in the database.
+     *
+     * @param amount The amount paid, in GBP.
+     * @throws IllegalArgumentException If the amount is missing, not positive, has more than two decimal places
+     *                                  or is more than {@value #MAX_AMOUNT_TEXT}.
+     */
+    static void checkAmount(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("The payment amount must be more than zero");
+        }
+        if (amount.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("The payment amount cannot have more than two decimal places: "
+                    + amount.toPlainString());
+        }
+        if (amount.compareTo(MAX_AMOUNT) > 0) {
+            throw new IllegalArgumentException("The payment amount cannot be more than " + MAX_AMOUNT_TEXT + ": "
+                    + amount.toPlainString());
+        }
+    }
+
+    private static void setPayment(PreparedStatement pstmt, int projectNumber, BigDecimal amount, Date paidOn,
+                                   String reference) throws SQLException {
+        pstmt.setInt(1, projectNumber);
+        pstmt.setBigDecimal(2, amount);
+        pstmt.setDate(3, paidOn != null ? paidOn : Date.valueOf(LocalDate.now()));
+        pstmt.setString(4, reference);
+        pstmt.setString(5, AuditJournal.getActor());
+    }
+
+    /**
+     * Imports payments from a CSV file of {@code project_number,amount_gbp,paid_on,reference} rows.
+     *
+     * @param file The CSV file.
+     * @return The number of payments imported.
+     * @throws IOException  If the file cannot be read.
+     * @throws SQLException If a database access error occurs, including a payment for an unknown project
+     *                      (the batch it is in is rolled back; earlier batches stay imported).
+     * @throws IllegalArgumentException If a row cannot be parsed.
+     */
+    public long importPayments(Path file) throws IOException, SQLException {
+        long imported = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Connection conn = DatabaseConnection.getConnection()) {
+            List<String[]> batch = new ArrayList<>();
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || (lineNumber == 1 && line.startsWith("project_number"))) {
+                    continue;
+                }
+                String[] fields = line.split(",", 4);
+                if (fields.length < 3) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": expected project_number,amount_gbp,paid_on[,reference]");
+                }
+                batch.add(fields);
+                if (batch.size() == IMPORT_BATCH) {
+                    imported += importBatch(conn, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                imported += importBatch(conn, batch);
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * Imports one batch of CSV rows in a single transaction.
+     */
+    private int importBatch(Connection conn, List<String[]> rows) throws SQLException {
+        Map<Integer, BigDecimal> increments = new LinkedHashMap<>();
+        Map<Integer, Map<String, Object>> before = new HashMap<>();
+        Map<Integer, Map<String, Object>> after = new LinkedHashMap<>();
+        conn.setAutoCommit(false);
+        try {
+            try (PreparedStatement insert = conn.prepareStatement(INSERT_PAYMENT)) {
+                for (String[] fields : rows) {
+                    int projectNumber = Integer.parseInt(fields[0].trim());
+                    BigDecimal amount = new BigDecimal(fields[1].trim());
+                    checkAmount(amount);
+                    String reference = fields.length > 3 && !fields[3].trim().isEmpty() ? fields[3].trim() : null;
+                    setPayment(insert, projectNumber, amount, Date.valueOf(fields[2].trim()), reference);
+                    insert.addBatch();
+                    increments.merge(projectNumber, amount, BigDecimal::add);
+                }
+                insert.executeBatch();
+            }
+
+            if (DataChanges.hasListeners()) {
+                for (int projectNumber : increments.keySet()) {
+                    before.put(projectNumber, ProjectSearch.findProjectRow(conn, projectNumber));
+                }
+            }
+            try (PreparedStatement increment = conn.prepareStatement(INCREMENT_PAID)) {
+                for (Map.Entry<Integer, BigDecimal> entry : increments.entrySet()) {
+                    increment.setBigDecimal(1, entry.getValue());
+                    increment.setInt(2, entry.getKey());
+                    increment.addBatch();
+                }
+                int[] counts = increment.executeBatch();
+                int i = 0;
+                for (int projectNumber : increments.keySet()) {
+                    if (counts[i++] == 0) {
+                        throw new SQLException("Project number " + projectNumber + " does not exist");
+                    }
+                }
+            }
+            if (!before.isEmpty()) {
+                for (int projectNumber : increments.keySet()) {
+                    after.put(projectNumber, ProjectSearch.findProjectRow(conn, projectNumber));
+                }
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        for (Map.Entry<Integer, Map<String, Object>> entry : after.entrySet()) {
+            DataChanges.publish(conn, DataChanges.PROJECTS, entry.getKey(), before.get(entry.getKey()), entry.getValue());
+        }
+        return rows.size();
+    }
+
+    /**
+     * Finds the payments made against a project, oldest first.
+     *
+     * @param projectNumber The project number.
+     * @return The payment rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findPayments(int projectNumber) throws SQLException {
+        List<Map<String, Object>> payments = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM payments WHERE project_number = ? "
+                     + "ORDER BY paid_on, payment_id")) {
+            pstmt.setInt(1, projectNumber);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> payment = new LinkedHashMap<>();
+                    payment.put("payment_id", rs.getLong("payment_id"));
+                    payment.put("project_number", rs.getInt("project_number"));
+                    payment.put("amount_gbp", rs.getBigDecimal("amount_gbp"));
+                    payment.put("paid_on", rs.getDate("paid_on"));
+                    payment.put("reference", rs.getString("reference"));
+                    payment.put("recorded_at", rs.getTimestamp("recorded_at"));
+                    payment.put("recorded_by", rs.getString("recorded_by"));
+                    payments.add(payment);
+                }
+            }
+        }
+        return payments;
+    }
+
+    /**
+     * Returns a project's balance from its maintained totals.
+     *
+     * @param projectNumber The project number.
+     * @return The project number, total fee, paid to date and outstanding amount, or null if there is no
+     *         such project.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Map<String, Object> getProjectBalance(int projectNumber) throws SQLException {
+        return balance("SELECT project_number, total_fee_gbp, paid_to_date_gbp, "
+                + "total_fee_gbp - paid_to_date_gbp AS outstanding_gbp FROM Projects WHERE project_number = ? AND deleted_at IS NULL",
+                projectNumber);
+    }
+
+    /**
+     * Returns a customer's balance across all their projects, from the maintained project totals.
+     *
+     * @param customerId The customer ID.
+     * @return The customer ID, number of projects, total fees, paid to date and outstanding amount.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Map<String, Object> getCustomerBalance(int customerId) throws SQLException {
+        return balance("SELECT customer_id, COUNT(*) AS project_count, COALESCE(SUM(total_fee_gbp), 0) AS total_fee_gbp, "
+                + "COALESCE(SUM(paid_to_date_gbp), 0) AS paid_to_date_gbp, "
+                + "COALESCE(SUM(total_fee_gbp - paid_to_date_gbp), 0) AS outstanding_gbp "
+                + "FROM Projects WHERE customer_id = ? AND deleted_at IS NULL GROUP BY customer_id", customerId);
+    }
+
+    private static Map<String, Object> balance(String sql, int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Map<String, Object> balance = new LinkedHashMap<>();
+                for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                    balance.put(rs.getMetaData().getColumnLabel(i), rs.getObject(i));
+                }
+                return balance;
+            }
+        }
+    }
+
+    /**
+     * Shows the payments menu and handles the chosen action.
+     *
+     * @param scanner Scanner object to read user input.
+     */
+    public void paymentsMenu(Scanner scanner) {
+        System.out.println("Payments Menu:");
+        System.out.println("1: Record a payment");
+        System.out.println("2: List a project's payments and balance");
+        System.out.println("3: Show a customer's balance");
+        System.out.println("4: Import payments from a CSV file");
+        System.out.println("0: Back to main menu");
+        System.out.println();
+        System.out.print("Please select an option: ");
+        String choice = scanner.nextLine().trim();
+
+        try {
+            switch (choice) {
+                case "1": {
+                    System.out.print("Enter project number: ");
+                    int projectNumber = Integer.parseInt(scanner.nextLine().trim());
+                    System.out.print("Enter amount paid (GBP): ");
+                    BigDecimal amount = new BigDecimal(scanner.nextLine().trim());
+                    System.out.print("Enter the date paid (YYYY-MM-DD), or leave blank for today: ");
+                    String paidOn = scanner.nextLine().trim();
+                    System.out.print("Enter a reference, or leave blank: ");
+                    String reference = scanner.nextLine().trim();
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        long paymentId = recordPayment(conn, projectNumber, amount,
+                                paidOn.isEmpty() ? null : Date.valueOf(paidOn), reference.isEmpty() ? null : reference);
+                        System.out.println(paymentId < 0 ? "Project number not found." : "Payment " + paymentId + " recorded.");
+                    }
+                    break;
+                }
+                case "2": {
+                    System.out.print("Enter project number: ");
+                    int projectNumber = Integer.parseInt(scanner.nextLine().trim());
+                    Map<String, Object> balance = getProjectBalance(projectNumber);
+                    if (balance == null) {
+                        System.out.println("Project number not found.");
+                        break;
+                    }
+                    for (Map<String, Object> payment : findPayments(projectNumber)) {
+                        System.out.printf("Payment %s | %s | %.2f | %s%n", payment.get("payment_id"), payment.get("paid_on"),
+                                payment.get("amount_gbp"), payment.get("reference") == null ? "" : payment.get("reference"));
+                    }
+                    System.out.printf("Total Fee: %.2f | Paid To Date: %.2f | Outstanding: %.2f%n",
+                            balance.get("total_fee_gbp"), balance.get("paid_to_date_gbp"), balance.get("outstanding_gbp"));
+                    break;
+                }
+                case "3": {
+                    System.out.print("Enter customer ID: ");
+                    Map<String, Object> balance = getCustomerBalance(Integer.parseInt(scanner.nextLine().trim()));
+                    if (balance == null) {
+                        System.out.println("That customer has no projects.");
+                        break;
+                    }
+                    System.out.printf("Projects: %s | Total Fees: %.2f | Paid To Date: %.2f | Outstanding: %.2f%n",
+                            balance.get("project_count"), balance.get("total_fee_gbp"), balance.get("paid_to_date_gbp"),
+                            balance.get("outstanding_gbp"));
+                    break;
+                }
+                case "4": {
+                    System.out.print("Enter the CSV file path: ");
+                    long imported = importPayments(Paths.get(scanner.nextLine().trim()));
+                    System.out.println(imported + " payments imported.");
+                    break;
+                }
+                case "0":
+                    return;
+                default:
+                    System.out.println("Invalid option. Please try again.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid entry: " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Could not read the file: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Database error: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    /**
+     * Imports payments from a CSV file.
+     *
+     * @param args {@code import <file>}.
+     * @throws Exception If the import fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && "import".equals(args[0])) {
+            long start = System.nanoTime();
+            long imported = new PaymentLedger().importPayments(Paths.get(args[1]));
+            System.out.printf("Imported %,d payments in %d ms%n", imported, (System.nanoTime() - start) / 1_000_000);
+        } else {
+            System.out.println("Usage: java PaymentLedger import <file.csv>");
+        }
+    }
+}
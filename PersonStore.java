@@ -0,0 +1,310 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The PersonStore class holds the database operations shared by the architect, contractor and customer
+ * tables, which all have the same columns.
+ *
+ * <p>Person details are passed around as a map using the same keys as the menu classes
+ * ({@code firstName}, {@code lastName}, {@code phoneNumber}, {@code email}, {@code address},
+ * {@code postCode}). Rows read back from the database are keyed by column name.</p>
+ *
+ * <p>Every successful insert, update and delete is published through {@link DataChanges} under the
+ * store's table name.</p>
+ *
+ * <p>Deleting a person only marks the row as deleted ({@code deleted_at}), and every read here ignores
+ * marked rows; {@link PurgeWorker} removes them later.</p>
+ */
+public class PersonStore {
+
+    /** The editable columns of a person table, in the order they are bound in statements. */
+    public static final String[] COLUMNS = {"first_name", "last_name", "phone_number", "email", "address", "post_code"};
+
+    /** The columns that cannot be null: every person needs a surname, phone number, address and post code. */
+    public static final String[] REQUIRED_COLUMNS = {"last_name", "phone_number", "address", "post_code"};
+
+    /** The detail map keys matching each entry of {@link #COLUMNS}. */
+    public static final String[] DETAIL_KEYS = {"firstName", "lastName", "phoneNumber", "email", "address", "postCode"};
+
+    /** The person table this store reads and writes. */
+    private final String tableName;
+
+    /**
+     * Creates a store for one of the person tables.
+     *
+     * @param tableName The table name: architect, contractor or customer.
+     */
+    public PersonStore(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * Returns the name of the table this store manages.
+     *
+     * @return The table name.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Checks if a person ID exists in the table.
+     *
+     * @param conn Connection to the database.
+     * @param id   The ID to check.
+     * @return true if the ID exists, false otherwise.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public boolean exists(Connection conn, int id) throws SQLException {
+        String sql = "SELECT 1 FROM " + tableName + " WHERE id = ? AND deleted_at IS NULL";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Inserts a new person.
+     *
+     * @param conn    Connection to the database.
+     * @param details A map containing the person details.
+     * @return The generated ID of the new person, or -1 if nothing was inserted.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public int insert(Connection conn, Map<String, String> details) throws SQLException {
+        String sql = "INSERT INTO " + tableName + " (first_name, last_name, phone_number, email, address, post_code) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            setParameters(pstmt, details);
+            if (pstmt.executeUpdate() == 0) {
+                return -1;
+            }
+            int id;
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                id = keys.next() ? keys.getInt(1) : -1;
+            }
+            if (id > 0 && DataChanges.hasListeners()) {
+                DataChanges.publish(conn, tableName, id, null, findById(conn, id));
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Updates an existing person.
+     *
+     * @param conn    Connection to the database.
+     * @param id      The ID of the person to update.
+     * @param details A map containing the new person details.
+     * @return The number of rows updated.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public int update(Connection conn, int id, Map<String, String> details) throws SQLException {
+        String sql = "UPDATE " + tableName + " SET first_name = ?, last_name = ?, phone_number = ?, email = ?, "
+                + "address = ?, post_code = ? WHERE id = ? AND deleted_at IS NULL";
+        Map<String, Object> before = DataChanges.hasListeners() ? findById(conn, id) : null;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, details);
+            pstmt.setInt(7, id); // The 7th parameter is the person ID
+            int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0 && DataChanges.hasListeners()) {
+                DataChanges.publish(conn, tableName, id, before, findById(conn, id));
+            }
+            return rowsAffected;
+        }
+    }
+
+    /**
+     * Deletes a person, by marking the row as deleted.
+     *
+     * <p>The check that no project refers to the person and the marking run in one transaction, with the
+     * person's row locked first. {@link AddProject#insertProject} locks the same row before adding a project,
+     * so a project cannot be added for a person while they are being deleted.</p>
+     *
+     * @param conn Connection to the database.
+     * @param id   The ID of the person to delete.
+     * @return The number of rows deleted.
+     * @throws SQLIntegrityConstraintViolationException If a project still refers to the person, as the
+     *                                                  foreign key would for a hard delete.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public int delete(Connection conn, int id) throws SQLException {
+        String sql = "UPDATE " + tableName + " SET deleted_at = CURRENT_TIMESTAMP(3) WHERE id = ? AND deleted_at IS NULL";
+        boolean autoCommit = conn.getAutoCommit();
+        Map<String, Object> before = null;
+        int rowsAffected;
+        conn.setAutoCommit(false);
+        try {
+            if (!lockIfPresent(conn, tableName, id)) {
+                conn.rollback();
+                return 0;
+            }
+            if (isReferenced(conn, id)) {
+                throw new SQLIntegrityConstraintViolationException(
+                        "Cannot delete this " + tableName + " because projects still refer to them.");
+            }
+            if (DataChanges.hasListeners()) {
+                before = findById(conn, id);
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, id);
+                rowsAffected = pstmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        if (rowsAffected > 0 && before != null) {
+            DataChanges.publish(conn, tableName, id, before, null);
+        }
+        return rowsAffected;
+    }
+
+    /**
+     * Locks a person's row until the end of the current transaction, if the person has not been deleted.
+     *
+     * @param conn      Connection to the database, in a transaction.
+     * @param tableName The person table.
+     * @param id        The person's ID.
+     * @return true if the person exists and is now locked, false if there is no such person.
+     * @throws SQLException If an SQL error occurs.
+     */
+    static boolean lockIfPresent(Connection conn, String tableName, int id) throws SQLException {
+        String sql = "SELECT id FROM " + tableName + " WHERE id = ? AND deleted_at IS NULL FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Locks the people a project is given until the end of the current transaction, so that none of them
+     * can be deleted (see {@link #delete}) before the project refers to them. IDs of -1 are skipped.
+     *
+     * @param conn         Connection to the database, in a transaction.
+     * @param architectId  The architect's ID, or -1.
+     * @param contractorId The contractor's ID, or -1.
+     * @param customerId   The customer's ID, or -1.
+     * @throws SQLIntegrityConstraintViolationException If one of the people does not exist or has been deleted.
+     * @throws SQLException If an SQL error occurs.
+     */
+    static void lockPeople(Connection conn, int architectId, int contractorId, int customerId) throws SQLException {
+        String[] tables = {"architect", "contractor", "customer"};
+        int[] ids = {architectId, contractorId, customerId};
+        for (int i = 0; i < tables.length; i++) {
+            if (ids[i] != -1 && !lockIfPresent(conn, tables[i], ids[i])) {
+                throw new SQLIntegrityConstraintViolationException(
+                        "The " + tables[i] + " with ID " + ids[i] + " does not exist or has been deleted.");
+            }
+        }
+    }
+
+    /**
+     * Checks whether a project that has not been deleted refers to a person.
+     */
+    private boolean isReferenced(Connection conn, int id) throws SQLException {
+        String sql = "SELECT 1 FROM Projects WHERE " + tableName + "_id = ? AND deleted_at IS NULL LIMIT 1";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Finds a person by ID.
+     *
+     * @param conn Connection to the database.
+     * @param id   The ID to search for.
+     * @return The person row, or null if not found.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public Map<String, Object> findById(Connection conn, int id) throws SQLException {
+        String sql = "SELECT * FROM " + tableName + " WHERE id = ? AND deleted_at IS NULL";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? readRow(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Finds every person in the table.
+     *
+     * @param conn Connection to the database.
+     * @return All person rows.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public List<Map<String, Object>> findAll(Connection conn) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM " + tableName + " WHERE deleted_at IS NULL");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(readRow(rs));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the current row of a ResultSet into a map keyed by column name.
+     *
+     * @param rs The ResultSet positioned on a person row.
+     * @return The person row.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public static Map<String, Object> readRow(ResultSet rs) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", rs.getInt("id"));
+        for (String column : COLUMNS) {
+            row.put(column, rs.getString(column));
+        }
+        return row;
+    }
+
+    /**
+     * Converts a map keyed by column name (such as a JSON request body) into a details map.
+     *
+     * @param values The values keyed by column name.
+     * @return The details map; columns that are missing map to null.
+     */
+    public static Map<String, String> detailsFromColumns(Map<String, ?> values) {
+        Map<String, String> details = new HashMap<>();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            Object value = values.get(COLUMNS[i]);
+            details.put(DETAIL_KEYS[i], value == null ? null : value.toString());
+        }
+        return details;
+    }
+
+    /**
+     * Sets the person detail parameters (1 to 6) in a PreparedStatement.
+     *
+     * @param pstmt   The PreparedStatement to set the parameters in.
+     * @param details A map containing the person details.
+     * @throws SQLException If an SQL error occurs.
+     */
+    private void setParameters(PreparedStatement pstmt, Map<String, String> details) throws SQLException {
+        for (int i = 0; i < DETAIL_KEYS.length; i++) {
+            pstmt.setString(i + 1, details.get(DETAIL_KEYS[i]));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.math.BigDecimal;
 import java.sql.Date;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * The Project.java file manages the operations related to projects in the PoisePMS system.
@@ -21,7 +22,8 @@ public class Project {
      * @param scanner Scanner object to read user input.
      */
     public void updateProject(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // points to the class to establish db connection
+        try {
+            // no connection is held while waiting for input; each check and the update borrow their own
             while (true) {
                 System.out.print("Enter Project Number to update (or 0 to return to the main menu): ");
                 String input = scanner.nextLine(); // get the project number from the user
@@ -39,7 +41,7 @@ public class Project {
                 }
 
                 // check if the project number exists in the db and inform user if not
-                if (!doesProjectNumberExist(conn, projectNumber)) {
+                if (!doesProjectNumberExist(projectNumber)) {
                     System.out.println("Project number not found. Please try again.");
                     continue;
                 }
@@ -52,21 +54,29 @@ public class Project {
                 String projectAddress = getInput(scanner, "Enter new project address: ");
                 String erfNumber = getInput(scanner, "Enter new ERF number (up to 10 digits): ");
                 BigDecimal totalFee = getValidatedMonetaryInput(scanner, "Enter new total fee (GBP): ");
-                BigDecimal paidToDate = getValidatedMonetaryInput(scanner, "Enter new amount paid to date (GBP): ");
                 Date deadlineDate = getValidatedDateInput(scanner, "Enter new deadline date (YYYY-MM-DD): ");
                 Date completionDate = getValidatedDateInput(scanner, "Enter new completion date (YYYY-MM-DD), if applicable: ");
                 String finalised = getInput(scanner, "Is the project finalised (true/false): ");
 
                 // get updated IDs for related entities (architect, contractor & customer)
-                int architectId = getValidatedId(scanner, conn, "architect", "Enter new architect ID (or leave blank to retain current): ");
-                int contractorId = getValidatedId(scanner, conn, "contractor", "Enter new contractor ID (or leave blank to retain current): ");
-                int customerId = getValidatedId(scanner, conn, "customer", "Enter new customer ID (or leave blank to retain current): ");
+                int architectId = getValidatedId(scanner, "architect", "Enter new architect ID (or leave blank to retain current): ");
+                int contractorId = getValidatedId(scanner, "contractor", "Enter new contractor ID (or leave blank to retain current): ");
+                int customerId = getValidatedId(scanner, "customer", "Enter new customer ID (or leave blank to retain current): ");
 
                 // update the project details in the database
-                updateProjectDetails(conn, projectNumber, projectName, buildingType, projectAddress, erfNumber,
-                        totalFee, paidToDate, deadlineDate, completionDate, finalised,
-                        architectId, contractorId, customerId);
-                System.out.println("Project updated successfully."); // output to user when details successfully updated
+                int rowsAffected;
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    rowsAffected = updateProjectDetails(conn, projectNumber, projectName, buildingType, projectAddress,
+                            erfNumber, totalFee, deadlineDate, completionDate, finalised,
+                            architectId, contractorId, customerId);
+                }
+                if (rowsAffected > 0) {
+                    System.out.println("Project updated successfully."); // output to user when details successfully updated
+                } else if (rowsAffected == 0) {
+                    System.out.println("No changes were made to the project.");
+                } else {
+                    System.out.println("No fields were updated. SQL update not executed.");
+                }
                 return; // to exit the update process
             }
         } catch (SQLException e) {
@@ -90,12 +100,11 @@ public class Project {
      * Helper method to validate and get the ID for architect, contractor, or customer.
      *
      * @param scanner   Scanner object to read user input.
-     * @param conn      Connection to the database.
      * @param tableName The name of the table to check the ID in.
      * @param prompt    The prompt to display to the user.
      * @return The validated ID.
      */
-    private int getValidatedId(Scanner scanner, Connection conn, String tableName, String prompt) {
+    private int getValidatedId(Scanner scanner, String tableName, String prompt) {
         while (true) {
             System.out.print(prompt);
             String idInput = scanner.nextLine();
@@ -104,7 +113,7 @@ public class Project {
             }
             try {
                 int id = Integer.parseInt(idInput);
-                if (idExists(conn, id, tableName)) {
+                if (idExists(id, tableName)) {
                     return id;
                 } else {
                     System.out.println("ID does not exist in the " + tableName + " table. Please try again or leave blank to retain current.");
@@ -116,7 +125,8 @@ public class Project {
     }
 
     /**
-     * Updates the project details in the database.
+     * Updates the project details in the database. Blank strings, null values and IDs of -1 leave
+     * the matching column unchanged.
      *
      * @param conn           Connection to the database.
      * @param projectNumber  The project number to update.
@@ -125,19 +135,20 @@ public class Project {
      * @param projectAddress The new project address.
      * @param erfNumber      The new ERF number.
      * @param totalFee       The new total fee.
-     * @param paidToDate     The new amount paid to date.
      * @param deadlineDate   The new deadline date.
      * @param completionDate The new completion date, if applicable.
      * @param finalised      Whether the project is finalised.
      * @param architectId    The new architect ID.
      * @param contractorId   The new contractor ID.
      * @param customerId     The new customer ID.
+     * @return The number of rows updated, or -1 if no fields were given so no update was run.
+     * @throws java.sql.SQLIntegrityConstraintViolationException If a new architect, contractor or customer does
+     *                      not exist or has been deleted.
      * @throws SQLException If an SQL error occurs during the update.
      */
-    private void updateProjectDetails(Connection conn, int projectNumber, String projectName, String buildingType,
-                                      String projectAddress, String erfNumber, BigDecimal totalFee, BigDecimal paidToDate,
-                                      Date deadlineDate, Date completionDate, String finalised,
-                                      int architectId, int contractorId, int customerId) throws SQLException {
+    public int updateProjectDetails(Connection conn, int projectNumber, String projectName, String buildingType,
+                                    String projectAddress, String erfNumber, BigDecimal totalFee, Date deadlineDate, Date completionDate, String finalised,
+                                    int architectId, int contractorId, int customerId) throws SQLException {
         StringBuilder sql = new StringBuilder("UPDATE projects SET ");
         List<Object> params = new ArrayList<>();
 
@@ -149,7 +160,6 @@ public class Project {
         if (projectAddress != null && !projectAddress.isEmpty()) { sql.append("project_address = ?, "); params.add(projectAddress); anyFieldUpdated = true; }
         if (erfNumber != null && !erfNumber.isEmpty()) { sql.append("erf_number = ?, "); params.add(erfNumber); anyFieldUpdated = true; }
         if (totalFee != null) { sql.append("total_fee_gbp = ?, "); params.add(totalFee); anyFieldUpdated = true; }
-        if (paidToDate != null) { sql.append("paid_to_date_gbp = ?, "); params.add(paidToDate); anyFieldUpdated = true; }
         if (deadlineDate != null) { sql.append("deadline_date = ?, "); params.add(deadlineDate); anyFieldUpdated = true; }
         if (completionDate != null) { sql.append("completion_date = ?, "); params.add(completionDate); anyFieldUpdated = true; }
         if (finalised != null && !finalised.isEmpty()) { sql.append("finalised = ?, "); params.add(Boolean.parseBoolean(finalised)); anyFieldUpdated = true; }
@@ -159,23 +169,40 @@ public class Project {
 
         if (anyFieldUpdated) {
             sql.setLength(sql.length() - 2); // Remove the last comma and space and avoid SQL issues therefore
-            sql.append(" WHERE project_number = ?;");
+            sql.append(" WHERE project_number = ? AND deleted_at IS NULL;");
             params.add(projectNumber);
 
+            boolean autoCommit = conn.getAutoCommit();
+            int rowsAffected;
+            Map<String, Object> before = null;
+            Map<String, Object> after = null;
+            conn.setAutoCommit(false);
             try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                // lock any new people, so that none of them can be deleted (see PersonStore.delete) until the project refers to them
+                PersonStore.lockPeople(conn, architectId, contractorId, customerId);
+                if (DataChanges.hasListeners()) {
+                    before = ProjectSearch.findProjectRow(conn, projectNumber);
+                }
                 for (int i = 0; i < params.size(); i++) {
                     pstmt.setObject(i + 1, params.get(i));
                 }
-                int rowsAffected = pstmt.executeUpdate();
-                if (rowsAffected > 0) {
-                    System.out.println("Project updated successfully.");
-                } else {
-                    System.out.println("No changes were made to the project.");
+                rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0 && DataChanges.hasListeners()) {
+                    after = ProjectSearch.findProjectRow(conn, projectNumber);
                 }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
             }
-        } else {
-            System.out.println("No fields were updated. SQL update not executed.");
+            if (rowsAffected > 0 && DataChanges.hasListeners()) {
+                DataChanges.publish(conn, DataChanges.PROJECTS, projectNumber, before, after);
+            }
+            return rowsAffected;
         }
+        return -1;
     }
 
     /**
@@ -184,7 +211,7 @@ public class Project {
      * @param scanner Scanner object to read user input.
      */
     public void deleteProject(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // points to the class to establish db connection
+        try {
             while (true) {
                 System.out.print("Enter Project Number to delete (or 0 to return to the main menu): ");
                 String input = scanner.nextLine();
@@ -199,18 +226,17 @@ public class Project {
                     System.out.println("Invalid entry. Project numbers are numeric values only. Please try again.");
                     continue;
                 }
-                if (doesProjectNumberExist(conn, projectNumber)) {
-                    String sql = "DELETE FROM projects WHERE project_number = ?";
-                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                        pstmt.setInt(1, projectNumber);
-                        int rowsAffected = pstmt.executeUpdate();
-                        if (rowsAffected > 0) {
-                            System.out.println("Project deleted successfully.");
-                        } else {
-                            System.out.println("No project was deleted.");
-                        }
-                        return;
+                if (doesProjectNumberExist(projectNumber)) {
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = deleteProject(conn, projectNumber);
+                    }
+                    if (rowsAffected > 0) {
+                        System.out.println("Project deleted successfully.");
+                    } else {
+                        System.out.println("No project was deleted.");
                     }
+                    return;
                 } else {
                     System.out.println("Project number not found. Please try again.");
                 }
@@ -220,6 +246,26 @@ public class Project {
         }
     }
 
+    /**
+     * Deletes a project from the database. The row is only marked as deleted, which is quick and takes
+     * a single row lock; {@link PurgeWorker} removes it later.
+     *
+     * @param conn          Connection to the database.
+     * @param projectNumber The project number to delete.
+     * @return The number of rows deleted.
+     * @throws SQLException If an SQL error occurs.
+     */
+    public int deleteProject(Connection conn, int projectNumber) throws SQLException {
+        String sql = "UPDATE projects SET deleted_at = CURRENT_TIMESTAMP(3) WHERE project_number = ? AND deleted_at IS NULL";
+        Map<String, Object> before = DataChanges.hasListeners() ? ProjectSearch.findProjectRow(conn, projectNumber) : null;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, projectNumber);
+            int rowsAffected = pstmt.executeUpdate();
+            publishChange(conn, projectNumber, before, rowsAffected);
+            return rowsAffected;
+        }
+    }
+
     /**
      * Finalises a project by asking the user for the project number and updating its status in the database.
      * This method will handle user input via the scanner and then call the existing
@@ -228,7 +274,7 @@ public class Project {
      * @param scanner Scanner object to read user input.
      */
     public void finaliseProject(Scanner scanner) {
-        try (Connection conn = DatabaseConnection.getConnection()) { // Get the database connection
+        try {
             while (true) {
                 System.out.print("Enter Project Number to finalise (or 0 to return to the main menu): ");
                 String input = scanner.nextLine(); // Get project number input
@@ -248,9 +294,15 @@ public class Project {
                 }
 
                 // Check if the project exists in the database
-                if (doesProjectNumberExist(conn, projectNumber)) {
+                if (doesProjectNumberExist(projectNumber)) {
                     // Call the existing method to finalise the project
-                    finaliseProject(conn, projectNumber);
+                    int rowsAffected;
+                    try (Connection conn = DatabaseConnection.getConnection()) {
+                        rowsAffected = finaliseProject(conn, projectNumber);
+                    }
+                    if (rowsAffected == 0) {
+                        System.out.println("No changes were made. The project may already be finalised.");
+                    }
                     System.out.println("Project number " + projectNumber + " has been finalised.");
                     return; // Exit after finalising the project
                 } else {
@@ -267,31 +319,49 @@ public class Project {
      *
      * @param conn          Connection to the database.
      * @param projectNumber The project number to finalise.
+     * @return The number of rows updated.
      * @throws SQLException If an SQL error occurs.
      */
-    public void finaliseProject(Connection conn, int projectNumber) throws SQLException {
-        String sql = "UPDATE projects SET finalised = TRUE WHERE project_number = ?";
+    public int finaliseProject(Connection conn, int projectNumber) throws SQLException {
+        String sql = "UPDATE projects SET finalised = TRUE WHERE project_number = ? AND deleted_at IS NULL";
+        Map<String, Object> before = DataChanges.hasListeners() ? ProjectSearch.findProjectRow(conn, projectNumber) : null;
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, projectNumber);
             int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected == 0) {
-                System.out.println("No changes were made. The project may already be finalised.");
-            }
+            publishChange(conn, projectNumber, before, rowsAffected);
+            return rowsAffected;
         }
     }
 
-
     /**
-     * Checks if a project number exists in the database.
+     * Tells any {@link DataChangeListener}s about a change to a project, reading the row's new state.
      *
      * @param conn          Connection to the database.
+     * @param projectNumber The project number that was changed.
+     * @param before        The project row before the change.
+     * @param rowsAffected  The number of rows the change affected; nothing is published if this is 0.
+     * @throws SQLException If the new state cannot be read or a listener fails.
+     */
+    private void publishChange(Connection conn, int projectNumber, Map<String, Object> before, int rowsAffected)
+            throws SQLException {
+        if (rowsAffected > 0 && DataChanges.hasListeners()) {
+            Map<String, Object> after = ProjectSearch.findProjectRow(conn, projectNumber); // null after a delete
+            DataChanges.publish(conn, DataChanges.PROJECTS, projectNumber, before, after);
+        }
+    }
+
+
+    /**
+     * Checks if a project number exists in the database, on a connection borrowed just for the check.
+     *
      * @param projectNumber The project number to check.
      * @return true if the project number exists, false otherwise.
      */
-    private boolean doesProjectNumberExist(Connection conn, int projectNumber) {
-        String sql = "SELECT 1 FROM projects WHERE project_number = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private boolean doesProjectNumberExist(int projectNumber) {
+        String sql = "SELECT 1 FROM projects WHERE project_number = ? AND deleted_at IS NULL";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, projectNumber);
             try (ResultSet rs = pstmt.executeQuery()) {
                 return rs.next();
@@ -303,16 +373,16 @@ public class Project {
     }
 
     /**
-     * Checks if an ID exists in a specified table.
+     * Checks if an ID exists in a specified table, on a connection borrowed just for the check.
      *
-     * @param conn      Connection to the database.
      * @param id        The ID to check.
      * @param tableName The table to check the ID in.
      * @return true if the ID exists, false otherwise.
      */
-    private boolean idExists(Connection conn, int id, String tableName) {
-        String sql = "SELECT 1 FROM " + tableName + " WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private boolean idExists(int id, String tableName) {
+        String sql = "SELECT 1 FROM " + tableName + " WHERE id = ? AND deleted_at IS NULL";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 return rs.next();
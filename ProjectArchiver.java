@@ -0,0 +1,154 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ProjectArchiver class moves finalised projects that were completed before a cutoff date out of the
+ * Projects table and into {@code projects_archive}, so the table every search reads stays small and its
+ * indexes stay in memory.
+ *
+ * <p>Projects are moved in batches ({@code poise.archive.batchSize}, default 1000), each in its own
+ * transaction: the batch's rows are locked, copied to the archive and deleted from Projects, then
+ * committed, so a project is always in exactly one of the two tables and locks are held only briefly. The
+ * archive has the same columns as Projects, which lets searches add it with a {@code UNION ALL} (see
+ * {@link #includingArchive(String)}).</p>
+ *
+ * <p>Once a batch is committed, each moved project is published through {@link DataChanges} as removed from
+ * Projects, so the dashboard counters and the read replica in the same process drop it straight away; an
+ * application running elsewhere catches up at its next reconciliation. Payments and project history have no
+ * foreign key to Projects and are kept as they are, and {@link ProjectHistory} leaves an archived project's
+ * current version open.</p>
+ *
+ * <p>Run {@code java ProjectArchiver [days]} to archive projects completed more than {@code days} ago
+ * (default {@code poise.archive.cutoffDays}, or 365).</p>
+ */
+public class ProjectArchiver {
+
+    /** The table archived projects are moved to. */
+    static final String ARCHIVE_TABLE = "projects_archive";
+
+    private static final String SELECT_BATCH = "SELECT * FROM Projects "
+            + "WHERE finalised = 1 AND completion_date < ? AND deleted_at IS NULL ORDER BY project_number LIMIT ? FOR UPDATE";
+
+    private final int batchSize;
+
+    /**
+     * Creates an archiver with the batch size from {@code poise.archive.batchSize}.
+     */
+    public ProjectArchiver() {
+        this(Integer.getInteger("poise.archive.batchSize", 1000));
+    }
+
+    ProjectArchiver(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The archive batch size must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Moves every finalised project completed before the cutoff date into the archive.
+     *
+     * @param cutoff Projects completed before this date are archived.
+     * @return The number of projects archived.
+     * @throws SQLException If a database access error occurs; batches already committed stay archived.
+     */
+    public int archive(LocalDate cutoff) throws SQLException {
+        int archived = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            int moved;
+            do {
+                moved = archiveBatch(conn, Date.valueOf(cutoff));
+                archived += moved;
+            } while (moved == batchSize);
+        }
+        return archived;
+    }
+
+    /**
+     * Moves one batch of projects in a single transaction.
+     */
+    private int archiveBatch(Connection conn, Date cutoff) throws SQLException {
+        try {
+            List<Integer> projectNumbers = new ArrayList<>();
+            List<Map<String, Object>> rows = new ArrayList<>();
+            try (PreparedStatement select = conn.prepareStatement(SELECT_BATCH)) {
+                select.setDate(1, cutoff);
+                select.setInt(2, batchSize);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        Map<String, Object> row = ProjectSearch.readProjectRow(rs);
+                        projectNumbers.add((Integer) row.get("project_number"));
+                        rows.add(row);
+                    }
+                }
+            }
+            if (projectNumbers.isEmpty()) {
+                conn.commit();
+                return 0;
+            }
+
+            StringBuilder in = new StringBuilder();
+            for (int i = 0; i < projectNumbers.size(); i++) {
+                in.append(i == 0 ? "?" : ", ?");
+            }
+            executeForProjects(conn, "INSERT INTO " + ARCHIVE_TABLE + " SELECT * FROM Projects WHERE project_number IN ("
+                    + in + ")", projectNumbers);
+            int deleted = executeForProjects(conn, "DELETE FROM Projects WHERE project_number IN (" + in + ")",
+                    projectNumbers);
+            conn.commit();
+
+            for (Map<String, Object> row : rows) {
+                DataChanges.publish(conn, DataChanges.PROJECTS, (Integer) row.get("project_number"), row, null);
+            }
+            conn.commit(); // anything the listeners wrote
+            return deleted;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private static int executeForProjects(Connection conn, String sql, List<Integer> projectNumbers) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < projectNumbers.size(); i++) {
+                pstmt.setInt(i + 1, projectNumbers.get(i));
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Extends a query on the Projects table to the archive as well, by repeating it against the archive
+     * with {@code UNION ALL}. The query must select {@code *} and name the table as {@code FROM Projects};
+     * its parameters need to be bound twice, once for each half.
+     *
+     * @param query A query on the Projects table.
+     * @return The query over both tables.
+     */
+    static String includingArchive(String query) {
+        return query + " UNION ALL " + query.replace("FROM Projects", "FROM " + ARCHIVE_TABLE);
+    }
+
+    /**
+     * Archives projects completed before a cutoff.
+     *
+     * @param args Optionally the number of days before today of the cutoff.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void main(String[] args) throws SQLException {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("poise.archive.cutoffDays", 365);
+        LocalDate cutoff = LocalDate.now().minusDays(days);
+        long start = System.nanoTime();
+        int archived = new ProjectArchiver().archive(cutoff);
+        System.out.printf("Archived %d projects completed before %s in %d ms%n", archived, cutoff,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
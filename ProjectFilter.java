@@ -0,0 +1,266 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ProjectFilter class searches projects by any combination of building type, fee range, outstanding
+ * balance, deadline range, finalised flag and architect, contractor or customer ID.
+ *
+ * <p>Set the criteria that are wanted (the others are ignored) and call {@link #find(Connection)}. The
+ * filter compiles to a single parameterised query. Predicates are written so that MySQL can use an index
+ * for them (no functions around indexed columns) and are ordered to match the composite indexes from
+ * Step 11 of {@code poisePMS.sql}: equality tests on the leading index columns first, then ranges, with the
+ * outstanding balance, which is calculated and cannot use an index, last.</p>
+ */
+public class ProjectFilter {
+
+    /** Predicate priorities: lower numbers are placed first in the WHERE clause. */
+    private static final int PERSON_EQUALITY = 0;
+    private static final int EQUALITY = 1;
+    private static final int RANGE = 2;
+    private static final int CALCULATED = 3;
+
+    private String buildingType;
+    private BigDecimal minFee;
+    private BigDecimal maxFee;
+    private BigDecimal minOutstanding;
+    private BigDecimal maxOutstanding;
+    private Date deadlineFrom;
+    private Date deadlineTo;
+    private Boolean finalised;
+    private Integer architectId;
+    private Integer contractorId;
+    private Integer customerId;
+
+    /** The fee and outstanding bounds in pence, worked out on first use by {@link #matches}. */
+    private long[] penceBounds;
+
+    public ProjectFilter buildingType(String buildingType) {
+        this.buildingType = buildingType;
+        return this;
+    }
+
+    public ProjectFilter feeBetween(BigDecimal min, BigDecimal max) {
+        this.minFee = min;
+        this.maxFee = max;
+        this.penceBounds = null;
+        return this;
+    }
+
+    public ProjectFilter outstandingBetween(BigDecimal min, BigDecimal max) {
+        this.minOutstanding = min;
+        this.maxOutstanding = max;
+        this.penceBounds = null;
+        return this;
+    }
+
+    public ProjectFilter deadlineBetween(Date from, Date to) {
+        this.deadlineFrom = from;
+        this.deadlineTo = to;
+        return this;
+    }
+
+    public ProjectFilter finalised(Boolean finalised) {
+        this.finalised = finalised;
+        return this;
+    }
+
+    public ProjectFilter architectId(Integer architectId) {
+        this.architectId = architectId;
+        return this;
+    }
+
+    public ProjectFilter contractorId(Integer contractorId) {
+        this.contractorId = contractorId;
+        return this;
+    }
+
+    public ProjectFilter customerId(Integer customerId) {
+        this.customerId = customerId;
+        return this;
+    }
+
+    /**
+     * Creates a filter from named values, such as HTTP query parameters. Recognised names are
+     * {@code building_type}, {@code min_fee}, {@code max_fee}, {@code min_outstanding},
+     * {@code max_outstanding}, {@code deadline_from}, {@code deadline_to}, {@code finalised},
+     * {@code architect_id}, {@code contractor_id} and {@code customer_id}; blank values are ignored.
+     *
+     * @param values The values keyed by name.
+     * @return The filter.
+     * @throws IllegalArgumentException If a value cannot be parsed.
+     */
+    public static ProjectFilter fromValues(Map<String, String> values) {
+        return new ProjectFilter()
+                .buildingType(blankToNull(values.get("building_type")))
+                .feeBetween(decimal(values.get("min_fee")), decimal(values.get("max_fee")))
+                .outstandingBetween(decimal(values.get("min_outstanding")), decimal(values.get("max_outstanding")))
+                .deadlineBetween(date(values.get("deadline_from")), date(values.get("deadline_to")))
+                .finalised(bool(values.get("finalised")))
+                .architectId(integer(values.get("architect_id")))
+                .contractorId(integer(values.get("contractor_id")))
+                .customerId(integer(values.get("customer_id")));
+    }
+
+    /**
+     * One condition of the WHERE clause, with its parameter values.
+     */
+    private static final class Predicate {
+        final int priority;
+        final String sql;
+        final Object[] params;
+
+        Predicate(int priority, String sql, Object... params) {
+            this.priority = priority;
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Compiles the filter to SQL.
+     *
+     * @param params Receives the parameter values, in the order of the placeholders.
+     * @return The SELECT statement.
+     */
+    public String toSql(List<Object> params) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (architectId != null) {
+            predicates.add(new Predicate(PERSON_EQUALITY, "architect_id = ?", architectId));
+        }
+        if (contractorId != null) {
+            predicates.add(new Predicate(PERSON_EQUALITY, "contractor_id = ?", contractorId));
+        }
+        if (customerId != null) {
+            predicates.add(new Predicate(PERSON_EQUALITY, "customer_id = ?", customerId));
+        }
+        if (finalised != null) {
+            predicates.add(new Predicate(EQUALITY, "finalised = ?", finalised));
+        }
+        if (buildingType != null) {
+            predicates.add(new Predicate(EQUALITY, "building_type = ?", buildingType));
+        }
+        addRange(predicates, "deadline_date", deadlineFrom, deadlineTo);
+        addRange(predicates, "total_fee_gbp", minFee, maxFee);
+        if (minOutstanding != null) {
+            predicates.add(new Predicate(CALCULATED, "total_fee_gbp - paid_to_date_gbp >= ?", minOutstanding));
+        }
+        if (maxOutstanding != null) {
+            predicates.add(new Predicate(CALCULATED, "total_fee_gbp - paid_to_date_gbp <= ?", maxOutstanding));
+        }
+        predicates.sort(Comparator.comparingInt(p -> p.priority)); // stable, so equal priorities keep their order
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM Projects WHERE deleted_at IS NULL");
+        for (Predicate predicate : predicates) {
+            sql.append(" AND ").append(predicate.sql);
+            for (Object param : predicate.params) {
+                params.add(param);
+            }
+        }
+        sql.append(" ORDER BY project_number");
+        return sql.toString();
+    }
+
+    private static void addRange(List<Predicate> predicates, String column, Object from, Object to) {
+        if (from != null && to != null) {
+            predicates.add(new Predicate(RANGE, column + " BETWEEN ? AND ?", from, to));
+        } else if (from != null) {
+            predicates.add(new Predicate(RANGE, column + " >= ?", from));
+        } else if (to != null) {
+            predicates.add(new Predicate(RANGE, column + " <= ?", to));
+        }
+    }
+
+    /**
+     * Runs the filter.
+     *
+     * @param conn Connection to the database.
+     * @return The matching project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> find(Connection conn) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = toSql(params);
+        return ProjectSearch.queryProjects(conn, sql, params.toArray());
+    }
+
+    /**
+     * Tests a project held in the {@link ProjectReplica} against the filter, with the same meaning as the
+     * compiled query (a missing fee or date never matches a criterion on it).
+     *
+     * @param record The packed project record.
+     * @return true if the project matches every criterion that is set.
+     */
+    public boolean matches(ProjectReplica.Record record) {
+        if ((architectId != null && record.architectId() != architectId)
+                || (contractorId != null && record.contractorId() != contractorId)
+                || (customerId != null && record.customerId() != customerId)
+                || (finalised != null && record.isFinalised() != finalised)) {
+            return false;
+        }
+        if (deadlineFrom != null && record.deadlineDay() < deadlineFrom.toLocalDate().toEpochDay()
+                || deadlineTo != null && record.deadlineDay() > deadlineTo.toLocalDate().toEpochDay()) {
+            return false;
+        }
+        long fee = record.totalFeePence();
+        long paid = record.paidToDatePence();
+        boolean noFee = fee == Long.MIN_VALUE;
+        if (penceBounds == null) {
+            penceBounds = new long[] {
+                    lowerPence(minFee), upperPence(maxFee), lowerPence(minOutstanding), upperPence(maxOutstanding)
+            };
+        }
+        if ((minFee != null || maxFee != null) && (noFee || fee < penceBounds[0] || fee > penceBounds[1])) {
+            return false;
+        }
+        if ((minOutstanding != null || maxOutstanding != null) && (noFee || paid == Long.MIN_VALUE
+                || fee - paid < penceBounds[2] || fee - paid > penceBounds[3])) {
+            return false;
+        }
+        return buildingType == null || buildingType.equalsIgnoreCase(record.buildingType()); // as MySQL's collation
+    }
+
+    private static long lowerPence(BigDecimal min) {
+        return min == null ? Long.MIN_VALUE : min.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+    }
+
+    private static long upperPence(BigDecimal max) {
+        return max == null ? Long.MAX_VALUE : max.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static BigDecimal decimal(String value) {
+        value = blankToNull(value);
+        return value == null ? null : new BigDecimal(value);
+    }
+
+    private static Date date(String value) {
+        value = blankToNull(value);
+        return value == null ? null : Date.valueOf(value);
+    }
+
+    private static Boolean bool(String value) {
+        value = blankToNull(value);
+        if (value == null) {
+            return null;
+        }
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("finalised must be true or false");
+        }
+        return Boolean.valueOf(value);
+    }
+
+    private static Integer integer(String value) {
+        value = blankToNull(value);
+        return value == null ? null : Integer.valueOf(value);
+    }
+}
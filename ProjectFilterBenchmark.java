@@ -0,0 +1,163 @@
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ProjectFilterBenchmark class times {@link ProjectFilter} over a set of typical filter shapes and shows
+ * which index MySQL chose for each, so the composite indexes in Step 11 of {@code poisePMS.sql} can be
+ * checked against the queries that use them.
+ *
+ * <p>Run with {@code java ProjectFilterBenchmark [--seed N]}. With {@code --seed} the Projects table is first
+ * topped up with synthetic projects (linked to the existing people) until it holds at least N rows; 100000 is a
+ * good size to compare against.</p>
+ */
+public class ProjectFilterBenchmark {
+
+    /** The number of timed runs of each shape; the first run is a warm-up and is not reported. */
+    private static final int RUNS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optionally {@code --seed N}.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void main(String[] args) throws SQLException {
+        if (args.length == 2 && "--seed".equals(args[0])) {
+            seedProjects(Integer.parseInt(args[1]));
+        }
+
+        Date today = Date.valueOf(LocalDate.now());
+        Map<String, ProjectFilter> shapes = new LinkedHashMap<>();
+        shapes.put("open projects due in the next 30 days", new ProjectFilter()
+                .finalised(false)
+                .deadlineBetween(today, Date.valueOf(LocalDate.now().plusDays(30))));
+        shapes.put("building type within a fee range", new ProjectFilter()
+                .buildingType("House")
+                .feeBetween(new BigDecimal("100000"), new BigDecimal("500000")));
+        shapes.put("open projects of one architect", new ProjectFilter()
+                .architectId(1)
+                .finalised(false));
+        shapes.put("overdue projects of one contractor", new ProjectFilter()
+                .contractorId(1)
+                .finalised(false)
+                .deadlineBetween(null, today));
+        shapes.put("customer's projects by deadline", new ProjectFilter()
+                .customerId(1)
+                .deadlineBetween(Date.valueOf(LocalDate.now().minusYears(1)), today));
+        shapes.put("outstanding balance over 50000", new ProjectFilter()
+                .outstandingBetween(new BigDecimal("50000"), null));
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (Map.Entry<String, ProjectFilter> shape : shapes.entrySet()) {
+                long totalNanos = 0;
+                int rows = 0;
+                for (int run = 0; run <= RUNS; run++) {
+                    long start = System.nanoTime();
+                    rows = shape.getValue().find(conn).size();
+                    if (run > 0) {
+                        totalNanos += System.nanoTime() - start; // run 0 is the warm-up
+                    }
+                }
+                System.out.printf("%-40s %,8d rows  %,8.2f ms  index: %s%n", shape.getKey(), rows,
+                        totalNanos / (RUNS * 1_000_000.0), explainIndex(conn, shape.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Asks MySQL which index it would use for a filter.
+     *
+     * @param conn   Connection to the database.
+     * @param filter The filter to explain.
+     * @return The chosen index, or "none (full scan)".
+     * @throws SQLException If a database access error occurs.
+     */
+    private static String explainIndex(Connection conn, ProjectFilter filter) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = "EXPLAIN " + filter.toSql(params);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                String key = rs.next() ? rs.getString("key") : null;
+                return key == null ? "none (full scan)" : key;
+            }
+        }
+    }
+
+    /**
+     * Inserts synthetic projects until the Projects table holds at least the target number of rows.
+     *
+     * @param target The number of projects wanted.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void seedProjects(int target) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int existing;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Projects")) {
+                rs.next();
+                existing = rs.getInt(1);
+            }
+            int[] architectIds = ids(conn, "architect");
+            int[] contractorIds = ids(conn, "contractor");
+            int[] customerIds = ids(conn, "customer");
+            if (architectIds.length == 0 || contractorIds.length == 0 || customerIds.length == 0) {
+                throw new SQLException("Add at least one architect, contractor and customer before seeding projects.");
+            }
+
+            String sql = "INSERT INTO Projects (project_name, building_type, project_address, erf_number, total_fee_gbp, "
+                    + "paid_to_date_gbp, deadline_date, completion_date, finalised, architect_id, contractor_id, customer_id) "
+                    + "VALUES (?, 'House', 'Benchmark Street', 'B0000', ?, 0, ?, NULL, FALSE, ?, ?, ?)";
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = existing; i < target; i++) {
+                    pstmt.setString(1, "Benchmark " + i);
+                    pstmt.setBigDecimal(2, BigDecimal.valueOf(10000 + (i % 500) * 100L));
+                    pstmt.setDate(3, Date.valueOf(LocalDate.now().plusDays(i % 730)));
+                    pstmt.setInt(4, architectIds[i % architectIds.length]);
+                    pstmt.setInt(5, contractorIds[i % contractorIds.length]);
+                    pstmt.setInt(6, customerIds[i % customerIds.length]);
+                    pstmt.addBatch();
+                    if ((i - existing + 1) % 1000 == 0) {
+                        pstmt.executeBatch();
+                        conn.commit();
+                    }
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            }
+            System.out.printf("Projects table holds at least %,d rows.%n", Math.max(existing, target));
+        }
+    }
+
+    /**
+     * Reads every ID in one of the person tables.
+     *
+     * @param conn      Connection to the database.
+     * @param tableName The person table.
+     * @return The IDs.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static int[] ids(Connection conn, String tableName) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM " + tableName)) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,259 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ProjectHistory class keeps every version of every project in the {@code project_history} table, so
+ * that a project (or all projects) can be seen as it was on a past date.
+ *
+ * <p>Each version is valid from its {@code valid_from} time up to, but not including, its {@code valid_to}
+ * time; the current version has a {@code valid_to} in the year 9999. Whenever a project changes (as
+ * published through {@link DataChanges}) the current version is closed and a new one is inserted, on the
+ * same connection as the change. Most changes are made in autocommit mode and published once they have
+ * been saved, so the history is written just after the change rather than in the same transaction: if
+ * writing it fails, the change stands and that version is missing from the history. The Projects table
+ * itself is left as it was, so {@link ProjectSearch} is not affected.</p>
+ *
+ * <p>The primary key {@code (project_number, valid_from)} makes a lookup of one project at a date a single
+ * index range scan; the {@code (valid_to, valid_from)} and {@code (customer_id, valid_to)} indexes do the
+ * same for snapshots of all projects or one customer's portfolio. Projects that existed before the history
+ * table was added have no versions until {@code java ProjectHistory --backfill} is run.</p>
+ */
+public class ProjectHistory implements DataChangeListener {
+
+    /**
+     * The {@code valid_to} of current versions. It is written into the SQL rather than bound as a parameter
+     * so that no time zone conversion can move it.
+     */
+    private static final String OPEN_ENDED = "'9999-12-31 00:00:00'";
+
+    private static final String COLUMNS = "project_number, project_name, building_type, project_address, erf_number, "
+            + "total_fee_gbp, paid_to_date_gbp, deadline_date, completion_date, start_date, finalised, "
+            + "architect_id, contractor_id, customer_id";
+    private static final String[] KEYS = COLUMNS.split(", ");
+
+    private static final ProjectHistory INSTANCE = new ProjectHistory();
+
+    private boolean started;
+
+    /**
+     * Returns the single history recorder.
+     *
+     * @return The history recorder.
+     */
+    public static ProjectHistory getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts recording project changes. Calling this more than once has no further effect.
+     */
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            DataChanges.register(this);
+        }
+    }
+
+    @Override
+    public void onChange(Connection conn, String table, int key, Map<String, Object> before, Map<String, Object> after)
+            throws SQLException {
+        if (!DataChanges.PROJECTS.equals(table)) {
+            return;
+        }
+        if (after == null && isArchived(conn, key)) {
+            return; // moved to the archive by ProjectArchiver, so its current version stays current
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement close = conn.prepareStatement(
+                "UPDATE project_history SET valid_to = ? WHERE project_number = ? AND valid_to = " + OPEN_ENDED)) {
+            close.setTimestamp(1, now);
+            close.setInt(2, key);
+            close.executeUpdate();
+        }
+        if (after == null) {
+            return; // deleted, so there is no new version
+        }
+
+        // a second change in the same millisecond replaces the version the first one created
+        StringBuilder sql = new StringBuilder("INSERT INTO project_history (").append(COLUMNS)
+                .append(", valid_from, valid_to, changed_by) VALUES (");
+        for (int i = 0; i < KEYS.length; i++) {
+            sql.append("?, ");
+        }
+        sql.append("?, ").append(OPEN_ENDED).append(", ?) ON DUPLICATE KEY UPDATE valid_to = VALUES(valid_to), changed_by = VALUES(changed_by)");
+        for (String column : KEYS) {
+            if (!column.equals("project_number")) {
+                sql.append(", ").append(column).append(" = VALUES(").append(column).append(')');
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String column : KEYS) {
+                insert.setObject(index++, after.get(column));
+            }
+            insert.setTimestamp(index++, now);
+            insert.setString(index, AuditJournal.getActor());
+            insert.executeUpdate();
+        }
+    }
+
+    private static boolean isArchived(Connection conn, int projectNumber) throws SQLException {
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT 1 FROM " + ProjectArchiver.ARCHIVE_TABLE + " WHERE project_number = ?")) {
+            select.setInt(1, projectNumber);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Gives every project that has not been deleted and has no current version a version starting now.
+     *
+     * @return The number of versions added.
+     * @throws SQLException If a database access error occurs.
+     */
+    public int backfill() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement statement = conn.createStatement()) {
+            return statement.executeUpdate("INSERT INTO project_history (" + COLUMNS + ", valid_from, valid_to, changed_by) "
+                    + "SELECT " + COLUMNS + ", NOW(3), " + OPEN_ENDED + ", 'backfill' FROM Projects p "
+                    + "WHERE p.deleted_at IS NULL AND NOT EXISTS (SELECT 1 FROM project_history h "
+                    + "WHERE h.project_number = p.project_number AND h.valid_to = " + OPEN_ENDED + ")");
+        }
+    }
+
+    /**
+     * Finds a project as it was at the end of a date.
+     *
+     * @param projectNumber The project number.
+     * @param date          The date.
+     * @return The project row as it was, or null if the project did not exist then (or has no history).
+     * @throws SQLException If a database access error occurs.
+     */
+    public Map<String, Object> findAsOf(int projectNumber, LocalDate date) throws SQLException {
+        Timestamp end = endOf(date);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // the latest version starting before the end of the day, if it was still valid then
+            List<Map<String, Object>> rows = query(conn, "SELECT * FROM project_history WHERE project_number = ? "
+                    + "AND valid_from < ? ORDER BY valid_from DESC LIMIT 1", projectNumber, end);
+            return rows.isEmpty() || ((Timestamp) rows.get(0).get("valid_to")).before(end) ? null : rows.get(0);
+        }
+    }
+
+    /**
+     * Finds every project, or every project of one customer, as it was at the end of a date.
+     *
+     * @param date       The date.
+     * @param customerId The customer whose portfolio to return, or null for all projects.
+     * @return The project rows as they were, by project number.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findAllAsOf(LocalDate date, Integer customerId) throws SQLException {
+        Timestamp end = endOf(date);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (customerId != null) {
+                return query(conn, "SELECT * FROM project_history WHERE customer_id = ? AND valid_to >= ? "
+                        + "AND valid_from < ? ORDER BY project_number", customerId, end, end);
+            }
+            return query(conn, "SELECT * FROM project_history WHERE valid_to >= ? AND valid_from < ? "
+                    + "ORDER BY project_number", end, end);
+        }
+    }
+
+    /**
+     * Finds every version of a project, oldest first.
+     *
+     * @param projectNumber The project number.
+     * @return The versions, each with its {@code valid_from}, {@code valid_to} and {@code changed_by}.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findVersions(int projectNumber) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return query(conn, "SELECT * FROM project_history WHERE project_number = ? ORDER BY valid_from",
+                    projectNumber);
+        }
+    }
+
+    /**
+     * Prints a project as it was on a date, or all of its versions if no date is given.
+     *
+     * @param number The project number as entered.
+     * @param date   The date as entered (YYYY-MM-DD), or blank.
+     */
+    public void displayHistory(String number, String date) {
+        try {
+            int projectNumber = Integer.parseInt(number.trim());
+            List<Map<String, Object>> versions;
+            if (date.trim().isEmpty()) {
+                versions = findVersions(projectNumber);
+            } else {
+                Map<String, Object> version = findAsOf(projectNumber, LocalDate.parse(date.trim()));
+                versions = version == null ? List.of() : List.of(version);
+            }
+            if (versions.isEmpty()) {
+                System.out.println("No history found for that project" + (date.trim().isEmpty() ? "." : " on that date."));
+            }
+            for (Map<String, Object> version : versions) {
+                Timestamp validTo = (Timestamp) version.get("valid_to");
+                System.out.printf("From %s to %s (changed by %s):%n", version.get("valid_from"),
+                        validTo.toLocalDateTime().getYear() == 9999 ? "now" : validTo, version.get("changed_by"));
+                ProjectSearch.printProjectRow(version);
+            }
+            System.out.println();
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid project number. Please enter a numeric value.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date format. Please enter the date in YYYY-MM-DD format.");
+        } catch (SQLException e) {
+            System.out.println("Error reading project history: " + e.getMessage());
+        }
+    }
+
+    private static List<Map<String, Object>> query(Connection conn, String sql, Object... params) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> row = ProjectSearch.readProjectRow(rs);
+                    row.put("valid_from", rs.getTimestamp("valid_from"));
+                    row.put("valid_to", rs.getTimestamp("valid_to"));
+                    row.put("changed_by", rs.getString("changed_by"));
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /** Returns the first instant after a date, so "as of the date" means as of the end of that day. */
+    private static Timestamp endOf(LocalDate date) {
+        return Timestamp.valueOf(date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Runs the backfill.
+     *
+     * @param args {@code --backfill}.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void main(String[] args) throws SQLException {
+        if (args.length == 1 && "--backfill".equals(args[0])) {
+            System.out.println("Added " + getInstance().backfill() + " project versions.");
+        } else {
+            System.out.println("Usage: java ProjectHistory --backfill");
+        }
+    }
+}
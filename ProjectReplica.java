@@ -0,0 +1,662 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * The ProjectReplica class keeps a read-only copy of the Projects table in memory, outside the Java heap,
+ * so that {@link ProjectSearch} can list and filter projects without querying MySQL. It is off unless
+ * {@code -Dpoise.replica.enabled=true} is set.
+ *
+ * <p>Each project is packed into a variable-length record in one direct {@link ByteBuffer}: the numbers,
+ * money (in pence) and dates (as epoch days) at fixed positions, followed by the text columns as UTF-8.
+ * An open-addressing hash table of primitive ints maps each project number to its record's offset, so the
+ * garbage collector sees a handful of large objects however many projects there are. A changed project is
+ * appended as a new record and the old one is left as garbage, which is compacted away once it outweighs
+ * the live records.</p>
+ *
+ * <p>The replica is loaded with one scan at start-up and then kept up to date in three ways: every change
+ * made by this application is applied as it is published through {@link DataChanges}; every few seconds
+ * ({@code poise.replica.refreshSeconds}, default 5) rows whose {@code updated_at} has moved on are
+ * re-read, which picks up changes made elsewhere; and every few minutes
+ * ({@code poise.replica.reconcileMinutes}, default 10) every project is read again and compared with its
+ * copy, which replaces any copy the refreshes missed (for example from a transaction that committed long
+ * after it set {@code updated_at}) and drops projects deleted elsewhere.</p>
+ */
+public class ProjectReplica implements DataChangeListener {
+
+    // record layout
+    private static final int PROJECT_NUMBER = 0;
+    private static final int TOTAL_FEE = 4;
+    private static final int PAID_TO_DATE = 12;
+    private static final int DEADLINE = 20;
+    private static final int COMPLETION = 24;
+    private static final int START = 28;
+    private static final int FINALISED = 32;
+    private static final int ARCHITECT_ID = 33;
+    private static final int CONTRACTOR_ID = 37;
+    private static final int CUSTOMER_ID = 41;
+    private static final int TEXT = 45; // project name, building type, address, ERF number
+    private static final int TEXT_COLUMNS = 4;
+
+    private static final long NULL_PENCE = Long.MIN_VALUE;
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+
+    /** How far back each refresh looks before the newest {@code updated_at} seen, for slow transactions. */
+    private static final long REFRESH_OVERLAP_MILLIS = 5_000;
+
+    private static final ProjectReplica INSTANCE = new ProjectReplica();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ByteBuffer records = ByteBuffer.allocateDirect(1 << 20);
+    private final IntIndex index = new IntIndex();
+    private int garbageBytes;
+    private Timestamp watermark;
+    /** The projects changed through {@link #onChange} while {@link #reconcile} runs, or null when it is not running. */
+    private IntIndex changedDuringReconcile;
+    private volatile boolean ready;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Returns the single replica.
+     *
+     * @return The replica.
+     */
+    public static ProjectReplica getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the replica if it is enabled and loaded, for read paths to use in place of the database.
+     *
+     * @return The replica, or null if reads should go to the database.
+     */
+    public static ProjectReplica ifReady() {
+        return INSTANCE.ready ? INSTANCE : null;
+    }
+
+    /**
+     * Loads the replica, starts listening for project changes and schedules the refreshes, if the replica is
+     * enabled with {@code poise.replica.enabled}. Calling this more than once has no further effect.
+     */
+    public synchronized void startIfEnabled() {
+        if (refresher != null || !Boolean.getBoolean("poise.replica.enabled")) {
+            return;
+        }
+        DataChanges.register(this);
+        try {
+            reload();
+        } catch (SQLException e) {
+            System.out.println("Project replica could not be loaded, reading from the database: " + e.getMessage());
+        }
+
+        long refreshSeconds = Long.getLong("poise.replica.refreshSeconds", 5L);
+        long reconcileMinutes = Long.getLong("poise.replica.reconcileMinutes", 10L);
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                if (ready) {
+                    refresh();
+                } else {
+                    reload(); // the first load failed, keep trying
+                }
+            } catch (SQLException e) {
+                // keep serving the current copy and try again next time
+            }
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                if (ready) {
+                    reconcile();
+                }
+            } catch (SQLException e) {
+                // try again next time
+            }
+        }, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Replaces the contents of the replica with a full scan of the Projects table.
+     *
+     * @throws SQLException If a database access error occurs.
+     */
+    public void reload() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement statement = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(DatabaseConnection.getStorage().getStreamingFetchSize());
+            lock.writeLock().lock();
+            try {
+                records.clear();
+                index.clear();
+                garbageBytes = 0;
+                watermark = null;
+                try (ResultSet rs = statement.executeQuery("SELECT * FROM Projects WHERE deleted_at IS NULL")) {
+                    while (rs.next()) {
+                        put(ProjectSearch.readProjectRow(rs));
+                        advanceWatermark(rs.getTimestamp("updated_at"));
+                    }
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Re-reads the projects changed since the last refresh, according to their {@code updated_at} column,
+     * dropping any that have been deleted.
+     *
+     * @throws SQLException If a database access error occurs.
+     */
+    public void refresh() throws SQLException {
+        Timestamp since;
+        lock.readLock().lock();
+        try {
+            since = watermark == null ? new Timestamp(0)
+                    : new Timestamp(watermark.getTime() - REFRESH_OVERLAP_MILLIS);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM Projects WHERE updated_at >= ?")) {
+            pstmt.setTimestamp(1, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> row = ProjectSearch.readProjectRow(rs);
+                    Timestamp updatedAt = rs.getTimestamp("updated_at");
+                    boolean deleted = rs.getTimestamp("deleted_at") != null;
+                    lock.writeLock().lock();
+                    try {
+                        if (deleted) {
+                            remove((Integer) row.get("project_number"));
+                        } else {
+                            put(row);
+                        }
+                        advanceWatermark(updatedAt);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads every project again, replacing each copy that differs from the table and removing the projects
+     * that are no longer in it, e.g. deleted by another application or moved to the archive. Projects this
+     * application changes while the scan runs are left alone, as their copies are newer than the scan.
+     *
+     * @return The number of copies replaced or removed.
+     * @throws SQLException If a database access error occurs.
+     */
+    public int reconcile() throws SQLException {
+        IntIndex present = new IntIndex();
+        IntIndex changed = new IntIndex();
+        int corrected = 0;
+        lock.writeLock().lock();
+        try {
+            changedDuringReconcile = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement statement = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(DatabaseConnection.getStorage().getStreamingFetchSize());
+                try (ResultSet rs = statement.executeQuery("SELECT * FROM Projects WHERE deleted_at IS NULL")) {
+                    while (rs.next()) {
+                        Map<String, Object> row = ProjectSearch.readProjectRow(rs);
+                        int projectNumber = (Integer) row.get("project_number");
+                        present.put(projectNumber, 0);
+                        lock.writeLock().lock();
+                        try {
+                            int offset = index.get(projectNumber);
+                            if (changed.get(projectNumber) < 0
+                                    && (offset < 0 || !new Record(records, offset).toRow().equals(row))) {
+                                put(row);
+                                corrected++;
+                            }
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                for (int key : index.keys()) {
+                    if (present.get(key) < 0 && changed.get(key) < 0) {
+                        remove(key);
+                        corrected++;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringReconcile = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return corrected;
+    }
+
+    @Override
+    public void onChange(Connection conn, String table, int key, Map<String, Object> before, Map<String, Object> after) {
+        if (!DataChanges.PROJECTS.equals(table) || !ready) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (changedDuringReconcile != null) {
+                changedDuringReconcile.put(key, 0);
+            }
+            if (after == null) {
+                remove(key);
+            } else {
+                put(after);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------ reads
+
+    /**
+     * Returns the number of projects held.
+     *
+     * @return The number of projects.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a project by its number.
+     *
+     * @param projectNumber The project number.
+     * @return The project row, in the same form as {@link ProjectSearch#readProjectRow}, or null.
+     */
+    public Map<String, Object> find(int projectNumber) {
+        lock.readLock().lock();
+        try {
+            int offset = index.get(projectNumber);
+            return offset < 0 ? null : new Record(records, offset).toRow();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the projects whose record matches a test, in project number order. The test reads the packed
+     * record in place; only the matching projects are turned into rows.
+     *
+     * @param test The test each project must pass.
+     * @return The matching project rows.
+     */
+    public List<Map<String, Object>> findAll(Predicate<Record> test) {
+        lock.readLock().lock();
+        try {
+            int[] keys = index.keys();
+            Arrays.sort(keys);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            Record record = new Record(records, 0);
+            for (int key : keys) {
+                record.offset = index.get(key);
+                if (test.test(record)) {
+                    rows.add(record.toRow());
+                }
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A view of one packed project record. The same view is moved from record to record during a scan, so it
+     * must not be kept after the test it is passed to returns.
+     */
+    public static final class Record {
+        private final ByteBuffer records;
+        private int offset;
+
+        Record(ByteBuffer records, int offset) {
+            this.records = records;
+            this.offset = offset;
+        }
+
+        public int projectNumber() {
+            return records.getInt(offset + PROJECT_NUMBER);
+        }
+
+        /** Returns the total fee in pence, or {@link Long#MIN_VALUE} if there is none. */
+        public long totalFeePence() {
+            return records.getLong(offset + TOTAL_FEE);
+        }
+
+        /** Returns the amount paid to date in pence, or {@link Long#MIN_VALUE} if there is none. */
+        public long paidToDatePence() {
+            return records.getLong(offset + PAID_TO_DATE);
+        }
+
+        /** Returns the deadline as days since 1970-01-01. */
+        public int deadlineDay() {
+            return records.getInt(offset + DEADLINE);
+        }
+
+        /** Returns the completion date as days since 1970-01-01, or {@link Integer#MIN_VALUE} if not completed. */
+        public int completionDay() {
+            return records.getInt(offset + COMPLETION);
+        }
+
+        public boolean isFinalised() {
+            return records.get(offset + FINALISED) != 0;
+        }
+
+        public int architectId() {
+            return records.getInt(offset + ARCHITECT_ID);
+        }
+
+        public int contractorId() {
+            return records.getInt(offset + CONTRACTOR_ID);
+        }
+
+        public int customerId() {
+            return records.getInt(offset + CUSTOMER_ID);
+        }
+
+        public String projectName() {
+            return text(0);
+        }
+
+        public String buildingType() {
+            return text(1);
+        }
+
+        private String text(int column) {
+            int position = offset + TEXT;
+            for (int i = 0; i < column; i++) {
+                position += 2 + Math.max(0, records.getShort(position));
+            }
+            int length = records.getShort(position);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            records.get(position + 2, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /** Returns the length of the whole record in bytes. */
+        int length() {
+            int position = offset + TEXT;
+            for (int i = 0; i < TEXT_COLUMNS; i++) {
+                position += 2 + Math.max(0, records.getShort(position));
+            }
+            return position - offset;
+        }
+
+        /** Unpacks the record into a project row. */
+        Map<String, Object> toRow() {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("project_number", projectNumber());
+            row.put("project_name", text(0));
+            row.put("building_type", text(1));
+            row.put("project_address", text(2));
+            row.put("erf_number", text(3));
+            row.put("total_fee_gbp", money(totalFeePence()));
+            row.put("paid_to_date_gbp", money(paidToDatePence()));
+            row.put("deadline_date", date(deadlineDay()));
+            row.put("completion_date", date(completionDay()));
+            row.put("start_date", date(records.getInt(offset + START)));
+            row.put("finalised", isFinalised());
+            row.put("architect_id", architectId());
+            row.put("contractor_id", contractorId());
+            row.put("customer_id", customerId());
+            return row;
+        }
+
+        private static BigDecimal money(long pence) {
+            return pence == NULL_PENCE ? null : BigDecimal.valueOf(pence, 2);
+        }
+
+        private static Date date(int epochDay) {
+            return epochDay == NULL_DAY ? null : Date.valueOf(LocalDate.ofEpochDay(epochDay));
+        }
+    }
+
+    // ------------------------------------------------------------------ writes (under the write lock)
+
+    /** Packs a project row onto the end of the buffer and points the index at it. */
+    private void put(Map<String, Object> row) {
+        byte[][] text = {
+                utf8(row.get("project_name")), utf8(row.get("building_type")),
+                utf8(row.get("project_address")), utf8(row.get("erf_number"))
+        };
+        int length = TEXT;
+        for (byte[] bytes : text) {
+            length += 2 + (bytes == null ? 0 : bytes.length);
+        }
+        ensureCapacity(length);
+
+        int offset = records.position();
+        records.putInt((Integer) row.get("project_number"));
+        records.putLong(pence((BigDecimal) row.get("total_fee_gbp")));
+        records.putLong(pence((BigDecimal) row.get("paid_to_date_gbp")));
+        records.putInt(epochDay((Date) row.get("deadline_date")));
+        records.putInt(epochDay((Date) row.get("completion_date")));
+        records.putInt(epochDay((Date) row.get("start_date")));
+        records.put((byte) (Boolean.TRUE.equals(row.get("finalised")) ? 1 : 0));
+        records.putInt((Integer) row.get("architect_id"));
+        records.putInt((Integer) row.get("contractor_id"));
+        records.putInt((Integer) row.get("customer_id"));
+        for (byte[] bytes : text) {
+            if (bytes == null) {
+                records.putShort((short) -1);
+            } else {
+                records.putShort((short) bytes.length).put(bytes);
+            }
+        }
+
+        int previous = index.put((Integer) row.get("project_number"), offset);
+        if (previous >= 0) {
+            garbageBytes += new Record(records, previous).length();
+        }
+    }
+
+    private void remove(int projectNumber) {
+        int offset = index.remove(projectNumber);
+        if (offset >= 0) {
+            garbageBytes += new Record(records, offset).length();
+        }
+    }
+
+    /**
+     * Makes room for a record of the given length, compacting the buffer if most of it is garbage and
+     * otherwise doubling it.
+     */
+    private void ensureCapacity(int length) {
+        if (records.remaining() >= length) {
+            return;
+        }
+        int live = records.position() - garbageBytes;
+        int capacity = records.capacity();
+        while (capacity - live < length || live > capacity / 2) {
+            capacity *= 2;
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect(capacity);
+        for (int key : index.keys()) {
+            Record record = new Record(records, index.get(key));
+            int recordLength = record.length();
+            index.put(key, compacted.position());
+            compacted.put(compacted.position(), records, record.offset, recordLength);
+            compacted.position(compacted.position() + recordLength);
+        }
+        records = compacted;
+        garbageBytes = 0;
+    }
+
+    private void advanceWatermark(Timestamp updatedAt) {
+        if (updatedAt != null && (watermark == null || updatedAt.after(watermark))) {
+            watermark = updatedAt;
+        }
+    }
+
+    private static byte[] utf8(Object value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        return bytes.length > Short.MAX_VALUE ? Arrays.copyOf(bytes, Short.MAX_VALUE) : bytes;
+    }
+
+    private static long pence(BigDecimal amount) {
+        return amount == null ? NULL_PENCE : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static int epochDay(Date date) {
+        return date == null ? NULL_DAY : (int) date.toLocalDate().toEpochDay();
+    }
+
+    /**
+     * A hash table from int keys to int values using open addressing with linear probing, so that no
+     * objects are created per entry. Keys must not be 0, which marks an empty slot; values must not be
+     * negative, which {@link #get(int)} uses to mean "absent".
+     */
+    static final class IntIndex {
+        private int[] keys = new int[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        /** Sets the value for a key, returning the previous value or -1. */
+        int put(int key, int value) {
+            if (key == 0) {
+                throw new IllegalArgumentException("Key 0 cannot be indexed");
+            }
+            if ((size + 1) * 4 > keys.length * 3) { // keep the table at most 75% full
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    int previous = values[slot];
+                    values[slot] = value;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            return -1;
+        }
+
+        /** Removes a key, returning its value or -1. Later entries are shifted back so no tombstones are needed. */
+        int remove(int key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == 0) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int removed = values[slot];
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                // move the entry into the gap unless its home slot lies cyclically between the gap and itself
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            size--;
+            return removed;
+        }
+
+        int[] keys() {
+            int[] present = new int[size];
+            int i = 0;
+            for (int key : keys) {
+                if (key != 0) {
+                    present[i++] = key;
+                }
+            }
+            return present;
+        }
+
+        void clear() {
+            Arrays.fill(keys, 0);
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[capacity];
+            values = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9; // spreads sequential project numbers across the table
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -1,17 +1,52 @@
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * The ProjectSearch.java file provides methods to search for projects in the PoisePMS system.
  * It includes functionality to search by project number or name, as well as to list all projects,
  * incomplete projects, and those that have exceeded their deadlines.
+ *
+ * <p>The {@code find...} methods return the matching projects as rows (one map per project, keyed by
+ * column name) instead of printing them, so they can be reused by the HTTP API.</p>
+ *
+ * <p>The ranked queries ({@link #findMostOverdue(int)}, {@link #findLargestOutstanding(int)} and
+ * {@link #findBiggestFeesByBuildingType(int)}) return only the top K projects. Where an index delivers rows
+ * in rank order MySQL stops after K rows ({@code ORDER BY ... LIMIT}); the outstanding balance is calculated,
+ * so those rows are streamed through a {@link TopK} heap instead, keeping memory at O(K).</p>
+ *
+ * <p>When the {@link ProjectReplica} is enabled and loaded, the project listings (on the console and through
+ * the API), name search, lookup by number and filter methods read from it instead of from MySQL.</p>
  */
 
 public class ProjectSearch {
 
+    /**
+     * Selects each project together with the names of its architect, contractor and customer, so a
+     * listing needs one query rather than three extra lookups per project.
+     */
+    static final String PROJECTS_WITH_NAMES_QUERY =
+            "SELECT p.*, "
+            + "CONCAT_WS(' ', a.first_name, a.last_name) AS architect_name, "
+            + "CONCAT_WS(' ', c.first_name, c.last_name) AS contractor_name, "
+            + "CONCAT_WS(' ', cu.first_name, cu.last_name) AS customer_name "
+            + "FROM Projects p "
+            + "JOIN Architect a ON a.id = p.architect_id "
+            + "JOIN Contractor c ON c.id = p.contractor_id "
+            + "JOIN Customer cu ON cu.id = p.customer_id "
+            + "WHERE p.deleted_at IS NULL "
+            + "ORDER BY p.project_number";
+
     /**
      * Establishes a connection to the database.
      *
@@ -28,11 +63,27 @@ public class ProjectSearch {
      * @param number The project number to search for.
      */
     public void searchProjectByNumber(String number) {
-        String query = "SELECT * FROM Projects WHERE project_number = ?";
+        searchProjectByNumber(number, false);
+    }
+
+    /**
+     * Searches for a project by its number, optionally in the archive as well.
+     *
+     * @param number         The project number to search for.
+     * @param includeArchive Whether to search archived projects too.
+     */
+    public void searchProjectByNumber(String number, boolean includeArchive) {
+        String query = "SELECT * FROM Projects WHERE deleted_at IS NULL AND project_number = ?";
+        if (includeArchive) {
+            query = ProjectArchiver.includingArchive(query);
+        }
         try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(query)) {
 
             statement.setString(1, number);
+            if (includeArchive) {
+                statement.setString(2, number);
+            }
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (!resultSet.next()) {
                     System.out.println("Project number not found.");
@@ -54,11 +105,27 @@ public class ProjectSearch {
      * @param name The project name or part of it to search for.
      */
     public void searchProjectByName(String name) {
-        String query = "SELECT * FROM Projects WHERE project_name LIKE ?";
+        searchProjectByName(name, false);
+    }
+
+    /**
+     * Searches for a project by its name using a partial match (LIKE), optionally in the archive as well.
+     *
+     * @param name           The project name or part of it to search for.
+     * @param includeArchive Whether to search archived projects too.
+     */
+    public void searchProjectByName(String name, boolean includeArchive) {
+        String query = "SELECT * FROM Projects WHERE deleted_at IS NULL AND project_name LIKE ?";
+        if (includeArchive) {
+            query = ProjectArchiver.includingArchive(query);
+        }
         try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(query)) {
 
             statement.setString(1, "%" + name + "%");
+            if (includeArchive) {
+                statement.setString(2, "%" + name + "%");
+            }
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (!resultSet.next()) {
                     System.out.println("No projects found with that name.");
@@ -78,7 +145,21 @@ public class ProjectSearch {
      * Lists all projects in the database.
      */
     public void listAllProjects() {
-        String query = "SELECT * FROM Projects";
+        listAllProjects(false);
+    }
+
+    /**
+     * Lists all projects in the database, optionally including archived projects.
+     *
+     * @param includeArchive Whether to list archived projects too.
+     */
+    public void listAllProjects(boolean includeArchive) {
+        ProjectReplica replica = includeArchive ? null : ProjectReplica.ifReady();
+        if (replica != null) {
+            printProjectRows(replica.findAll(record -> true));
+            return;
+        }
+        String query = includeArchive ? ProjectArchiver.includingArchive("SELECT * FROM Projects WHERE deleted_at IS NULL") : "SELECT * FROM Projects WHERE deleted_at IS NULL";
         try (Connection connection = getConnection();
              Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(query)) {
@@ -99,7 +180,12 @@ public class ProjectSearch {
      * Incomplete projects are those that have not been finalized.
      */
     public void listIncompleteProjects() {
-        String query = "SELECT * FROM Projects WHERE finalised = 0";
+        ProjectReplica replica = ProjectReplica.ifReady();
+        if (replica != null) {
+            printProjectRows(replica.findAll(record -> !record.isFinalised()));
+            return;
+        }
+        String query = "SELECT * FROM Projects WHERE deleted_at IS NULL AND finalised = 0";
         try (Connection connection = getConnection();
              Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(query)) {
@@ -119,7 +205,7 @@ public class ProjectSearch {
      * Lists all projects that have gone beyond their deadline and are not yet completed, updated.
      */
     public void listBeyondDeadlineProjects() {
-        String query = "SELECT * FROM Projects WHERE deadline_date < CURDATE() AND completion_date IS NULL";
+        String query = "SELECT * FROM Projects WHERE deleted_at IS NULL AND deadline_date < CURDATE() AND completion_date IS NULL";
         try (Connection connection = getConnection();
              Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(query)) {
@@ -135,6 +221,433 @@ public class ProjectSearch {
         }
     }
 
+    /**
+     * Lists all projects with the names of their architect, contractor and customer.
+     * Rows are printed as they arrive from the database rather than being collected first.
+     */
+    public void listAllProjectsWithNames() {
+        try {
+            streamProjectsWithNames(ProjectSearch::printProjectRowWithNames);
+            // Add an extra line after listing all projects
+            System.out.println();
+        } catch (SQLException e) {
+            System.out.println("Error listing projects with names: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Reads every project joined with its architect, contractor and customer names, passing each row to
+     * the given consumer as soon as it is read. The result set is streamed from MySQL one row at a time,
+     * so memory use stays flat however many projects there are.
+     *
+     * @param consumer Receives each project row, including {@code architect_name}, {@code contractor_name}
+     *                 and {@code customer_name}.
+     * @throws SQLException If a database access error occurs.
+     */
+    public void streamProjectsWithNames(Consumer<Map<String, Object>> consumer) throws SQLException {
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(DatabaseConnection.getStorage().getStreamingFetchSize());
+            try (ResultSet resultSet = statement.executeQuery(PROJECTS_WITH_NAMES_QUERY)) {
+                while (resultSet.next()) {
+                    Map<String, Object> row = readProjectRow(resultSet);
+                    row.put("architect_name", resultSet.getString("architect_name"));
+                    row.put("contractor_name", resultSet.getString("contractor_name"));
+                    row.put("customer_name", resultSet.getString("customer_name"));
+                    consumer.accept(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the K projects furthest beyond their deadline that are not yet completed.
+     *
+     * @param k The number of projects to list.
+     */
+    public void listMostOverdue(int k) {
+        try {
+            printRanked(findMostOverdue(k));
+        } catch (SQLException e) {
+            System.out.println("Error listing the most overdue projects: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Lists the K projects with the largest outstanding balance.
+     *
+     * @param k The number of projects to list.
+     */
+    public void listLargestOutstanding(int k) {
+        try {
+            printRanked(findLargestOutstanding(k));
+        } catch (SQLException e) {
+            System.out.println("Error listing the largest outstanding balances: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Lists the K projects with the biggest total fee for each building type.
+     *
+     * @param k The number of projects to list per building type.
+     */
+    public void listBiggestFeesByBuildingType(int k) {
+        try {
+            for (Map.Entry<String, List<Map<String, Object>>> type : findBiggestFeesByBuildingType(k).entrySet()) {
+                System.out.println("Building Type: " + type.getKey());
+                printRanked(type.getValue());
+            }
+        } catch (SQLException e) {
+            System.out.println("Error listing the biggest fees by building type: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prints ranked project rows, numbering them from 1.
+     *
+     * @param rows The project rows, best ranked first.
+     */
+    private static void printRanked(List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            System.out.println("No projects found.");
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            System.out.print((i + 1) + ". ");
+            printProjectRow(rows.get(i));
+        }
+        System.out.println();
+    }
+
+    /**
+     * Finds the K projects furthest beyond their deadline that are not yet completed, most overdue first.
+     * The {@code (completion_date, deadline_date)} index returns them in deadline order, so MySQL reads
+     * only K rows.
+     *
+     * @param k The number of projects to return.
+     * @return The project rows.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If k is less than 1.
+     */
+    public List<Map<String, Object>> findMostOverdue(int k) throws SQLException {
+        requirePositive(k);
+        try (Connection connection = getConnection()) {
+            return queryProjects(connection, "SELECT * FROM Projects WHERE deleted_at IS NULL AND completion_date IS NULL "
+                    + "AND deadline_date < CURDATE() ORDER BY deadline_date, project_number LIMIT ?", k);
+        }
+    }
+
+    /**
+     * Finds the K projects with the largest outstanding balance (total fee less paid to date), largest first.
+     * No index can order by the balance, so all projects are streamed past a bounded heap.
+     *
+     * @param k The number of projects to return.
+     * @return The project rows.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If k is less than 1.
+     */
+    public List<Map<String, Object>> findLargestOutstanding(int k) throws SQLException {
+        TopK<Map<String, Object>> top = new TopK<>(k,
+                Comparator.comparing(ProjectSearch::outstanding)
+                        .thenComparing(row -> (Integer) row.get("project_number"), Comparator.reverseOrder()));
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(DatabaseConnection.getStorage().getStreamingFetchSize());
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT * FROM Projects WHERE deleted_at IS NULL AND total_fee_gbp > paid_to_date_gbp")) {
+                while (resultSet.next()) {
+                    top.offer(readProjectRow(resultSet));
+                }
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * Finds the K projects with the biggest total fee for each building type, biggest first. Each type is
+     * read with its own {@code ORDER BY ... LIMIT} query on the {@code (building_type, total_fee_gbp)} index.
+     * Ties are broken by project number, also descending: InnoDB keeps the primary key at the end of every
+     * secondary index, so both sort columns run the same way and the index is read backwards for only K
+     * rows, with no sort.
+     *
+     * @param k The number of projects to return per building type.
+     * @return The project rows keyed by building type, in building type order.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If k is less than 1.
+     */
+    public Map<String, List<Map<String, Object>>> findBiggestFeesByBuildingType(int k) throws SQLException {
+        requirePositive(k);
+        Map<String, List<Map<String, Object>>> byType = new LinkedHashMap<>();
+        try (Connection connection = getConnection()) {
+            List<String> buildingTypes = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "SELECT DISTINCT building_type FROM Projects WHERE deleted_at IS NULL ORDER BY building_type")) {
+                while (resultSet.next()) {
+                    buildingTypes.add(resultSet.getString("building_type"));
+                }
+            }
+            for (String buildingType : buildingTypes) {
+                byType.put(buildingType, queryProjects(connection, "SELECT * FROM Projects WHERE deleted_at IS NULL AND building_type = ? "
+                        + "ORDER BY total_fee_gbp DESC, project_number DESC LIMIT ?", buildingType, k));
+            }
+        }
+        return byType;
+    }
+
+    private static BigDecimal outstanding(Map<String, Object> row) {
+        BigDecimal totalFee = (BigDecimal) row.get("total_fee_gbp");
+        BigDecimal paidToDate = (BigDecimal) row.get("paid_to_date_gbp");
+        return (totalFee == null ? BigDecimal.ZERO : totalFee).subtract(paidToDate == null ? BigDecimal.ZERO : paidToDate);
+    }
+
+    private static void requirePositive(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("K must be at least 1");
+        }
+    }
+
+    /**
+     * Lists the projects matching a filter.
+     *
+     * @param filter The criteria to match.
+     */
+    public void listFilteredProjects(ProjectFilter filter) {
+        try {
+            List<Map<String, Object>> rows = findProjects(filter);
+            if (rows.isEmpty()) {
+                System.out.println("No projects match the filter.");
+            }
+            for (Map<String, Object> row : rows) {
+                printProjectRow(row);
+            }
+            System.out.println();
+        } catch (SQLException e) {
+            System.out.println("Error filtering projects: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Finds the projects matching a filter.
+     *
+     * @param filter The criteria to match.
+     * @return The matching project rows, ordered by project number.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findProjects(ProjectFilter filter) throws SQLException {
+        ProjectReplica replica = ProjectReplica.ifReady();
+        if (replica != null) {
+            return replica.findAll(filter::matches);
+        }
+        try (Connection connection = getConnection()) {
+            return filter.find(connection);
+        }
+    }
+
+    /**
+     * Finds a project by its number.
+     *
+     * @param projectNumber The project number to search for.
+     * @return The project row, or null if there is no such project.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Map<String, Object> findProjectByNumber(int projectNumber) throws SQLException {
+        ProjectReplica replica = ProjectReplica.ifReady();
+        if (replica != null) {
+            return replica.find(projectNumber);
+        }
+        try (Connection connection = getConnection()) {
+            return findProjectRow(connection, projectNumber);
+        }
+    }
+
+    /**
+     * Finds a project by its number using an existing connection.
+     *
+     * @param connection    Connection to the database.
+     * @param projectNumber The project number to search for.
+     * @return The project row, or null if there is no such project.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static Map<String, Object> findProjectRow(Connection connection, int projectNumber) throws SQLException {
+        List<Map<String, Object>> rows = queryProjects(connection,
+                "SELECT * FROM Projects WHERE deleted_at IS NULL AND project_number = ?", projectNumber);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Finds projects whose name contains the given text.
+     *
+     * @param name The project name or part of it to search for.
+     * @return The matching project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findProjectsByName(String name) throws SQLException {
+        return findProjectsByName(name, false);
+    }
+
+    /**
+     * Finds projects whose name contains the given text, optionally including archived projects. The
+     * archive is always read from the database, so including it bypasses the read replica.
+     *
+     * @param name           The project name or part of it to search for.
+     * @param includeArchive Whether to search archived projects too.
+     * @return The matching project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findProjectsByName(String name, boolean includeArchive) throws SQLException {
+        if (includeArchive) {
+            try (Connection connection = getConnection()) {
+                return queryProjects(connection,
+                        ProjectArchiver.includingArchive("SELECT * FROM Projects WHERE deleted_at IS NULL AND project_name LIKE ?"),
+                        "%" + name + "%", "%" + name + "%");
+            }
+        }
+        ProjectReplica replica = ProjectReplica.ifReady();
+        if (replica != null) {
+            String lowerName = name.toLowerCase();
+            return replica.findAll(record -> record.projectName() != null
+                    && record.projectName().toLowerCase().contains(lowerName)); // LIKE ignores case
+        }
+        try (Connection connection = getConnection()) {
+            return queryProjects(connection, "SELECT * FROM Projects WHERE deleted_at IS NULL AND project_name LIKE ?", "%" + name + "%");
+        }
+    }
+
+    /**
+     * Finds all projects in the database.
+     *
+     * @return All project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findAllProjects() throws SQLException {
+        return findAllProjects(false);
+    }
+
+    /**
+     * Finds all projects, optionally including archived projects. The archive is always read from the
+     * database, so including it bypasses the read replica.
+     *
+     * @param includeArchive Whether to include archived projects.
+     * @return The project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findAllProjects(boolean includeArchive) throws SQLException {
+        if (includeArchive) {
+            try (Connection connection = getConnection()) {
+                return queryProjects(connection, ProjectArchiver.includingArchive("SELECT * FROM Projects WHERE deleted_at IS NULL"));
+            }
+        }
+        ProjectReplica replica = ProjectReplica.ifReady();
+        if (replica != null) {
+            return replica.findAll(record -> true);
+        }
+        try (Connection connection = getConnection()) {
+            return queryProjects(connection, "SELECT * FROM Projects WHERE deleted_at IS NULL");
+        }
+    }
+
+    /**
+     * Finds all projects that have not been finalised.
+     *
+     * @return The incomplete project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findIncompleteProjects() throws SQLException {
+        ProjectReplica replica = ProjectReplica.ifReady();
+        if (replica != null) {
+            return replica.findAll(record -> !record.isFinalised());
+        }
+        try (Connection connection = getConnection()) {
+            return queryProjects(connection, "SELECT * FROM Projects WHERE deleted_at IS NULL AND finalised = 0");
+        }
+    }
+
+    /**
+     * Finds all projects that have gone beyond their deadline and are not yet completed.
+     *
+     * @return The overdue project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<Map<String, Object>> findBeyondDeadlineProjects() throws SQLException {
+        ProjectReplica replica = ProjectReplica.ifReady();
+        if (replica != null) {
+            long today = LocalDate.now().toEpochDay();
+            return replica.findAll(record -> record.completionDay() == Integer.MIN_VALUE && record.deadlineDay() < today);
+        }
+        try (Connection connection = getConnection()) {
+            return queryProjects(connection,
+                    "SELECT * FROM Projects WHERE deleted_at IS NULL AND deadline_date < CURDATE() AND completion_date IS NULL");
+        }
+    }
+
+    /**
+     * Runs a query against the Projects table and reads every row it returns.
+     *
+     * @param connection Connection to the database.
+     * @param query      The SQL query to run.
+     * @param params     The values for the query's parameters, in order.
+     * @return The project rows.
+     * @throws SQLException If a database access error occurs.
+     */
+    static List<Map<String, Object>> queryProjects(Connection connection, String query, Object... params)
+            throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(readProjectRow(resultSet));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the current row of a ResultSet into a map keyed by column name.
+     *
+     * @param resultSet The ResultSet positioned on a project row.
+     * @return The project row.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static Map<String, Object> readProjectRow(ResultSet resultSet) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("project_number", resultSet.getInt("project_number"));
+        row.put("project_name", resultSet.getString("project_name"));
+        row.put("building_type", resultSet.getString("building_type"));
+        row.put("project_address", resultSet.getString("project_address"));
+        row.put("erf_number", resultSet.getString("erf_number"));
+        row.put("total_fee_gbp", resultSet.getBigDecimal("total_fee_gbp"));
+        row.put("paid_to_date_gbp", resultSet.getBigDecimal("paid_to_date_gbp"));
+        row.put("deadline_date", resultSet.getDate("deadline_date"));
+        row.put("completion_date", resultSet.getDate("completion_date"));
+        row.put("start_date", resultSet.getDate("start_date"));
+        row.put("finalised", resultSet.getBoolean("finalised"));
+        row.put("architect_id", resultSet.getInt("architect_id"));
+        row.put("contractor_id", resultSet.getInt("contractor_id"));
+        row.put("customer_id", resultSet.getInt("customer_id"));
+        return row;
+    }
+
+    /**
+     * Prints project rows read from the replica, followed by a blank line as the database listings do.
+     *
+     * @param rows The project rows to print.
+     */
+    private static void printProjectRows(List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            printProjectRow(row);
+        }
+        System.out.println();
+    }
+
     /**
      * Helper method to display project details.
      *
@@ -142,24 +655,44 @@ public class ProjectSearch {
      * @throws SQLException If a database access error occurs.
      */
     private void displayProjectDetails(ResultSet resultSet) throws SQLException {
-        String projectNumber = resultSet.getString("project_number");
-        String projectName = resultSet.getString("project_name");
-        String buildingType = resultSet.getString("building_type");
-        String projectAddress = resultSet.getString("project_address");
-        String erfNumber = resultSet.getString("erf_number");
-        double totalFee = resultSet.getDouble("total_fee_gbp");
-        double paidToDate = resultSet.getDouble("paid_to_date_gbp");
-        String deadlineDate = resultSet.getString("deadline_date");
-        String completionDate = resultSet.getString("completion_date");
-        int finalised = resultSet.getInt("finalised");
-        int architectId = resultSet.getInt("architect_id");
-        int contractorId = resultSet.getInt("contractor_id");
-        int customerId = resultSet.getInt("customer_id");
+        printProjectRow(readProjectRow(resultSet));
+    }
+
+    /**
+     * Prints the details of a project row that includes the names of the people involved.
+     *
+     * @param row The project row, as passed to the consumer of {@link #streamProjectsWithNames(Consumer)}.
+     */
+    public static void printProjectRowWithNames(Map<String, Object> row) {
+        double totalFee = row.get("total_fee_gbp") == null ? 0 : ((Number) row.get("total_fee_gbp")).doubleValue();
+        double paidToDate = row.get("paid_to_date_gbp") == null ? 0 : ((Number) row.get("paid_to_date_gbp")).doubleValue();
+
+        System.out.printf("Project Number: %s | Project Name: %s | Building Type: %s | Total Fee: %.2f | " +
+                        "Paid To Date: %.2f | Deadline Date: %s | Finalised: %d | Architect: %s (%d) | " +
+                        "Contractor: %s (%d) | Customer: %s (%d)%n",
+                row.get("project_number"), row.get("project_name"), row.get("building_type"), totalFee, paidToDate,
+                row.get("deadline_date"), Boolean.TRUE.equals(row.get("finalised")) ? 1 : 0,
+                row.get("architect_name"), row.get("architect_id"),
+                row.get("contractor_name"), row.get("contractor_id"),
+                row.get("customer_name"), row.get("customer_id"));
+    }
+
+    /**
+     * Prints the details of a project row on a single line.
+     *
+     * @param row The project row, as returned by {@link #readProjectRow(ResultSet)}.
+     */
+    public static void printProjectRow(Map<String, Object> row) {
+        double totalFee = row.get("total_fee_gbp") == null ? 0 : ((Number) row.get("total_fee_gbp")).doubleValue();
+        double paidToDate = row.get("paid_to_date_gbp") == null ? 0 : ((Number) row.get("paid_to_date_gbp")).doubleValue();
 
         System.out.printf("Project Number: %s | Project Name: %s | Building Type: %s | Address: %s | " +
                         "ERF Number: %s | Total Fee: %.2f | Paid To Date: %.2f | Deadline Date: %s | " +
                         "Completion Date: %s | Finalised: %d | Architect ID: %d | Contractor ID: %d| Customer ID: %d%n",
-                projectNumber, projectName, buildingType, projectAddress, erfNumber, totalFee, paidToDate,
-                deadlineDate, completionDate, finalised, architectId, contractorId, customerId);
+                row.get("project_number"), row.get("project_name"), row.get("building_type"),
+                row.get("project_address"), row.get("erf_number"), totalFee, paidToDate,
+                row.get("deadline_date"), row.get("completion_date"),
+                Boolean.TRUE.equals(row.get("finalised")) ? 1 : 0,
+                row.get("architect_id"), row.get("contractor_id"), row.get("customer_id"));
     }
-}
\ No newline at end of file
+}
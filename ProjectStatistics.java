@@ -0,0 +1,234 @@
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ProjectStatistics class keeps the dashboard counters for the PoisePMS system in memory: the
+ * number of projects, open (not finalised) projects, overdue projects and the total outstanding fees.
+ *
+ * <p>The counters are seeded by one aggregate scan of the Projects table at start-up. After that they are
+ * kept up to date by every project change published through {@link DataChanges}: the old row's share of
+ * each counter is taken away and the new row's share is added, so the dashboard answers instantly
+ * without touching the database.</p>
+ *
+ * <p>Some drift is possible, for example when a project becomes overdue simply because a day has passed,
+ * or when rows are changed outside this application. A periodic reconciliation scan (every 10 minutes
+ * by default, set with {@code poise.stats.reconcileMinutes}) recomputes the counters and records how far
+ * they had drifted. Changes published while the scan runs are applied again on top of its result, so
+ * they are neither lost nor counted as drift.</p>
+ */
+public class ProjectStatistics implements DataChangeListener {
+
+    private static final String SEED_QUERY =
+            "SELECT COUNT(*) AS total_projects, "
+            + "COALESCE(SUM(finalised = 0), 0) AS open_projects, "
+            + "COALESCE(SUM(deadline_date < CURDATE() AND completion_date IS NULL), 0) AS overdue_projects, "
+            + "COALESCE(SUM(total_fee_gbp - paid_to_date_gbp), 0) AS outstanding_fees "
+            + "FROM Projects WHERE deleted_at IS NULL";
+
+    private static final ProjectStatistics INSTANCE = new ProjectStatistics();
+
+    private long totalProjects;
+    private long openProjects;
+    private long overdueProjects;
+    private BigDecimal outstandingFees = BigDecimal.ZERO;
+    private boolean seeded;
+    private long lastReconciledMillis;
+    private long lastDriftProjects;
+    private BigDecimal lastDriftFees = BigDecimal.ZERO;
+
+    /**
+     * The before and after rows of each change published while a reconciliation scan is running, or null
+     * when none is. The scan reads the table as it was when it started, so these are applied again on top
+     * of its result.
+     */
+    private List<Map<String, Object>> changesDuringScan;
+
+    /** Lets only one reconciliation scan run at a time. */
+    private final Object reconcileLock = new Object();
+
+    private ScheduledExecutorService reconciler;
+
+    /**
+     * Returns the shared statistics service.
+     *
+     * @return The statistics service.
+     */
+    public static ProjectStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Seeds the counters, starts listening for project changes and schedules reconciliation.
+     * Calling this more than once has no further effect.
+     */
+    public synchronized void start() {
+        if (reconciler != null) {
+            return;
+        }
+        DataChanges.register(this);
+        try {
+            reconcile();
+        } catch (SQLException e) {
+            System.out.println("Dashboard statistics could not be loaded: " + e.getMessage());
+        }
+
+        long minutes = Long.getLong("poise.stats.reconcileMinutes", 10L);
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (SQLException e) {
+                // keep the current counters and try again next time
+            }
+        }, minutes, minutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Recomputes every counter with one scan of the Projects table, recording the drift from the
+     * incrementally maintained values.
+     *
+     * @throws SQLException If a database access error occurs.
+     */
+    public void reconcile() throws SQLException {
+        synchronized (reconcileLock) {
+            List<Map<String, Object>> changes = new ArrayList<>();
+            synchronized (this) {
+                changesDuringScan = changes;
+            }
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(SEED_QUERY)) {
+                rs.next();
+                synchronized (this) {
+                    long total = totalProjects;
+                    long open = openProjects;
+                    long overdue = overdueProjects;
+                    BigDecimal outstanding = outstandingFees;
+                    totalProjects = rs.getLong("total_projects");
+                    openProjects = rs.getLong("open_projects");
+                    overdueProjects = rs.getLong("overdue_projects");
+                    outstandingFees = rs.getBigDecimal("outstanding_fees");
+                    // the scan may have missed changes made while it ran, which the old counters already include
+                    for (int i = 0; i < changes.size(); i += 2) {
+                        apply(changes.get(i), -1);
+                        apply(changes.get(i + 1), 1);
+                    }
+                    if (seeded) {
+                        lastDriftProjects = Math.abs(total - totalProjects) + Math.abs(open - openProjects)
+                                + Math.abs(overdue - overdueProjects);
+                        lastDriftFees = outstanding.subtract(outstandingFees).abs();
+                    }
+                    seeded = true;
+                    lastReconciledMillis = System.currentTimeMillis();
+                }
+            } finally {
+                synchronized (this) {
+                    changesDuringScan = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the counters for a changed project row.
+     */
+    @Override
+    public void onChange(Connection conn, String table, int key, Map<String, Object> before, Map<String, Object> after) {
+        if (!DataChanges.PROJECTS.equals(table)) {
+            return;
+        }
+        synchronized (this) {
+            if (changesDuringScan != null) {
+                changesDuringScan.add(before);
+                changesDuringScan.add(after);
+            }
+            if (!seeded) {
+                return; // the reconciliation in progress, or the next one, will include this change
+            }
+            apply(before, -1);
+            apply(after, 1);
+        }
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) one project row's share of each counter.
+     *
+     * @param row  The project row, or null for none.
+     * @param sign 1 to add the row, -1 to remove it.
+     */
+    private void apply(Map<String, Object> row, int sign) {
+        if (row == null) {
+            return;
+        }
+        totalProjects += sign;
+        if (!Boolean.TRUE.equals(row.get("finalised"))) {
+            openProjects += sign;
+        }
+        Date deadline = (Date) row.get("deadline_date");
+        if (deadline != null && row.get("completion_date") == null && deadline.toLocalDate().isBefore(LocalDate.now())) {
+            overdueProjects += sign;
+        }
+        BigDecimal fee = row.get("total_fee_gbp") == null ? BigDecimal.ZERO : (BigDecimal) row.get("total_fee_gbp");
+        BigDecimal paid = row.get("paid_to_date_gbp") == null ? BigDecimal.ZERO : (BigDecimal) row.get("paid_to_date_gbp");
+        BigDecimal outstanding = fee.subtract(paid);
+        outstandingFees = sign > 0 ? outstandingFees.add(outstanding) : outstandingFees.subtract(outstanding);
+    }
+
+    /**
+     * Returns a snapshot of the current counters.
+     *
+     * @return The counters keyed by name.
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total_projects", totalProjects);
+        stats.put("open_projects", openProjects);
+        stats.put("overdue_projects", overdueProjects);
+        stats.put("outstanding_fees", outstandingFees);
+        stats.put("seeded", seeded);
+        stats.put("last_reconciled", lastReconciledMillis == 0 ? null : new Timestamp(lastReconciledMillis));
+        stats.put("last_drift_projects", lastDriftProjects);
+        stats.put("last_drift_fees", lastDriftFees);
+        return stats;
+    }
+
+    /**
+     * Displays the dashboard counters.
+     */
+    public void displayDashboard() {
+        Map<String, Object> stats = snapshot();
+        if (!Boolean.TRUE.equals(stats.get("seeded"))) {
+            try {
+                reconcile();
+                stats = snapshot();
+            } catch (SQLException e) {
+                System.out.println("Dashboard statistics are not available: " + e.getMessage());
+                System.out.println();
+                return;
+            }
+        }
+        System.out.println("Dashboard:");
+        System.out.printf("Total projects: %d | Open projects: %d | Overdue projects: %d | Outstanding fees: %.2f%n",
+                stats.get("total_projects"), stats.get("open_projects"), stats.get("overdue_projects"),
+                stats.get("outstanding_fees"));
+        System.out.println("Last reconciled: " + stats.get("last_reconciled"));
+        System.out.println();
+    }
+}
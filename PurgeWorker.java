@@ -0,0 +1,211 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PurgeWorker class removes the projects, architects, contractors and customers that have been marked
+ * as deleted ({@code deleted_at}) from the database, in the background.
+ *
+ * <p>Deleting from the menus or the API only sets {@code deleted_at}, a single row update, and every read
+ * ignores marked rows. This worker then removes them every 30 seconds ({@code poise.purge.intervalSeconds})
+ * in small batches ({@code poise.purge.batchSize}, default 100) of one short {@code DELETE} each, oldest
+ * first using the {@code deleted_at} indexes. Rows are left for a minute
+ * ({@code poise.purge.graceMinutes}) so that read replicas in other processes see the mark before the row
+ * disappears.</p>
+ *
+ * <p>Purging only happens in quiet periods: before each batch the worker checks that no other connection
+ * from this application's pool is in use and that the database is running no more than
+ * {@code poise.purge.maxRunningThreads} (default 2) statements, and otherwise waits for the next run.
+ * Projects are purged before people, and a person is only purged once no project, live, marked or
+ * archived ({@code projects_archive}), refers to them.</p>
+ *
+ * <p>{@link #metrics()} reports the rows purged, the purge rate of the last run, and the lag: how many
+ * marked rows are waiting and how long the oldest has waited.</p>
+ */
+public class PurgeWorker {
+
+    /** Each table with its primary key, in the order they are purged. */
+    private static final String[][] TABLES = {
+            {"Projects", "project_number"}, {"Architect", "id"}, {"Contractor", "id"}, {"Customer", "id"}
+    };
+
+    private static final PurgeWorker INSTANCE = new PurgeWorker();
+
+    private final int batchSize = Integer.getInteger("poise.purge.batchSize", 100);
+    private final long graceMillis = TimeUnit.MINUTES.toMillis(Long.getLong("poise.purge.graceMinutes", 1L));
+    private final int maxRunningThreads = Integer.getInteger("poise.purge.maxRunningThreads", 2);
+
+    private ScheduledExecutorService scheduler;
+    private final Map<String, Long> purged = new LinkedHashMap<>();
+    private long busySkips;
+    private long lastRunRows;
+    private long lastRunMillis;
+    private double lastRowsPerSecond;
+    private long pending;
+    private long oldestPendingSeconds;
+
+    /**
+     * Returns the shared purge worker.
+     *
+     * @return The purge worker.
+     */
+    public static PurgeWorker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts purging on a schedule. Calling this more than once has no further effect.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        long seconds = Long.getLong("poise.purge.intervalSeconds", 30L);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "purge-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                run(true);
+            } catch (SQLException e) {
+                // leave the rows marked and try again next time
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Purges marked rows in batches until none are left or, when waiting for quiet periods, the database
+     * becomes busy, then records the lag.
+     *
+     * @param onlyWhenQuiet Whether to stop as soon as the application or database is busy.
+     * @return The number of rows purged.
+     * @throws SQLException If a database access error occurs.
+     */
+    public long run(boolean onlyWhenQuiet) throws SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Timestamp cutoff = new Timestamp(System.currentTimeMillis() - graceMillis);
+            tables:
+            for (String[] table : TABLES) {
+                int deleted;
+                do {
+                    if (onlyWhenQuiet && !isQuiet(conn)) {
+                        synchronized (this) {
+                            busySkips++;
+                        }
+                        break tables;
+                    }
+                    deleted = purgeBatch(conn, table[0], table[1], cutoff);
+                    rows += deleted;
+                    synchronized (this) {
+                        purged.merge(table[0], (long) deleted, Long::sum);
+                    }
+                } while (deleted == batchSize);
+            }
+            recordLag(conn);
+        }
+        long nanos = System.nanoTime() - start;
+        synchronized (this) {
+            lastRunRows = rows;
+            lastRunMillis = nanos / 1_000_000;
+            lastRowsPerSecond = rows == 0 ? 0 : rows / (nanos / 1e9);
+        }
+        return rows;
+    }
+
+    /**
+     * Removes one batch of marked rows from a table. A person is skipped while any project, including a
+     * marked one that has not been purged yet or an archived one, still refers to them.
+     */
+    private int purgeBatch(Connection conn, String table, String primaryKey, Timestamp cutoff) throws SQLException {
+        String condition = "deleted_at < ?";
+        if (!"Projects".equals(table)) {
+            String person = table.toLowerCase() + "_id = " + table + "." + primaryKey;
+            condition += " AND NOT EXISTS (SELECT 1 FROM Projects p WHERE p." + person + ")"
+                    + " AND NOT EXISTS (SELECT 1 FROM " + ProjectArchiver.ARCHIVE_TABLE + " a WHERE a." + person + ")";
+        }
+        String sql = DatabaseConnection.getStorage().deleteOldest(table, primaryKey, condition, "deleted_at");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, cutoff);
+            pstmt.setInt(2, batchSize);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Checks that no other pooled connection is in use and that the database is not busy with other statements.
+     */
+    private boolean isQuiet(Connection conn) throws SQLException {
+        ConnectionPool pool = DatabaseConnection.getPool();
+        if (pool.getActiveCount() > 1 || pool.getWaitingCount() > 0) { // 1 is this worker's own connection
+            return false;
+        }
+        return DatabaseConnection.getStorage().getRunningStatements(conn) <= maxRunningThreads;
+    }
+
+    /**
+     * Counts the rows still waiting to be purged and the age of the oldest.
+     */
+    private void recordLag(Connection conn) throws SQLException {
+        long count = 0;
+        Timestamp oldest = null;
+        for (String[] table : TABLES) {
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*), MIN(deleted_at) FROM " + table[0]
+                         + " WHERE deleted_at IS NOT NULL")) {
+                rs.next();
+                count += rs.getLong(1);
+                Timestamp min = rs.getTimestamp(2);
+                if (min != null && (oldest == null || min.before(oldest))) {
+                    oldest = min;
+                }
+            }
+        }
+        synchronized (this) {
+            pending = count;
+            oldestPendingSeconds = oldest == null ? 0 : (System.currentTimeMillis() - oldest.getTime()) / 1000;
+        }
+    }
+
+    /**
+     * Returns the rows purged per table, the last run's rows, duration and rate, the number of runs cut
+     * short because the database was busy, and the rows still waiting with the age of the oldest.
+     *
+     * @return The purge metrics.
+     */
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("purged", new LinkedHashMap<>(purged));
+        metrics.put("lastRunRows", lastRunRows);
+        metrics.put("lastRunMillis", lastRunMillis);
+        metrics.put("lastRowsPerSecond", Math.round(lastRowsPerSecond));
+        metrics.put("busySkips", busySkips);
+        metrics.put("pending", pending);
+        metrics.put("oldestPendingSeconds", oldestPendingSeconds);
+        return metrics;
+    }
+
+    /**
+     * Purges every marked row once, without waiting for a quiet period.
+     *
+     * @param args Not used.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void main(String[] args) throws SQLException {
+        long rows = getInstance().run(false);
+        Map<String, Object> metrics = getInstance().metrics();
+        System.out.printf("Purged %d rows in %s ms; %s rows still marked as deleted.%n", rows,
+                metrics.get("lastRunMillis"), metrics.get("pending"));
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RequestScheduler class decides when concurrent requests are allowed to run against the database.
+ *
+ * <p>Operations are split into two classes: cheap point lookups (such as finding one project by number,
+ * or any single-row write) and expensive scans (such as listing every project or customer). Each class has
+ * its own concurrency limit and its own bounded wait queue, so a burst of heavy listings can never take
+ * every connection away from quick lookups. A request that finds its queue full, or that waits longer than
+ * the allowed time, is rejected straight away with an {@link OverloadedException} instead of piling up.</p>
+ *
+ * <p>Queue depth, wait times and rejection counts for each class are available from {@link #metrics()}.</p>
+ */
+public class RequestScheduler {
+
+    /**
+     * The cost classes that requests are sorted into.
+     */
+    public enum Cost {
+        /** Point lookups and single-row writes. */
+        CHEAP,
+        /** Full-table listings and unindexed searches. */
+        EXPENSIVE
+    }
+
+    private final Lane cheap;
+    private final Lane expensive;
+    private final long maxWaitMillis;
+
+    /**
+     * Creates a scheduler with the given limits.
+     *
+     * @param cheapLimit     The number of cheap requests that may run at once.
+     * @param cheapQueue     The number of cheap requests that may wait for a slot.
+     * @param expensiveLimit The number of expensive requests that may run at once.
+     * @param expensiveQueue The number of expensive requests that may wait for a slot.
+     * @param maxWaitMillis  The longest a request waits for a slot before it is rejected.
+     */
+    public RequestScheduler(int cheapLimit, int cheapQueue, int expensiveLimit, int expensiveQueue, long maxWaitMillis) {
+        this.cheap = new Lane(cheapLimit, cheapQueue);
+        this.expensive = new Lane(expensiveLimit, expensiveQueue);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Creates a scheduler using the {@code poise.scheduler.*} system properties, with defaults that
+     * keep expensive scans to a small share of the connection pool.
+     *
+     * @return The configured scheduler.
+     */
+    public static RequestScheduler fromSystemProperties() {
+        int poolSize = DatabaseConnection.getPool().getMaxSize();
+        int expensiveLimit = Integer.getInteger("poise.scheduler.expensiveLimit", Math.max(1, poolSize / 4));
+        int cheapLimit = Integer.getInteger("poise.scheduler.cheapLimit", Math.max(1, poolSize - expensiveLimit));
+        return new RequestScheduler(
+                cheapLimit,
+                Integer.getInteger("poise.scheduler.cheapQueue", 1000),
+                expensiveLimit,
+                Integer.getInteger("poise.scheduler.expensiveQueue", 50),
+                Long.getLong("poise.scheduler.maxWaitMs", 5000L));
+    }
+
+    /**
+     * Runs a task once a slot for its cost class is free.
+     *
+     * @param cost The cost class of the task.
+     * @param task The task to run.
+     * @param <T>  The type of result the task returns.
+     * @return The task's result.
+     * @throws OverloadedException If the queue is full or no slot becomes free in time.
+     * @throws Exception           Any exception thrown by the task itself.
+     */
+    public <T> T run(Cost cost, Callable<T> task) throws Exception {
+        Lane lane = lane(cost);
+        lane.acquire(cost, maxWaitMillis);
+        try {
+            return task.call();
+        } finally {
+            lane.permits.release();
+        }
+    }
+
+    /**
+     * Returns the current metrics for both cost classes.
+     *
+     * @return A map of metric values keyed by cost class and metric name.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cheap", cheap.metrics());
+        metrics.put("expensive", expensive.metrics());
+        return metrics;
+    }
+
+    private Lane lane(Cost cost) {
+        return cost == Cost.CHEAP ? cheap : expensive;
+    }
+
+    /**
+     * The concurrency limit, queue and counters for one cost class.
+     */
+    private static final class Lane {
+        final int limit;
+        final int maxQueue;
+        final Semaphore permits;
+        final AtomicInteger queued = new AtomicInteger();
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejectedQueueFull = new LongAdder();
+        final LongAdder rejectedTimeout = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Lane(int limit, int maxQueue) {
+            this.limit = limit;
+            this.maxQueue = maxQueue;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        void acquire(Cost cost, long maxWaitMillis) throws OverloadedException, InterruptedException {
+            if (permits.tryAcquire()) {
+                admitted.increment(); // a free slot, so no waiting is recorded
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueue) {
+                queued.decrementAndGet();
+                rejectedQueueFull.increment();
+                throw new OverloadedException(cost, "Too many " + cost.name().toLowerCase()
+                        + " requests are waiting. Please retry shortly.");
+            }
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                queued.decrementAndGet();
+            }
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (!acquired) {
+                rejectedTimeout.increment();
+                throw new OverloadedException(cost, "Timed out waiting to run a " + cost.name().toLowerCase()
+                        + " request. Please retry shortly.");
+            }
+            admitted.increment();
+        }
+
+        Map<String, Object> metrics() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            long admittedCount = admitted.sum();
+            m.put("limit", limit);
+            m.put("running", limit - permits.availablePermits());
+            m.put("queueDepth", queued.get());
+            m.put("queueCapacity", maxQueue);
+            m.put("admitted", admittedCount);
+            m.put("rejectedQueueFull", rejectedQueueFull.sum());
+            m.put("rejectedTimeout", rejectedTimeout.sum());
+            long waitedCount = admittedCount + rejectedTimeout.sum();
+            m.put("averageWaitMs", waitedCount == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / waitedCount);
+            m.put("maxWaitMs", maxWaitNanos.get() / 1e6);
+            return m;
+        }
+    }
+
+    /**
+     * Thrown when a request is shed because its cost class is overloaded.
+     */
+    public static class OverloadedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final Cost cost;
+
+        /**
+         * Creates an exception for a rejected request.
+         *
+         * @param cost    The cost class that was overloaded.
+         * @param message A description suitable for returning to the client.
+         */
+        public OverloadedException(Cost cost, String message) {
+            super(message);
+            this.cost = cost;
+        }
+
+        /**
+         * Returns the cost class that was overloaded.
+         *
+         * @return The cost class.
+         */
+        public Cost getCost() {
+            return cost;
+        }
+    }
+}
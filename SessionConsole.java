@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The SessionConsole class lets several menu sessions run in one process, each with its own output.
+ *
+ * <p>The menu classes print with {@code System.out}. Once {@link #install()} has been called,
+ * {@code System.out} sends each thread's output to the stream that thread was bound to with
+ * {@link #bind(OutputStream)}, falling back to the real console for threads that are not bound.</p>
+ */
+public final class SessionConsole {
+
+    /** The console output stream that was in place before routing was installed. */
+    private static final PrintStream ORIGINAL = System.out;
+
+    /** The output stream for the session running on the current thread, if any. */
+    private static final ThreadLocal<OutputStream> CURRENT = new ThreadLocal<>();
+
+    private SessionConsole() {
+        // utility class, not to be instantiated
+    }
+
+    /**
+     * Replaces {@code System.out} with a stream that routes output by thread. Calling this more than
+     * once has no further effect.
+     */
+    public static synchronized void install() {
+        if (System.out == ORIGINAL) {
+            System.setOut(new PrintStream(new RoutingOutputStream(), true, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Sends everything the current thread prints to {@code System.out} to the given stream.
+     *
+     * @param out The session's output stream.
+     */
+    public static void bind(OutputStream out) {
+        CURRENT.set(out);
+    }
+
+    /**
+     * Stops routing the current thread's output to a session.
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Writes to the current thread's session stream, or to the original console if there is none.
+     */
+    private static final class RoutingOutputStream extends OutputStream {
+
+        private OutputStream target() {
+            OutputStream out = CURRENT.get();
+            return out != null ? out : ORIGINAL;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The StorageBackend interface describes the database PoisePMS keeps its data in. Every class still talks
+ * JDBC through {@link DatabaseConnection}; the backend supplies the connection details, prepares the
+ * database before first use and covers the few statements that differ between engines.
+ *
+ * <p>The backend is chosen at startup with the {@code poise.storage} system property:</p>
+ *
+ * <ul>
+ *     <li>{@code mysql} (the default): {@link MySqlStorage}, a MySQL server set up with {@code poisePMS.sql};</li>
+ *     <li>{@code embedded}: {@link EmbeddedStorage}, an H2 database running inside the application and
+ *     kept in a local file, so no server is needed.</li>
+ * </ul>
+ */
+public interface StorageBackend {
+
+    /**
+     * Returns the name used to select this backend with {@code poise.storage}.
+     *
+     * @return The backend name.
+     */
+    String getName();
+
+    /**
+     * Returns the JDBC URL used when {@code poise.db.url} is not set.
+     *
+     * @return The default JDBC URL.
+     */
+    String getDefaultUrl();
+
+    /**
+     * Returns the username used when {@code poise.db.user} is not set.
+     *
+     * @return The default username.
+     */
+    String getDefaultUser();
+
+    /**
+     * Returns the password used when {@code poise.db.password} is not set.
+     *
+     * @return The default password.
+     */
+    String getDefaultPassword();
+
+    /**
+     * Prepares the database before the first connection is handed out, for example by creating the tables.
+     *
+     * @param conn A connection to the database.
+     * @throws SQLException If the database cannot be prepared.
+     */
+    void initialise(Connection conn) throws SQLException;
+
+    /**
+     * Returns the number of statements the database server is running for all of its clients, which the
+     * {@link PurgeWorker} uses to stay out of the way of other work.
+     *
+     * @param conn A connection to the database.
+     * @return The number of running statements, including the one asking.
+     * @throws SQLException If a database access error occurs.
+     */
+    long getRunningStatements(Connection conn) throws SQLException;
+
+    /**
+     * Returns a {@code DELETE} that removes at most {@code ?} rows of a table, oldest first.
+     *
+     * @param table       The table to delete from.
+     * @param primaryKey  The table's primary key column.
+     * @param condition   The rows that may be deleted, which may refer to the table by name.
+     * @param orderColumn The column that orders rows from oldest to newest.
+     * @return The statement, with the condition's parameters followed by one for the row limit.
+     */
+    String deleteOldest(String table, String primaryKey, String condition, String orderColumn);
+
+    /**
+     * Returns the fetch size that makes the driver stream a large result instead of reading it all into
+     * memory before the first row is returned.
+     *
+     * @return The value to pass to {@link java.sql.Statement#setFetchSize(int)}.
+     */
+    int getStreamingFetchSize();
+
+    /**
+     * Returns an SQL expression giving the year and month of a date as text, e.g. {@code 2024-07}.
+     *
+     * @param date An SQL expression for a date.
+     * @return The expression for its month.
+     */
+    String monthOf(String date);
+
+    /**
+     * Tells whether {@link DatabaseBackup} can back up and restore this database. It relies on MySQL
+     * statements for its consistent snapshot and fast restore.
+     *
+     * @return True if {@code DatabaseBackup} works with this backend.
+     */
+    boolean supportsBackup();
+
+    /**
+     * Chooses the backend named by the {@code poise.storage} system property.
+     *
+     * @return The configured backend.
+     * @throws IllegalArgumentException If the property names an unknown backend.
+     */
+    static StorageBackend fromSystemProperties() {
+        String name = System.getProperty("poise.storage", "mysql");
+        switch (name.toLowerCase()) {
+            case "mysql":
+                return new MySqlStorage();
+            case "embedded":
+                return new EmbeddedStorage();
+            default:
+                throw new IllegalArgumentException("Unknown poise.storage " + name + "; use mysql or embedded");
+        }
+    }
+}
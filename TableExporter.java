@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The TableExporter class writes the Projects, Architect, Contractor and Customer tables to files for the
+ * BI team's nightly extracts.
+ *
+ * <p>Run with {@code java TableExporter [--format csv|jsonl] [--gzip] [--dir exports]}. Each table is
+ * exported on its own thread and its own connection, streamed from MySQL one row at a time with a
+ * forward-only cursor, so memory use stays flat however large the tables are. Rows are encoded straight
+ * into a large direct buffer which is written through a {@link FileChannel} (through GZIP with
+ * {@code --gzip}). Each file is written under a temporary name and renamed when complete, so a reader never
+ * sees half an export. The rows, MB and rate for each table are printed at the end.</p>
+ */
+public class TableExporter {
+
+    /** The tables exported, by their names in the database. */
+    static final String[] TABLES = {"Projects", ProjectArchiver.ARCHIVE_TABLE, "Architect", "Contractor", "Customer"};
+
+    /** The size of each table's output buffer. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final boolean jsonLines;
+    private final boolean gzip;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param directory The directory to write the files to; created if it does not exist.
+     * @param jsonLines true to write JSON lines (one object per row), false to write CSV with a header row.
+     * @param gzip      true to compress the files with GZIP.
+     */
+    public TableExporter(Path directory, boolean jsonLines, boolean gzip) {
+        this.directory = directory;
+        this.jsonLines = jsonLines;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Runs the export.
+     *
+     * @param args Optionally {@code --format csv|jsonl}, {@code --gzip} and {@code --dir path}.
+     * @throws Exception If any table cannot be exported.
+     */
+    public static void main(String[] args) throws Exception {
+        String format = "csv";
+        boolean gzip = false;
+        Path directory = Paths.get("exports");
+        for (int i = 0; i < args.length; i++) {
+            if ("--format".equals(args[i]) && i + 1 < args.length) {
+                format = args[++i];
+            } else if ("--gzip".equals(args[i])) {
+                gzip = true;
+            } else if ("--dir".equals(args[i]) && i + 1 < args.length) {
+                directory = Paths.get(args[++i]);
+            } else {
+                System.out.println("Usage: java TableExporter [--format csv|jsonl] [--gzip] [--dir path]");
+                return;
+            }
+        }
+        if (!format.equals("csv") && !format.equals("jsonl")) {
+            System.out.println("Unknown format: " + format + " (use csv or jsonl)");
+            return;
+        }
+
+        List<Result> results = new TableExporter(directory, format.equals("jsonl"), gzip).exportAll();
+        long rows = 0;
+        long bytes = 0;
+        long slowestNanos = 0;
+        for (Result result : results) {
+            System.out.println(result);
+            rows += result.rows;
+            bytes += result.bytes;
+            slowestNanos = Math.max(slowestNanos, result.nanos);
+        }
+        System.out.println(new Result("Total", null, rows, bytes, slowestNanos));
+    }
+
+    /**
+     * The outcome of exporting one table.
+     */
+    public static final class Result {
+        final String table;
+        final Path file;
+        final long rows;
+        final long bytes;
+        final long nanos;
+
+        Result(String table, Path file, long rows, long bytes, long nanos) {
+            this.table = table;
+            this.file = file;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            double megabytes = bytes / (1024.0 * 1024.0);
+            return String.format("%-10s %,12d rows %,10.1f MB in %,8.2f s  (%,.0f rows/s, %,.1f MB/s)%s",
+                    table, rows, megabytes, seconds, rows / seconds, megabytes / seconds,
+                    file == null ? "" : "  -> " + file);
+        }
+    }
+
+    /**
+     * Exports all four tables in parallel.
+     *
+     * @return The result for each table, in the order of {@link #TABLES}.
+     * @throws IOException           If a file cannot be written.
+     * @throws SQLException          If a database access error occurs.
+     * @throws InterruptedException  If interrupted while waiting for the exports.
+     */
+    public List<Result> exportAll() throws IOException, SQLException, InterruptedException {
+        Files.createDirectories(directory);
+        List<Future<Result>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String table : TABLES) {
+                futures.add(executor.submit(() -> export(table)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    futures.forEach(other -> other.cancel(true));
+                    if (e.getCause() instanceof SQLException) {
+                        throw (SQLException) e.getCause();
+                    }
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Exports one table on its own connection.
+     *
+     * @param table The table name.
+     * @return The result of the export.
+     * @throws IOException  If the file cannot be written.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Result export(String table) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Path file = directory.resolve(table + (jsonLines ? ".jsonl" : ".csv") + (gzip ? ".gz" : ""));
+        Path partial = directory.resolve(file.getFileName() + ".partial");
+        long rows = 0;
+        long bytes;
+
+        boolean complete = false;
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement statement = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            statement.setFetchSize(DatabaseConnection.getStorage().getStreamingFetchSize());
+            GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) : null;
+            RowWriter writer = new RowWriter(gzip ? Channels.newChannel(gzipStream) : channel);
+
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM " + table)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                String[] columns = new String[meta.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = meta.getColumnLabel(i + 1);
+                }
+                StringBuilder line = new StringBuilder(256);
+                if (!jsonLines) {
+                    for (int i = 0; i < columns.length; i++) {
+                        appendCsv(line, i == 0 ? null : ",", columns[i]);
+                    }
+                    writer.write(line.append('\n'));
+                }
+                Map<String, Object> row = new LinkedHashMap<>();
+                while (rs.next()) {
+                    line.setLength(0);
+                    if (jsonLines) {
+                        for (int i = 0; i < columns.length; i++) {
+                            row.put(columns[i], rs.getObject(i + 1));
+                        }
+                        Json.write(line, row);
+                    } else {
+                        for (int i = 0; i < columns.length; i++) {
+                            appendCsv(line, i == 0 ? null : ",", rs.getObject(i + 1));
+                        }
+                    }
+                    writer.write(line.append('\n'));
+                    rows++;
+                }
+            }
+            writer.flush();
+            bytes = writer.bytesWritten;
+            if (gzipStream != null) {
+                // writes the GZIP trailer; closing the stream would also close the channel before it is forced
+                gzipStream.finish();
+                gzipStream.flush();
+            }
+            channel.force(true);
+            if (gzipStream != null) {
+                gzipStream.close(); // frees the compressor; the channel is already forced
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(partial);
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Result(table, file, rows, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Appends a CSV field, quoting it if it contains a comma, quote or line break. Nulls are written as
+     * empty fields.
+     */
+    static void appendCsv(StringBuilder line, String separator, Object value) {
+        if (separator != null) {
+            line.append(separator);
+        }
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Encodes text as UTF-8 directly into a direct buffer and writes the buffer to a channel whenever it
+     * fills, so no intermediate byte arrays are created per row.
+     */
+    private static final class RowWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        long bytesWritten;
+
+        RowWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    return;
+                } else {
+                    result.throwException();
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            bytesWritten += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
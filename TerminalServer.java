@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The TerminalServer class hosts the PoisePMS menus for many users from a single process.
+ *
+ * <p>Staff connect with any plain line-based terminal client (for example {@code telnet host 7070} or
+ * {@code nc host 7070}) and get the same menus as when running {@link Main} locally. Every connection
+ * has its own session: its own input, its own output and its own position in the menus. All sessions
+ * share the one JVM and the shared connection pool in {@link DatabaseConnection}, so nobody pays for
+ * JVM start-up or a fresh database connection when they log on.</p>
+ *
+ * <p>All socket I/O is done by one thread using a non-blocking NIO {@link Selector}. Each session's menu
+ * code runs on its own virtual thread, reading lines that the selector thread has received and writing
+ * output that the selector thread sends back when the socket is ready.</p>
+ *
+ * <p>Run with {@code java TerminalServer [port]}; the port defaults to 7070.</p>
+ */
+public class TerminalServer {
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    /** Sessions whose output is waiting for the selector thread to register write interest. */
+    private final Queue<Session> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Opens the server socket.
+     *
+     * @param port The port to listen on.
+     * @throws IOException If the socket cannot be opened.
+     */
+    public TerminalServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Starts the terminal server from the command line.
+     *
+     * @param args Optional port number as the first argument.
+     * @throws IOException If the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("poise.terminal.port", 7070);
+        ProjectStatistics.getInstance().start();
+        ProjectReplica.getInstance().startIfEnabled();
+        AuditJournal.getInstance().start();
+        ProjectHistory.getInstance().start();
+        DeadlineAlerts.getInstance().startIfEnabled();
+        PurgeWorker.getInstance().start();
+        TerminalServer server = new TerminalServer(port);
+        System.out.println("PoisePMS terminal server listening on port " + port + ".");
+        server.serve();
+    }
+
+    /**
+     * Runs the selector loop until the server socket is closed.
+     *
+     * @throws IOException If the selector fails.
+     */
+    public void serve() throws IOException {
+        SessionConsole.install(); // route each session's System.out to its own socket
+
+        while (serverChannel.isOpen()) {
+            selector.select();
+
+            Session session;
+            while ((session = pendingWrites.poll()) != null) {
+                SelectionKey key = session.channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        ((Session) key.attachment()).readFromSocket(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        ((Session) key.attachment()).writeToSocket(key);
+                    }
+                } catch (IOException e) {
+                    if (key.attachment() instanceof Session) {
+                        ((Session) key.attachment()).close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and ends the selector loop.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    public void stop() throws IOException {
+        serverChannel.close();
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts a new connection and starts a menu session for it.
+     *
+     * @throws IOException If the connection cannot be set up.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Session session = new Session(channel);
+        channel.register(selector, SelectionKey.OP_READ, session);
+        Thread.ofVirtual().name("terminal-" + channel.getRemoteAddress()).start(session::runMenus);
+    }
+
+    /**
+     * The state of one connected terminal: the bytes it has sent that the menus have not read yet,
+     * and the output the menus have produced that has not been sent yet.
+     */
+    private final class Session {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+        /** Input received from the socket, waiting to be read by the menu thread. */
+        final Queue<byte[]> inbound = new ArrayDeque<>();
+        boolean inputClosed;
+
+        /** Output produced by the menu thread, waiting to be written to the socket. */
+        final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Runs the main menu for this session on the current (virtual) thread.
+         */
+        void runMenus() {
+            SessionConsole.bind(new SessionOutput());
+            try {
+                AuditJournal.setActor("terminal:" + channel.getRemoteAddress());
+                System.out.println("Welcome to PoisePMS.");
+                Main.run(new Scanner(new SessionInput()));
+            } catch (NoSuchElementException | IllegalStateException | IOException e) {
+                // the terminal disconnected part way through a menu
+            } finally {
+                AuditJournal.setActor(null);
+                SessionConsole.unbind();
+                outbound.add(ByteBuffer.allocate(0)); // an empty buffer marks the end of the session
+                requestWrite();
+            }
+        }
+
+        /**
+         * Called by the selector thread when the socket has data to read.
+         */
+        void readFromSocket(SelectionKey key) throws IOException {
+            readBuffer.clear();
+            int n = channel.read(readBuffer);
+            synchronized (inbound) {
+                if (n < 0) {
+                    inputClosed = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                } else if (n > 0) {
+                    byte[] bytes = new byte[n];
+                    readBuffer.flip();
+                    readBuffer.get(bytes);
+                    inbound.add(bytes);
+                }
+                inbound.notifyAll();
+            }
+        }
+
+        /**
+         * Called by the selector thread when the socket can accept more output.
+         */
+        void writeToSocket(SelectionKey key) throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = outbound.peek()) != null) {
+                if (!buffer.hasRemaining() && buffer.capacity() == 0) {
+                    close(); // the menu session has ended and all its output has been sent
+                    return;
+                }
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return; // the socket is full, so wait for the next writable event
+                }
+                outbound.poll();
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (!outbound.isEmpty()) {
+                requestWrite(); // more output arrived while write interest was being cleared
+            }
+        }
+
+        void requestWrite() {
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+
+        void close() {
+            synchronized (inbound) {
+                inputClosed = true;
+                inbound.notifyAll();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the connection is being discarded anyway
+            }
+        }
+
+        /**
+         * The input stream the session's Scanner reads from; blocks the menu thread until the
+         * selector thread has received more data.
+         */
+        final class SessionInput extends InputStream {
+            private byte[] current;
+            private int pos;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (current == null || pos == current.length) {
+                    synchronized (inbound) {
+                        while (inbound.isEmpty() && !inputClosed) {
+                            try {
+                                inbound.wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new IOException("Interrupted while waiting for input.", e);
+                            }
+                        }
+                        current = inbound.poll();
+                        pos = 0;
+                    }
+                    if (current == null) {
+                        return -1;
+                    }
+                }
+                int n = Math.min(len, current.length - pos);
+                System.arraycopy(current, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+                // the menus close their Scanner when the user exits; the socket is closed once
+                // the remaining output has been sent
+                synchronized (inbound) {
+                    inputClosed = true;
+                }
+            }
+        }
+
+        /**
+         * The output stream the session's System.out is routed to; queues bytes for the selector thread.
+         */
+        final class SessionOutput extends OutputStream {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                if (len == 0 || !channel.isOpen()) {
+                    return;
+                }
+                ByteBuffer copy = ByteBuffer.allocate(len);
+                copy.put(b, off, len).flip();
+                outbound.add(copy);
+                requestWrite();
+            }
+        }
+    }
+}
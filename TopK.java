@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The TopK class keeps the K largest of a stream of values, using a min-heap of at most K entries so
+ * memory stays O(K) however many values are offered.
+ *
+ * @param <T> The type of value ranked.
+ */
+public class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * Creates an empty ranking.
+     *
+     * @param k     The number of values to keep.
+     * @param order Orders the values, with the largest (best ranked) last.
+     * @throws IllegalArgumentException If k is less than 1.
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        if (k < 1) {
+            throw new IllegalArgumentException("K must be at least 1");
+        }
+        this.k = k;
+        this.order = order;
+        // the smallest kept value is at the head; the heap grows with the values offered rather than being
+        // sized for k up front, as k may be far larger than the number of values
+        this.heap = new PriorityQueue<>(order);
+    }
+
+    /**
+     * Offers a value, keeping it only if it ranks among the K largest seen so far.
+     *
+     * @param value The value.
+     */
+    public void offer(T value) {
+        if (heap.size() < k) {
+            heap.add(value);
+        } else if (order.compare(value, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(value);
+        }
+    }
+
+    /**
+     * Returns the values kept, largest first.
+     *
+     * @return The top K values (fewer if fewer were offered).
+     */
+    public List<T> toList() {
+        List<T> values = new ArrayList<>(heap);
+        values.sort(order.reversed());
+        return values;
+    }
+}
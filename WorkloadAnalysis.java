@@ -0,0 +1,300 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The WorkloadAnalysis class shows how many open projects each architect and contractor has running at
+ * the same time, so that people are not overbooked.
+ *
+ * <p>Each open project is treated as an interval of days, from its start date to its completion date. A
+ * project that is not complete runs to its deadline, or to today if the deadline has passed, since overdue
+ * work still occupies its people. Projects with no start date are treated as starting today. For
+ * each person a sweep over the sorted interval start and end points gives their load on every day and
+ * their peak overlap, in O(n log n) time for n projects.</p>
+ *
+ * <p>The capacity threshold used when adding projects defaults to 5 concurrent projects and can be set
+ * with {@code poise.workload.capacity}.</p>
+ */
+public class WorkloadAnalysis {
+
+    /** The roles that workload is measured for, matching the person table and project column names. */
+    public static final String ARCHITECT = "architect";
+    public static final String CONTRACTOR = "contractor";
+
+    private static final String INTERVAL_COLUMNS =
+            "COALESCE(start_date, LEAST(CURDATE(), COALESCE(completion_date, deadline_date))) AS interval_start, "
+            + "COALESCE(completion_date, GREATEST(deadline_date, CURDATE())) AS interval_end";
+
+    private final int capacity = Integer.getInteger("poise.workload.capacity", 5);
+
+    /**
+     * The result of sweeping one person's intervals: the days on which their load changes, the load from
+     * each of those days onwards, and their peak.
+     */
+    public static final class Timeline {
+        private final long[] days;
+        private final int[] loads;
+        private final int peak;
+        private final long peakDay;
+        private final int projects;
+
+        Timeline(long[] days, int[] loads, int peak, long peakDay, int projects) {
+            this.days = days;
+            this.loads = loads;
+            this.peak = peak;
+            this.peakDay = peakDay;
+            this.projects = projects;
+        }
+
+        /**
+         * Returns the highest number of projects that overlap on any one day.
+         *
+         * @return The peak overlap.
+         */
+        public int getPeak() {
+            return peak;
+        }
+
+        /**
+         * Returns the first day on which the peak overlap is reached.
+         *
+         * @return The peak day, or null if there are no projects.
+         */
+        public LocalDate getPeakDate() {
+            return projects == 0 ? null : LocalDate.ofEpochDay(peakDay);
+        }
+
+        /**
+         * Returns the number of projects that are running on the given day.
+         *
+         * @param date The day to check.
+         * @return The load on that day.
+         */
+        public int loadOn(LocalDate date) {
+            int i = Arrays.binarySearch(days, date.toEpochDay());
+            if (i < 0) {
+                i = -i - 2; // the last change point before the date
+            }
+            return i < 0 ? 0 : loads[i];
+        }
+
+        /**
+         * Returns the number of projects the timeline was built from.
+         *
+         * @return The number of projects.
+         */
+        public int getProjects() {
+            return projects;
+        }
+
+        /**
+         * Converts the timeline to a list of change points, each with a {@code date} and the {@code load}
+         * from that date until the next change point.
+         *
+         * @return The change points.
+         */
+        public List<Map<String, Object>> changePoints() {
+            List<Map<String, Object>> points = new ArrayList<>();
+            for (int i = 0; i < days.length; i++) {
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("date", LocalDate.ofEpochDay(days[i]).toString());
+                point.put("load", loads[i]);
+                points.add(point);
+            }
+            return points;
+        }
+    }
+
+    /**
+     * Builds a load timeline from a set of inclusive day intervals with a sweep line.
+     *
+     * @param starts The first day of each interval, as epoch days.
+     * @param ends   The last day of each interval, as epoch days.
+     * @param count  The number of intervals to use from the arrays.
+     * @return The timeline.
+     */
+    public static Timeline sweep(long[] starts, long[] ends, int count) {
+        // Each event is encoded as (day * 2 + type) so one sort orders them by day, with ends (type 0,
+        // on the day after the interval's last day) before starts (type 1) on the same day.
+        long[] events = new long[count * 2];
+        for (int i = 0; i < count; i++) {
+            events[2 * i] = starts[i] * 2 + 1;
+            events[2 * i + 1] = (Math.max(starts[i], ends[i]) + 1) * 2;
+        }
+        Arrays.sort(events);
+
+        long[] days = new long[events.length];
+        int[] loads = new int[events.length];
+        int points = 0;
+        int load = 0;
+        int peak = 0;
+        long peakDay = 0;
+        for (int i = 0; i < events.length; i++) {
+            long day = Math.floorDiv(events[i], 2);
+            load += (events[i] & 1) == 1 ? 1 : -1;
+            if (i + 1 < events.length && Math.floorDiv(events[i + 1], 2) == day) {
+                continue; // apply every event on the same day before recording the load
+            }
+            days[points] = day;
+            loads[points] = load;
+            points++;
+            if (load > peak) {
+                peak = load;
+                peakDay = day;
+            }
+        }
+        return new Timeline(Arrays.copyOf(days, points), Arrays.copyOf(loads, points), peak, peakDay, count);
+    }
+
+    /**
+     * Builds the timeline of every architect or contractor from one scan of the open projects.
+     *
+     * @param conn Connection to the database.
+     * @param role {@link #ARCHITECT} or {@link #CONTRACTOR}.
+     * @return Each person's timeline keyed by their ID.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Map<Integer, Timeline> loadTimelines(Connection conn, String role) throws SQLException {
+        String sql = "SELECT " + column(role) + " AS person_id, " + INTERVAL_COLUMNS
+                + " FROM Projects WHERE finalised = 0 AND deleted_at IS NULL";
+        Map<Integer, List<long[]>> intervals = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                intervals.computeIfAbsent(rs.getInt("person_id"), id -> new ArrayList<>())
+                        .add(new long[]{rs.getDate("interval_start").toLocalDate().toEpochDay(),
+                                rs.getDate("interval_end").toLocalDate().toEpochDay()});
+            }
+        }
+
+        Map<Integer, Timeline> timelines = new HashMap<>();
+        for (Map.Entry<Integer, List<long[]>> entry : intervals.entrySet()) {
+            timelines.put(entry.getKey(), sweep(entry.getValue()));
+        }
+        return timelines;
+    }
+
+    /**
+     * Builds one person's timeline, optionally including a project that has not been saved yet.
+     *
+     * @param conn       Connection to the database.
+     * @param role       {@link #ARCHITECT} or {@link #CONTRACTOR}.
+     * @param personId   The person's ID.
+     * @param extraStart The start of an extra interval to include, or null for none.
+     * @param extraEnd   The end of the extra interval.
+     * @return The person's timeline.
+     * @throws SQLException If a database access error occurs.
+     */
+    public Timeline loadTimeline(Connection conn, String role, int personId, LocalDate extraStart, LocalDate extraEnd)
+            throws SQLException {
+        String sql = "SELECT " + INTERVAL_COLUMNS + " FROM Projects WHERE " + column(role) + " = ? AND finalised = 0 AND deleted_at IS NULL";
+        List<long[]> list = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, personId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new long[]{rs.getDate("interval_start").toLocalDate().toEpochDay(),
+                            rs.getDate("interval_end").toLocalDate().toEpochDay()});
+                }
+            }
+        }
+        if (extraStart != null) {
+            list.add(new long[]{extraStart.toEpochDay(), extraEnd.toEpochDay()});
+        }
+        return sweep(list);
+    }
+
+    /**
+     * Builds a load timeline from a list of {start, end} epoch-day pairs.
+     *
+     * @param intervals The intervals.
+     * @return The timeline.
+     */
+    private static Timeline sweep(List<long[]> intervals) {
+        long[] starts = new long[intervals.size()];
+        long[] ends = new long[intervals.size()];
+        for (int i = 0; i < intervals.size(); i++) {
+            starts[i] = intervals.get(i)[0];
+            ends[i] = intervals.get(i)[1];
+        }
+        return sweep(starts, ends, starts.length);
+    }
+
+    /**
+     * Warns if assigning a new project to a person would take them over the capacity threshold at any
+     * point while the project runs.
+     *
+     * @param conn     Connection to the database.
+     * @param role     {@link #ARCHITECT} or {@link #CONTRACTOR}.
+     * @param personId The person's ID.
+     * @param start    The new project's start date.
+     * @param end      The new project's completion date or deadline.
+     * @return true if a warning was shown.
+     */
+    public boolean warnIfOverCapacity(Connection conn, String role, int personId, LocalDate start, LocalDate end) {
+        try {
+            Timeline timeline = loadTimeline(conn, role, personId, start, end);
+            if (timeline.getPeak() > capacity) {
+                System.out.printf("Warning: %s %d would have %d overlapping open projects on %s (capacity %d).%n",
+                        role, personId, timeline.getPeak(), timeline.getPeakDate(), capacity);
+                return true;
+            }
+        } catch (SQLException e) {
+            System.out.println("Workload check could not be completed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Displays the workload report for architects and contractors: each person's open projects, load
+     * today, and peak overlap with its date, busiest first.
+     */
+    public void displayWorkloadReport() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (String role : new String[]{ARCHITECT, CONTRACTOR}) {
+                System.out.println("Workload by " + role + " (capacity " + capacity + "):");
+                Map<Integer, Timeline> timelines = loadTimelines(conn, role);
+                List<Map.Entry<Integer, Timeline>> entries = new ArrayList<>(timelines.entrySet());
+                entries.sort((a, b) -> Integer.compare(b.getValue().getPeak(), a.getValue().getPeak()));
+                LocalDate today = LocalDate.now();
+                for (Map.Entry<Integer, Timeline> entry : entries) {
+                    Timeline timeline = entry.getValue();
+                    System.out.printf("ID: %d | Open Projects: %d | Load Today: %d | Peak Overlap: %d on %s%s%n",
+                            entry.getKey(), timeline.getProjects(), timeline.loadOn(today), timeline.getPeak(),
+                            timeline.getPeakDate(), timeline.getPeak() > capacity ? " | OVER CAPACITY" : "");
+                }
+                if (entries.isEmpty()) {
+                    System.out.println("No open projects.");
+                }
+                System.out.println();
+            }
+        } catch (SQLException e) {
+            System.out.println("Error building workload report: " + e.getMessage());
+            System.out.println();
+        }
+    }
+
+    /**
+     * Returns the Projects column holding the ID for a role.
+     *
+     * @param role {@link #ARCHITECT} or {@link #CONTRACTOR}.
+     * @return The column name.
+     */
+    private static String column(String role) {
+        if (ARCHITECT.equals(role)) {
+            return "architect_id";
+        }
+        if (CONTRACTOR.equals(role)) {
+            return "contractor_id";
+        }
+        throw new IllegalArgumentException("Unknown role: " + role);
+    }
+}
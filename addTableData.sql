@@ -103,4 +103,19 @@ INSERT INTO Projects (
     2,
     1,
     1
-);
\ No newline at end of file
+);
+
+-- Insert the payment behind project 1002's paid to date total into the payments ledger
+INSERT INTO payments (
+    project_number,
+    amount_gbp,
+    paid_on,
+    reference,
+    recorded_by
+) VALUES (
+    1002,
+    10000,
+    '2024-06-01',
+    'Deposit',
+    'addTableData.sql'
+);
@@ -0,0 +1,245 @@
+package poise.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * The BenchDatabase class prepares the database the benchmarks run against and gives them access to the
+ * PoisePMS classes.
+ *
+ * <p>Unless {@code poise.db.url} is set, the benchmarks use an in-memory H2 database in MySQL mode, so
+ * they need nothing installed and give the same results on any machine. The tables are created with the
+ * same columns as {@code poisePMS.sql} (without the trigger and foreign keys) and filled from a fixed
+ * random seed with {@code poise.bench.people} (default 50) architects, contractors and customers each and
+ * {@code poise.bench.projects} (default 10000) projects. A database that already has projects is used as
+ * it is, so point {@code poise.db.url} at a scratch MySQL database rather than a real one.</p>
+ *
+ * <p>JMH does not allow benchmarks in the default package, and classes in a named package cannot import
+ * the PoisePMS classes, which are all in the default package; {@link #handle} and {@link #privateHandle}
+ * look their methods up by name instead.</p>
+ */
+public final class BenchDatabase {
+
+    /** The in-memory H2 stand-in for MySQL. */
+    static final String H2_URL = "jdbc:h2:mem:poise;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    static final int PEOPLE = Integer.getInteger("poise.bench.people", 50);
+    static final int PROJECTS = Integer.getInteger("poise.bench.projects", 10_000);
+
+    static {
+        // must happen before DatabaseConnection is loaded, as it reads these once
+        if (System.getProperty("poise.db.url") == null) {
+            System.setProperty("poise.db.url", H2_URL);
+            System.setProperty("poise.db.user", "sa");
+            System.setProperty("poise.db.password", "");
+        }
+    }
+
+    private static final String[] DDL = {
+            "CREATE TABLE IF NOT EXISTS %s (id INT PRIMARY KEY AUTO_INCREMENT, first_name VARCHAR(30), "
+                    + "last_name VARCHAR(40) NOT NULL, phone_number VARCHAR(20) NOT NULL, email VARCHAR(20), "
+                    + "address VARCHAR(20) NOT NULL, post_code VARCHAR(8) NOT NULL, deleted_at TIMESTAMP(3) NULL)",
+            "CREATE TABLE IF NOT EXISTS Projects (project_number INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "project_name VARCHAR(50), building_type VARCHAR(50) NOT NULL, project_address VARCHAR(50) NOT NULL, "
+                    + "erf_number VARCHAR(10) NOT NULL, total_fee_gbp DECIMAL(10, 2) DEFAULT 0, "
+                    + "paid_to_date_gbp DECIMAL(10, 2) DEFAULT 0, deadline_date DATE NOT NULL, completion_date DATE, "
+                    + "start_date DATE, finalised BOOLEAN NOT NULL, "
+                    + "updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), "
+                    + "deleted_at TIMESTAMP(3) NULL, architect_id INT NOT NULL, contractor_id INT NOT NULL, "
+                    + "customer_id INT NOT NULL)"
+    };
+
+    private static final String[] BUILDING_TYPES = {"House", "Apartment", "Office", "Warehouse", "School", "Shop"};
+
+    private static final MethodHandle GET_CONNECTION = handle("DatabaseConnection", true, "getConnection",
+            MethodType.methodType(Connection.class));
+
+    private static boolean seeded;
+
+    private BenchDatabase() {
+    }
+
+    /**
+     * Creates and fills the tables if they have no projects yet. Only the first call in a JVM does any work.
+     *
+     * @throws SQLException If the database cannot be reached.
+     */
+    static synchronized void seed() throws SQLException {
+        if (seeded) {
+            return;
+        }
+        try (Connection conn = DriverManager.getConnection(System.getProperty("poise.db.url"),
+                System.getProperty("poise.db.user"), System.getProperty("poise.db.password"))) {
+            try (Statement statement = conn.createStatement()) {
+                for (String table : new String[]{"Architect", "Contractor", "Customer"}) {
+                    statement.execute(String.format(DDL[0], table));
+                }
+                statement.execute(DDL[1]);
+                try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM Projects")) {
+                    rs.next();
+                    if (rs.getLong(1) > 0) {
+                        seeded = true;
+                        return;
+                    }
+                }
+            }
+
+            Random random = new Random(42);
+            conn.setAutoCommit(false);
+            for (String table : new String[]{"Architect", "Contractor", "Customer"}) {
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO " + table
+                        + " (first_name, last_name, phone_number, email, address, post_code) VALUES (?, ?, ?, ?, ?, ?)")) {
+                    for (int i = 1; i <= PEOPLE; i++) {
+                        insert.setString(1, "First" + i);
+                        insert.setString(2, table + i);
+                        insert.setString(3, String.format("0161 %07d", random.nextInt(10_000_000)));
+                        insert.setString(4, "p" + i + "@poise.test");
+                        insert.setString(5, i + " High Street");
+                        insert.setString(6, "M" + (1 + random.nextInt(40)) + " " + random.nextInt(10) + "AB");
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+            }
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Projects (project_name, building_type, "
+                    + "project_address, erf_number, total_fee_gbp, paid_to_date_gbp, deadline_date, completion_date, "
+                    + "start_date, finalised, architect_id, contractor_id, customer_id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                LocalDate base = LocalDate.of(2024, 1, 1);
+                for (int i = 1; i <= PROJECTS; i++) {
+                    String buildingType = BUILDING_TYPES[random.nextInt(BUILDING_TYPES.length)];
+                    BigDecimal fee = BigDecimal.valueOf(1_000_000 + random.nextInt(99_000_000), 2);
+                    LocalDate start = base.plusDays(random.nextInt(730));
+                    LocalDate deadline = start.plusDays(30 + random.nextInt(400));
+                    boolean finalised = random.nextInt(4) == 0;
+                    insert.setString(1, buildingType + " " + i);
+                    insert.setString(2, buildingType);
+                    insert.setString(3, i + " Project Road");
+                    insert.setString(4, "ERF" + i);
+                    insert.setBigDecimal(5, fee);
+                    insert.setBigDecimal(6, finalised ? fee
+                            : fee.multiply(BigDecimal.valueOf(random.nextInt(100), 2)).setScale(2, RoundingMode.HALF_UP));
+                    insert.setDate(7, Date.valueOf(deadline));
+                    insert.setDate(8, finalised ? Date.valueOf(deadline.minusDays(random.nextInt(30))) : null);
+                    insert.setDate(9, Date.valueOf(start));
+                    insert.setBoolean(10, finalised);
+                    insert.setInt(11, 1 + random.nextInt(PEOPLE));
+                    insert.setInt(12, 1 + random.nextInt(PEOPLE));
+                    insert.setInt(13, 1 + random.nextInt(PEOPLE));
+                    insert.addBatch();
+                    if (i % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+            seeded = true;
+        }
+    }
+
+    /**
+     * Opens a connection straight from the driver, outside the PoisePMS pool.
+     *
+     * @return A new connection.
+     * @throws SQLException If the database cannot be reached.
+     */
+    static Connection openDirect() throws SQLException {
+        return DriverManager.getConnection(System.getProperty("poise.db.url"), System.getProperty("poise.db.user"),
+                System.getProperty("poise.db.password"));
+    }
+
+    /**
+     * Borrows a connection from the PoisePMS pool, {@code DatabaseConnection.getConnection()}.
+     *
+     * @return A pooled connection, returned to the pool when closed.
+     * @throws SQLException If no connection can be borrowed.
+     */
+    static Connection borrowConnection() throws SQLException {
+        try {
+            return (Connection) GET_CONNECTION.invokeExact();
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Loads a PoisePMS class from the default package.
+     *
+     * @param name The simple class name.
+     * @return The class.
+     */
+    static Class<?> repoClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(name + " is not on the classpath; compile the PoisePMS sources first", e);
+        }
+    }
+
+    /**
+     * Looks up a public method of a PoisePMS class.
+     *
+     * @param className The simple class name.
+     * @param isStatic  Whether the method is static.
+     * @param name      The method name.
+     * @param type      The method type, without the receiver.
+     * @return The method handle; an instance method takes its receiver first.
+     */
+    static MethodHandle handle(String className, boolean isStatic, String name, MethodType type) {
+        try {
+            Class<?> owner = repoClass(className);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            return isStatic ? lookup.findStatic(owner, name, type) : lookup.findVirtual(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot find " + className + "." + name, e);
+        }
+    }
+
+    /**
+     * Looks up a private method of a PoisePMS class.
+     *
+     * @param className The simple class name.
+     * @param name      The method name.
+     * @param params    The parameter types.
+     * @return The method handle; an instance method takes its receiver first.
+     */
+    static MethodHandle privateHandle(String className, String name, Class<?>... params) {
+        try {
+            Method method = repoClass(className).getDeclaredMethod(name, params);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot find " + className + "." + name, e);
+        }
+    }
+
+    /**
+     * Creates an instance of a PoisePMS class with its public no-argument constructor.
+     *
+     * @param className The simple class name.
+     * @return The new instance.
+     */
+    static Object newInstance(String className) {
+        try {
+            return repoClass(className).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + className, e);
+        }
+    }
+}
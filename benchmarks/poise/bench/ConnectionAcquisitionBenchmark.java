@@ -0,0 +1,60 @@
+package poise.bench;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures borrowing a connection with {@code DatabaseConnection.getConnection()} and handing it back,
+ * from one thread and from 16 threads (more than the default pool size of 10, so some of them wait).
+ * {@link #openUnpooled()} opens and closes a connection straight from the driver for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionAcquisitionBenchmark {
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchDatabase.seed();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean borrowAndReturn() throws SQLException {
+        try (Connection conn = BenchDatabase.borrowConnection()) {
+            return conn.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean borrowAndReturnContended() throws SQLException {
+        try (Connection conn = BenchDatabase.borrowConnection()) {
+            return conn.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean openUnpooled() throws SQLException {
+        try (Connection conn = BenchDatabase.openDirect()) {
+            return conn.getAutoCommit();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package poise.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code PersonStore.insert}, the insert path the Architect, Contractor and Customer classes and
+ * the API all use, for each of the three person tables. The rows added during an iteration are deleted
+ * after it so the table size stays the same from one iteration to the next.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonInsertBenchmark {
+
+    @Param({"architect", "contractor", "customer"})
+    public String table;
+
+    private MethodHandle insert;
+    private Object store;
+    private Connection conn;
+    private Map<String, String> details;
+    private int seededMaxId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchDatabase.seed();
+        conn = BenchDatabase.borrowConnection();
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(id) FROM " + table)) {
+            rs.next();
+            seededMaxId = rs.getInt(1);
+        }
+        try {
+            store = BenchDatabase.repoClass("PersonStore").getConstructor(String.class).newInstance(table);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create PersonStore", e);
+        }
+        insert = BenchDatabase.handle("PersonStore", false, "insert",
+                MethodType.methodType(int.class, Connection.class, Map.class));
+
+        details = new HashMap<>();
+        details.put("firstName", "Bench");
+        details.put("lastName", "Mark");
+        details.put("phoneNumber", "0161 0000000");
+        details.put("email", "bench@poise.test");
+        details.put("address", "1 Benchmark Road");
+        details.put("postCode", "M1 1AA");
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeInserted() throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            statement.executeUpdate("DELETE FROM " + table + " WHERE id > " + seededMaxId);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public int insert() throws Throwable {
+        return (int) insert.invoke(store, conn, details);
+    }
+}
@@ -0,0 +1,86 @@
+package poise.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares two ways of listing projects with the names of the people involved: listing the projects and
+ * then looking up the architect, contractor and customer of each one by ID (1 + 3N queries), and the single
+ * streamed join used by {@code ProjectSearch.streamProjectsWithNames}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectListingBenchmark {
+
+    private Object projectSearch;
+    private Object architects;
+    private Object contractors;
+    private Object customers;
+    private MethodHandle findAllProjects;
+    private MethodHandle findById;
+    private MethodHandle streamProjectsWithNames;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchDatabase.seed();
+        projectSearch = BenchDatabase.newInstance("ProjectSearch");
+        architects = newPersonStore("architect");
+        contractors = newPersonStore("contractor");
+        customers = newPersonStore("customer");
+        findAllProjects = BenchDatabase.handle("ProjectSearch", false, "findAllProjects",
+                MethodType.methodType(List.class));
+        findById = BenchDatabase.handle("PersonStore", false, "findById",
+                MethodType.methodType(Map.class, Connection.class, int.class));
+        streamProjectsWithNames = BenchDatabase.handle("ProjectSearch", false, "streamProjectsWithNames",
+                MethodType.methodType(void.class, Consumer.class));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void perRowLookups(Blackhole blackhole) throws Throwable {
+        List<Map<String, Object>> projects = (List<Map<String, Object>>) findAllProjects.invoke(projectSearch);
+        try (Connection conn = BenchDatabase.borrowConnection()) {
+            for (Map<String, Object> project : projects) {
+                blackhole.consume(findById.invoke(architects, conn, (int) (Integer) project.get("architect_id")));
+                blackhole.consume(findById.invoke(contractors, conn, (int) (Integer) project.get("contractor_id")));
+                blackhole.consume(findById.invoke(customers, conn, (int) (Integer) project.get("customer_id")));
+            }
+        }
+    }
+
+    @Benchmark
+    public void joined(Blackhole blackhole) throws Throwable {
+        Consumer<Map<String, Object>> consumer = blackhole::consume;
+        streamProjectsWithNames.invoke(projectSearch, consumer);
+    }
+
+    private static Object newPersonStore(String tableName) {
+        try {
+            return BenchDatabase.repoClass("PersonStore").getConstructor(String.class).newInstance(tableName);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create PersonStore", e);
+        }
+    }
+}
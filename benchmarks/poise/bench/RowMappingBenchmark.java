@@ -0,0 +1,93 @@
+package poise.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures turning project rows into output: {@code ProjectSearch.readProjectRow}, which builds the row
+ * maps used by the API and the read replica, and {@code ProjectSearch.displayProjectDetails}, which the
+ * console listings call for every row.
+ *
+ * <p>The rows are read once into a {@link CachedRowSet}, so each operation maps the same rows from memory
+ * and the result does not include the query or the network. Console output goes to a null stream.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    private CachedRowSet rowSet;
+    private MethodHandle readProjectRow;
+    private MethodHandle displayProjectDetails;
+    private Object projectSearch;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchDatabase.seed();
+        try (Connection conn = BenchDatabase.openDirect();
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT * FROM Projects ORDER BY project_number LIMIT " + rows)) {
+            rowSet = RowSetProvider.newFactory().createCachedRowSet();
+            rowSet.populate(rs);
+        }
+        readProjectRow = BenchDatabase.handle("ProjectSearch", true, "readProjectRow",
+                MethodType.methodType(Map.class, ResultSet.class));
+        displayProjectDetails = BenchDatabase.privateHandle("ProjectSearch", "displayProjectDetails", ResultSet.class);
+        projectSearch = BenchDatabase.newInstance("ProjectSearch");
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        System.setOut(console);
+        rowSet.close();
+    }
+
+    @Benchmark
+    public void readProjectRow(Blackhole blackhole) throws Throwable {
+        rowSet.beforeFirst();
+        while (rowSet.next()) {
+            blackhole.consume(readProjectRow.invoke((ResultSet) rowSet));
+        }
+    }
+
+    @Benchmark
+    public void displayProjectDetails() throws Throwable {
+        rowSet.beforeFirst();
+        while (rowSet.next()) {
+            displayProjectDetails.invoke(projectSearch, (ResultSet) rowSet);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package poise.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code Project.updateProjectDetails}, which builds an {@code UPDATE} from whichever fields were
+ * given and runs it, for 1, 5 and all 11 changed fields. Each operation updates the next seeded project in
+ * turn on a connection borrowed from the PoisePMS pool. No change listeners are registered, so the before
+ * and after rows are not read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateProjectBenchmark {
+
+    @Param({"1", "5", "11"})
+    public int fields;
+
+    private MethodHandle updateProjectDetails;
+    private Object project;
+    private Connection conn;
+    private int firstProject;
+    private int projectCount;
+    private int next;
+
+    private String projectName;
+    private String buildingType;
+    private String projectAddress;
+    private String erfNumber;
+    private BigDecimal totalFee;
+    private Date deadlineDate;
+    private Date completionDate;
+    private String finalised;
+    private int architectId = -1;
+    private int contractorId = -1;
+    private int customerId = -1;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchDatabase.seed();
+        conn = BenchDatabase.borrowConnection();
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MIN(project_number), COUNT(*) FROM Projects")) {
+            rs.next();
+            firstProject = rs.getInt(1);
+            projectCount = rs.getInt(2);
+        }
+        updateProjectDetails = BenchDatabase.handle("Project", false, "updateProjectDetails",
+                MethodType.methodType(int.class, Connection.class, int.class, String.class, String.class, String.class,
+                        String.class, BigDecimal.class, Date.class, Date.class, String.class,
+                        int.class, int.class, int.class));
+        project = BenchDatabase.newInstance("Project");
+
+        // 1, 5 or 11 of the fields are given; the rest are left null (or -1) so they are not changed
+        totalFee = new BigDecimal("125000.00");
+        if (fields >= 5) {
+            deadlineDate = Date.valueOf("2026-06-30");
+            projectName = "Benchmark Project";
+            buildingType = "Office";
+            projectAddress = "1 Benchmark Road";
+        }
+        if (fields >= 11) {
+            erfNumber = "ERF0";
+            completionDate = Date.valueOf("2026-06-01");
+            finalised = "false";
+            architectId = 1;
+            contractorId = 1;
+            customerId = 1;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public int updateProjectDetails() throws Throwable {
+        int projectNumber = firstProject + next;
+        next = (next + 1) % projectCount;
+        return (int) updateProjectDetails.invoke(project, conn, projectNumber, projectName, buildingType,
+                projectAddress, erfNumber, totalFee, deadlineDate, completionDate, finalised,
+                architectId, contractorId, customerId);
+    }
+}
@@ -0,0 +1,138 @@
+-- The PoisePMS schema for the embedded database (-Dpoise.storage=embedded)
+-- EmbeddedStorage runs this file the first time it opens a new database, so nothing needs to be run by hand.
+-- The tables match poisePMS.sql, written in the SQL the embedded H2 engine accepts:
+--   * indexes are created separately instead of inside CREATE TABLE
+--   * finalised is a TINYINT, which is how MySQL stores BOOLEAN, so "finalised = 0" works as it does in MySQL
+--   * there is no trigger for project names; AddProject names unnamed projects itself
+--   * projects_archive lists its columns instead of using CREATE TABLE ... LIKE
+
+-- Step 1: Create the people tables
+CREATE TABLE Customer (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    first_name VARCHAR(30),
+    last_name VARCHAR(40) NOT NULL,
+    phone_number VARCHAR(20) NOT NULL,
+    email VARCHAR(20),
+    address VARCHAR(20) NOT NULL,
+    post_code VARCHAR(8) NOT NULL,
+    deleted_at TIMESTAMP(3) NULL
+);
+
+CREATE TABLE Contractor (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    first_name VARCHAR(30),
+    last_name VARCHAR(40) NOT NULL,
+    phone_number VARCHAR(20) NOT NULL,
+    email VARCHAR(20),
+    address VARCHAR(20) NOT NULL,
+    post_code VARCHAR(8) NOT NULL,
+    deleted_at TIMESTAMP(3) NULL
+);
+
+CREATE TABLE Architect (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    first_name VARCHAR(30),
+    last_name VARCHAR(40) NOT NULL,
+    phone_number VARCHAR(20) NOT NULL,
+    email VARCHAR(20),
+    address VARCHAR(20) NOT NULL,
+    post_code VARCHAR(8) NOT NULL,
+    deleted_at TIMESTAMP(3) NULL
+);
+
+-- Step 2: Create the Projects table, numbered from 1001 as in MySQL
+CREATE TABLE Projects (
+    project_number INT PRIMARY KEY AUTO_INCREMENT,
+    project_name VARCHAR(50),
+    building_type VARCHAR(50) NOT NULL,
+    project_address VARCHAR(50) NOT NULL,
+    erf_number VARCHAR(10) NOT NULL,
+    total_fee_gbp DECIMAL(10, 2) DEFAULT 0,
+    paid_to_date_gbp DECIMAL(10, 2) DEFAULT 0,
+    deadline_date DATE NOT NULL,
+    completion_date DATE,
+    start_date DATE,
+    finalised TINYINT NOT NULL,
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    deleted_at TIMESTAMP(3) NULL,
+    architect_id INT NOT NULL,
+    contractor_id INT NOT NULL,
+    customer_id INT NOT NULL,
+    FOREIGN KEY (architect_id) REFERENCES Architect(id),
+    FOREIGN KEY (contractor_id) REFERENCES Contractor(id),
+    FOREIGN KEY (customer_id) REFERENCES Customer(id)
+);
+
+ALTER TABLE Projects ALTER COLUMN project_number RESTART WITH 1001;
+
+-- Step 3: The indexes from Steps 10 to 13 and 17 of poisePMS.sql
+CREATE INDEX idx_projects_customer_portfolio
+    ON Projects (customer_id, deleted_at, deadline_date, completion_date, total_fee_gbp, paid_to_date_gbp);
+CREATE INDEX idx_projects_finalised_deadline ON Projects (finalised, deadline_date);
+CREATE INDEX idx_projects_type_fee ON Projects (building_type, total_fee_gbp);
+CREATE INDEX idx_projects_architect_open ON Projects (architect_id, finalised, deadline_date);
+CREATE INDEX idx_projects_contractor_open ON Projects (contractor_id, finalised, deadline_date);
+CREATE INDEX idx_projects_completion_deadline ON Projects (completion_date, deadline_date);
+CREATE INDEX idx_projects_updated_at ON Projects (updated_at);
+CREATE INDEX idx_projects_deleted ON Projects (deleted_at);
+CREATE INDEX idx_architect_deleted ON Architect (deleted_at);
+CREATE INDEX idx_contractor_deleted ON Contractor (deleted_at);
+CREATE INDEX idx_customer_deleted ON Customer (deleted_at);
+
+-- Step 4: Project history (ProjectHistory)
+CREATE TABLE project_history (
+    project_number INT NOT NULL,
+    valid_from TIMESTAMP(3) NOT NULL,
+    valid_to TIMESTAMP(3) NOT NULL,
+    project_name VARCHAR(50),
+    building_type VARCHAR(50) NOT NULL,
+    project_address VARCHAR(50) NOT NULL,
+    erf_number VARCHAR(10) NOT NULL,
+    total_fee_gbp DECIMAL(10, 2),
+    paid_to_date_gbp DECIMAL(10, 2),
+    deadline_date DATE NOT NULL,
+    completion_date DATE,
+    start_date DATE,
+    finalised TINYINT NOT NULL,
+    architect_id INT NOT NULL,
+    contractor_id INT NOT NULL,
+    customer_id INT NOT NULL,
+    changed_by VARCHAR(100),
+    PRIMARY KEY (project_number, valid_from)
+);
+
+CREATE INDEX idx_history_as_of ON project_history (valid_to, valid_from);
+CREATE INDEX idx_history_customer ON project_history (customer_id, valid_to);
+
+-- Step 5: Payment ledger (PaymentLedger)
+CREATE TABLE payments (
+    payment_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    project_number INT NOT NULL,
+    amount_gbp DECIMAL(10, 2) NOT NULL,
+    paid_on DATE NOT NULL,
+    reference VARCHAR(50),
+    recorded_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    recorded_by VARCHAR(100)
+);
+
+CREATE INDEX idx_payments_project ON payments (project_number, paid_on);
+
+-- Step 6: Archive of finalised projects (ProjectArchiver), with the same columns as Projects
+CREATE TABLE projects_archive (
+    project_number INT PRIMARY KEY,
+    project_name VARCHAR(50),
+    building_type VARCHAR(50) NOT NULL,
+    project_address VARCHAR(50) NOT NULL,
+    erf_number VARCHAR(10) NOT NULL,
+    total_fee_gbp DECIMAL(10, 2) DEFAULT 0,
+    paid_to_date_gbp DECIMAL(10, 2) DEFAULT 0,
+    deadline_date DATE NOT NULL,
+    completion_date DATE,
+    start_date DATE,
+    finalised TINYINT NOT NULL,
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    deleted_at TIMESTAMP(3) NULL,
+    architect_id INT NOT NULL,
+    contractor_id INT NOT NULL,
+    customer_id INT NOT NULL
+);
@@ -15,7 +15,8 @@ CREATE TABLE Customer (
     phone_number VARCHAR(20) NOT NULL,
     email VARCHAR(20),
     address VARCHAR(20) NOT NULL,
-    post_code VARCHAR(8) NOT NULL
+    post_code VARCHAR(8) NOT NULL,
+    deleted_at TIMESTAMP(3) NULL
 );
 
 -- Step 4: Create the Contractor Table
@@ -26,7 +27,8 @@ CREATE TABLE Contractor (
     phone_number VARCHAR(20) NOT NULL,
     email VARCHAR(20),
     address VARCHAR(20) NOT NULL,
-    post_code VARCHAR(8) NOT NULL
+    post_code VARCHAR(8) NOT NULL,
+    deleted_at TIMESTAMP(3) NULL
 );
 
 -- Step 5: Create the Architect Table
@@ -37,7 +39,8 @@ CREATE TABLE Architect (
     phone_number VARCHAR(20) NOT NULL,
     email VARCHAR(20),
     address VARCHAR(20) NOT NULL,
-    post_code VARCHAR(8) NOT NULL
+    post_code VARCHAR(8) NOT NULL,
+    deleted_at TIMESTAMP(3) NULL
 );
 
 
@@ -52,7 +55,10 @@ CREATE TABLE Projects (
     paid_to_date_gbp DECIMAL(10, 2) DEFAULT 0,
     deadline_date DATE NOT NULL,
     completion_date DATE,
+    start_date DATE,
     finalised BOOLEAN NOT NULL, 
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    deleted_at TIMESTAMP(3) NULL,
     architect_id INT NOT NULL,
     contractor_id INT NOT NULL,
     customer_id INT NOT NULL,
@@ -76,4 +82,82 @@ BEGIN
     END IF;
 END//
 
-DELIMITER ;
\ No newline at end of file
+DELIMITER ;
+
+-- Step 10: Index to answer customer portfolio queries
+-- (all of a customer's projects and their fee totals) from the index alone; deleted_at is included because
+-- every portfolio query skips projects marked as deleted
+CREATE INDEX idx_projects_customer_portfolio
+    ON Projects (customer_id, deleted_at, deadline_date, completion_date, total_fee_gbp, paid_to_date_gbp);
+
+
+-- Step 11: Composite indexes for the project filter (ProjectFilter)
+-- Each starts with a column the filter tests for equality, followed by a range column
+CREATE INDEX idx_projects_finalised_deadline ON Projects (finalised, deadline_date);
+CREATE INDEX idx_projects_type_fee ON Projects (building_type, total_fee_gbp);
+CREATE INDEX idx_projects_architect_open ON Projects (architect_id, finalised, deadline_date);
+CREATE INDEX idx_projects_contractor_open ON Projects (contractor_id, finalised, deadline_date);
+
+
+-- Step 12: Index for the most overdue projects ranking (ProjectSearch.findMostOverdue)
+-- Incomplete projects (completion_date IS NULL) are read in deadline order, so MySQL can stop after K rows
+CREATE INDEX idx_projects_completion_deadline ON Projects (completion_date, deadline_date);
+
+
+-- Step 13: Index for the project read replica (ProjectReplica), which re-reads recently changed projects
+CREATE INDEX idx_projects_updated_at ON Projects (updated_at);
+
+
+-- Step 14: Project history (ProjectHistory), one row per version of each project
+-- A version is valid from valid_from up to, but not including, valid_to; the current version ends in 9999
+CREATE TABLE project_history (
+    project_number INT NOT NULL,
+    valid_from DATETIME(3) NOT NULL,
+    valid_to DATETIME(3) NOT NULL,
+    project_name VARCHAR(50),
+    building_type VARCHAR(50) NOT NULL,
+    project_address VARCHAR(50) NOT NULL,
+    erf_number VARCHAR(10) NOT NULL,
+    total_fee_gbp DECIMAL(10, 2),
+    paid_to_date_gbp DECIMAL(10, 2),
+    deadline_date DATE NOT NULL,
+    completion_date DATE,
+    start_date DATE,
+    finalised BOOLEAN NOT NULL,
+    architect_id INT NOT NULL,
+    contractor_id INT NOT NULL,
+    customer_id INT NOT NULL,
+    changed_by VARCHAR(100),
+    PRIMARY KEY (project_number, valid_from),
+    INDEX idx_history_as_of (valid_to, valid_from),
+    INDEX idx_history_customer (customer_id, valid_to)
+);
+
+
+-- Step 15: Payment ledger (PaymentLedger), one row per payment; rows are only ever added
+-- Each payment is also added to Projects.paid_to_date_gbp, which is the running total balances are read from
+CREATE TABLE payments (
+    payment_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    project_number INT NOT NULL,
+    amount_gbp DECIMAL(10, 2) NOT NULL,
+    paid_on DATE NOT NULL,
+    reference VARCHAR(50),
+    recorded_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    recorded_by VARCHAR(100),
+    INDEX idx_payments_project (project_number, paid_on)
+);
+
+
+-- Step 16: Archive of finalised projects (ProjectArchiver)
+-- It has exactly the same columns as Projects, so searches can add it with UNION ALL
+-- It also copies the indexes made so far, but not the deleted_at index Step 17 adds to Projects: that index
+-- is only for the purge worker, which never purges the archive
+CREATE TABLE projects_archive LIKE Projects;
+
+
+-- Step 17: Indexes for the purge worker (PurgeWorker), which removes rows marked as deleted oldest first
+CREATE INDEX idx_projects_deleted ON Projects (deleted_at);
+CREATE INDEX idx_architect_deleted ON Architect (deleted_at);
+CREATE INDEX idx_contractor_deleted ON Contractor (deleted_at);
+CREATE INDEX idx_customer_deleted ON Customer (deleted_at);
+